@@ -0,0 +1,27 @@
+package com.example.express.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 响应缓存：标注在控制器的GET方法上，缓存序列化后的响应体并以强ETag支持条件请求（If-None-Match）
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CachedResponse {
+
+  /**
+   * 缓存有效期（毫秒）
+   */
+  long ttlMs() default 5000;
+
+  /**
+   * 是否按用户角色区分缓存
+   */
+  boolean roleAware() default true;
+
+  /**
+   * 响应是否为常量：首次计算后永久缓存，忽略ttlMs
+   */
+  boolean constant() default false;
+}
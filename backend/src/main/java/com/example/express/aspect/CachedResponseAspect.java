@@ -0,0 +1,129 @@
+package com.example.express.aspect;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.example.express.annotation.CachedResponse;
+import com.example.express.common.ApiResponse;
+import com.example.express.security.AuthenticatedUser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * 响应缓存切面
+ * 缓存键为控制器方法、查询字符串以及（按角色区分时）当前用户角色。
+ * 缓存命中时直接写出已序列化的响应体，不再调用控制器和服务；
+ * ETag为响应体的摘要，与请求的If-None-Match一致时返回304，不返回响应体。
+ * 缓存过期后重新计算，数据未变化时沿用原响应体和ETag，客户端缓存继续有效
+ */
+@Aspect
+@Component
+public class CachedResponseAspect {
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${app.response-cache.capacity:1000}")
+  private int capacity;
+
+  private LRUCache<String, Entry> cache;
+
+  /**
+   * 缓存条目：响应体、ETag、数据摘要（用于判断重新计算后数据是否变化）及过期时间
+   */
+  private record Entry(byte[] body, String etag, String dataDigest, long expiresAt) {
+
+    Entry withExpiresAt(long expiresAt) {
+      return new Entry(body, etag, dataDigest, expiresAt);
+    }
+  }
+
+  @PostConstruct
+  public void init() {
+    cache = CacheUtil.newLRUCache(capacity);
+  }
+
+  @Around("@annotation(cachedResponse)")
+  public Object around(ProceedingJoinPoint joinPoint, CachedResponse cachedResponse) throws Throwable {
+    ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+    if (attributes == null || attributes.getResponse() == null) {
+      return joinPoint.proceed();
+    }
+    HttpServletRequest request = attributes.getRequest();
+    HttpServletResponse response = attributes.getResponse();
+    String endpoint = ((MethodSignature) joinPoint.getSignature()).getMethod().getName();
+    String key = cacheKey(joinPoint, request, cachedResponse.roleAware());
+
+    long now = System.currentTimeMillis();
+    Entry entry = cache.get(key, false);
+    if (entry != null && now < entry.expiresAt()) {
+      count(endpoint, "hit");
+    } else {
+      count(endpoint, "miss");
+      Object result = joinPoint.proceed();
+      // 只缓存成功的响应
+      if (!(result instanceof ApiResponse<?> apiResponse) || !Integer.valueOf(200).equals(apiResponse.getCode())) {
+        return result;
+      }
+      long expiresAt = cachedResponse.constant() ? Long.MAX_VALUE : now + cachedResponse.ttlMs();
+      String dataDigest = DigestUtil.sha256Hex(objectMapper.writeValueAsBytes(apiResponse.getData()));
+      if (entry != null && entry.dataDigest().equals(dataDigest)) {
+        entry = entry.withExpiresAt(expiresAt);
+      } else {
+        byte[] body = objectMapper.writeValueAsBytes(apiResponse);
+        String etag = "\"" + DigestUtil.sha256Hex(body).substring(0, 32) + "\"";
+        entry = new Entry(body, etag, dataDigest, expiresAt);
+      }
+      cache.put(key, entry);
+    }
+
+    ServletWebRequest webRequest = new ServletWebRequest(request, response);
+    // 响应因用户而异，只允许客户端私有缓存，每次使用前须向服务端验证
+    response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+    if (webRequest.checkNotModified(entry.etag())) {
+      meterRegistry.counter("response.cache.not.modified", "endpoint", endpoint).increment();
+      meterRegistry.counter("response.cache.bytes.saved", "endpoint", endpoint).increment(entry.body().length);
+      return null;
+    }
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    response.setContentLength(entry.body().length);
+    response.getOutputStream().write(entry.body());
+    response.flushBuffer();
+    return null;
+  }
+
+  private static String cacheKey(ProceedingJoinPoint joinPoint, HttpServletRequest request, boolean roleAware) {
+    StringBuilder key = new StringBuilder(joinPoint.getSignature().toLongString())
+        .append('|').append(request.getQueryString());
+    if (roleAware) {
+      Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+      Object principal = authentication == null ? null : authentication.getPrincipal();
+      key.append('|').append(principal instanceof AuthenticatedUser user ? user.getRole() : "anonymous");
+    }
+    return key.toString();
+  }
+
+  private void count(String endpoint, String result) {
+    meterRegistry.counter("response.cache.lookups", "endpoint", endpoint, "result", result).increment();
+  }
+}
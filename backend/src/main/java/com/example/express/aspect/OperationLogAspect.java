@@ -1,8 +1,10 @@
 package com.example.express.aspect;
 
 import com.example.express.annotation.OperationLogAnnotation;
+import com.example.express.common.ApiResponse;
 import com.example.express.entity.OperationLog;
-import com.example.express.entity.User;
+import com.example.express.entity.Order;
+import com.example.express.security.AuthenticatedUser;
 import com.example.express.service.OperationLogService;
 import jakarta.servlet.http.HttpServletRequest;
 import org.aspectj.lang.JoinPoint;
@@ -30,8 +32,13 @@ public class OperationLogAspect {
   public void operationLogPointCut() {
   }
 
-  @AfterReturning(pointcut = "operationLogPointCut()")
-  public void saveOperationLog(JoinPoint joinPoint) {
+  @AfterReturning(pointcut = "operationLogPointCut()", returning = "result")
+  public void saveOperationLog(JoinPoint joinPoint, Object result) {
+    // 只记录执行成功的操作
+    if (result instanceof ApiResponse<?> response && !Integer.valueOf(200).equals(response.getCode())) {
+      return;
+    }
+
     // 获取当前登录用户
     Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
     if (authentication == null || !authentication.isAuthenticated()) {
@@ -54,8 +61,8 @@ public class OperationLogAspect {
     // 创建操作日志
     OperationLog log = new OperationLog();
     Object principal = authentication.getPrincipal();
-    if (principal instanceof User) {
-      log.setOperatorId(((User) principal).getId());
+    if (principal instanceof AuthenticatedUser user) {
+      log.setOperatorId(user.getUserId());
     } else {
       return; // 如果无法获取用户信息，不记录日志
     }
@@ -66,6 +73,8 @@ public class OperationLogAspect {
     Object[] args = joinPoint.getArgs();
     if (args.length > 0 && args[0] instanceof Long) {
       log.setTargetId((Long) args[0]);
+    } else if (result instanceof ApiResponse<?> response && response.getData() instanceof Order order) {
+      log.setTargetId(order.getOrderId());
     }
 
     // 保存日志
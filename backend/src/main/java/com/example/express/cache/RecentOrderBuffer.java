@@ -0,0 +1,243 @@
+package com.example.express.cache;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.example.express.entity.Order;
+import com.example.express.entity.OrderOutbox;
+import com.example.express.mapper.OrderMapper;
+import com.example.express.outbox.OrderChangeListener;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 最近订单缓冲区
+ * 每个节点在内存中按(创建时间, 订单ID)倒序保留最新的若干订单，/api/orders/recent直接读取，不访问数据库。
+ * 启动时从数据库加载；订单变更事件由中继投递给某一个节点，该节点回表后经Redis发布订阅广播，
+ * 所有节点（包括自身）收到后更新本地缓冲区；另有定时全量刷新兜底丢失的广播消息。
+ * 缓冲区发布后不再修改，更新时在副本上修改后整体替换，读取无需加锁，也不会读到更新到一半的数据
+ */
+@Slf4j
+@Component
+public class RecentOrderBuffer implements OrderChangeListener {
+
+    public static final String CONSUMER_NAME = "recent-orders";
+
+    private static final String CHANNEL = "order:recent";
+
+    private static final Comparator<Key> NEWEST_FIRST = Comparator.comparing(Key::createdAt)
+            .thenComparingLong(Key::orderId)
+            .reversed();
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.recent-orders.size:10}")
+    private int size;
+
+    @Value("${app.recent-orders.capacity:50}")
+    private int capacity;
+
+    private volatile Buffer buffer = new Buffer();
+
+    private volatile boolean loaded;
+
+    private record Key(LocalDateTime createdAt, long orderId) {
+    }
+
+    /**
+     * 缓冲区快照：按(创建时间, 订单ID)倒序的订单，及订单ID到排序键的索引
+     */
+    private static final class Buffer {
+        private final TreeMap<Key, Order> orders;
+        private final Map<Long, Key> keys;
+
+        private Buffer() {
+            this(new TreeMap<>(NEWEST_FIRST), new HashMap<>());
+        }
+
+        private Buffer(TreeMap<Key, Order> orders, Map<Long, Key> keys) {
+            this.orders = orders;
+            this.keys = keys;
+        }
+
+        private Buffer copy() {
+            return new Buffer(new TreeMap<>(orders), new HashMap<>(keys));
+        }
+    }
+
+    /**
+     * 广播消息：新增或变更的订单，以及已删除的订单ID
+     */
+    @Data
+    public static class ChangeMessage {
+        private List<Order> orders = new ArrayList<>();
+        private List<Long> deletedIds = new ArrayList<>();
+    }
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener((message, pattern) -> onMessage(message.getBody()),
+                new ChannelTopic(CHANNEL));
+        try {
+            reload();
+        } catch (Exception e) {
+            log.warn("加载最近订单失败，首次读取时重试：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 获取最近的订单（按创建时间倒序）
+     */
+    public List<Order> getRecent() {
+        if (!loaded) {
+            reload();
+        }
+        List<Order> result = new ArrayList<>(size);
+        for (Order order : buffer.orders.values()) {
+            if (result.size() >= size) {
+                break;
+            }
+            result.add(order);
+        }
+        return result;
+    }
+
+    /**
+     * 定时从数据库重新加载，修正可能丢失的广播消息
+     */
+    @Scheduled(fixedDelayString = "${app.recent-orders.reload-interval-ms:60000}",
+            initialDelayString = "${app.recent-orders.reload-interval-ms:60000}")
+    public void scheduledReload() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.warn("刷新最近订单失败：{}", e.getMessage());
+        }
+    }
+
+    public synchronized void reload() {
+        QueryWrapper<Order> queryWrapper = new QueryWrapper<>();
+        queryWrapper.orderByDesc("created_at").orderByDesc("order_id").last("LIMIT " + capacity);
+        List<Order> latest = orderMapper.selectList(queryWrapper);
+        Buffer reloaded = new Buffer();
+        latest.forEach(order -> put(reloaded, order));
+        buffer = reloaded;
+        loaded = true;
+    }
+
+    @Override
+    public String name() {
+        return CONSUMER_NAME;
+    }
+
+    /**
+     * 回表读取本批变更订单的最新数据并广播；状态变更只广播当前仍在缓冲区内的订单
+     */
+    @Override
+    public void onOrderChanges(List<OrderOutbox> events) {
+        // 同一订单只保留最后一次变更
+        Map<Long, String> latest = new LinkedHashMap<>();
+        Map<Long, Key> keys = buffer.keys;
+        for (OrderOutbox event : events) {
+            if (OrderOutbox.UPDATE.equals(event.getEventType()) && !keys.containsKey(event.getOrderId())
+                    && !OrderOutbox.CREATE.equals(latest.get(event.getOrderId()))) {
+                continue;
+            }
+            latest.put(event.getOrderId(), event.getEventType());
+        }
+        if (latest.isEmpty()) {
+            return;
+        }
+
+        ChangeMessage message = new ChangeMessage();
+        List<Long> changedIds = new ArrayList<>();
+        latest.forEach((orderId, type) -> {
+            if (OrderOutbox.DELETE.equals(type)) {
+                message.getDeletedIds().add(orderId);
+            } else {
+                changedIds.add(orderId);
+            }
+        });
+        if (!changedIds.isEmpty()) {
+            message.getOrders().addAll(orderMapper.selectBatchIds(changedIds));
+        }
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, objectMapper.writeValueAsString(message));
+        } catch (Exception e) {
+            throw new IllegalStateException("广播最近订单变更失败", e);
+        }
+    }
+
+    private void onMessage(byte[] body) {
+        try {
+            ChangeMessage message = objectMapper.readValue(new String(body, StandardCharsets.UTF_8),
+                    ChangeMessage.class);
+            apply(message);
+        } catch (Exception e) {
+            log.warn("处理最近订单变更消息失败：{}", e.getMessage());
+        }
+    }
+
+    private synchronized void apply(ChangeMessage message) {
+        Buffer updated = buffer.copy();
+        message.getDeletedIds().forEach(orderId -> remove(updated, orderId));
+        message.getOrders().forEach(order -> put(updated, order));
+        // 删除导致不足展示条数时重新加载（重新加载完成前继续使用更新后的缓冲区）
+        buffer = updated;
+        if (loaded && !message.getDeletedIds().isEmpty() && updated.orders.size() < size) {
+            reload();
+        }
+    }
+
+    private void put(Buffer target, Order order) {
+        if (order.getCreatedAt() == null) {
+            return;
+        }
+        remove(target, order.getOrderId());
+        Key key = new Key(order.getCreatedAt(), order.getOrderId());
+        // 缓冲区已满且比最旧的订单还旧时不需要保留
+        if (target.orders.size() >= capacity && NEWEST_FIRST.compare(key, target.orders.lastKey()) > 0) {
+            return;
+        }
+        target.orders.put(key, order);
+        target.keys.put(order.getOrderId(), key);
+        while (target.orders.size() > capacity) {
+            Map.Entry<Key, Order> oldest = target.orders.pollLastEntry();
+            target.keys.remove(oldest.getKey().orderId());
+        }
+    }
+
+    private static void remove(Buffer target, Long orderId) {
+        Key key = target.keys.remove(orderId);
+        if (key != null) {
+            target.orders.remove(key);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.express.cache;
+
+import com.example.express.entity.Store;
+import com.example.express.mapper.StoreMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 门店目录快照
+ * 全部门店以不可变快照的形式保存在内存中，读取门店列表和详情不访问数据库。
+ * 目录版本号保存在Redis中，门店增删改后递增版本号并经发布订阅通知所有节点，
+ * 各节点收到通知后在下次读取时重新加载；另有定时比对版本号兜底丢失的通知。
+ * Redis不可用时继续使用现有快照（本节点修改过门店时除外），由定时比对在Redis恢复后刷新。
+ * HTTP ETag取快照内容的摘要而非版本号：Redis数据丢失后版本号从0重新计数，会与旧的ETag重复
+ */
+@Slf4j
+@Component
+public class StoreCatalog {
+
+    private static final String VERSION_KEY = "store:catalog:version";
+    private static final String CHANNEL = "store:catalog";
+
+    @Autowired
+    private StoreMapper storeMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    private volatile Snapshot snapshot;
+
+    private volatile boolean stale = true;
+
+    /**
+     * 本节点修改过门店，即使读取不到版本号也需要重新加载
+     */
+    private volatile boolean modified;
+
+    /**
+     * 门店目录快照，其中的门店对象只读，调用方不应修改
+     *
+     * @param version 目录版本号，Redis不可用时为-1
+     * @param digest  全部门店内容（按门店ID排序）的摘要
+     */
+    public record Snapshot(long version, String digest, List<Store> stores, Map<Long, Store> storesById) {
+
+        public Store get(Long storeId) {
+            return storesById.get(storeId);
+        }
+
+        /**
+         * 门店列表的ETag，各节点加载到相同数据时一致
+         */
+        public String etag() {
+            return "\"stores-" + digest + "\"";
+        }
+
+        /**
+         * 单个门店的ETag，取该门店内容的摘要；门店不存在时返回null
+         */
+        public String etag(Long storeId) {
+            Store store = storesById.get(storeId);
+            return store == null ? null : "\"store-" + storeId + "-" + digest(List.of(store)) + "\"";
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener(
+                (message, pattern) -> onVersion(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * 获取当前快照，已失效时重新加载
+     */
+    public Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null && !stale) {
+            return current;
+        }
+        return reload();
+    }
+
+    /**
+     * 门店增删改后调用：递增目录版本号并通知所有节点
+     */
+    public void invalidate() {
+        modified = true;
+        stale = true;
+        try {
+            Long version = stringRedisTemplate.opsForValue().increment(VERSION_KEY);
+            stringRedisTemplate.convertAndSend(CHANNEL, String.valueOf(version));
+        } catch (Exception e) {
+            log.warn("更新门店目录版本失败，其他节点将在版本比对时刷新：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定时比对版本号，修正可能丢失的通知；快照版本未知（加载时Redis不可用）时，Redis恢复后即触发刷新
+     */
+    @Scheduled(fixedDelayString = "${app.store-catalog.version-check-ms:10000}")
+    public void checkVersion() {
+        Snapshot current = snapshot;
+        if (current == null || stale) {
+            return;
+        }
+        try {
+            if (readVersion() != current.version()) {
+                stale = true;
+            }
+        } catch (Exception e) {
+            log.debug("读取门店目录版本失败：{}", e.getMessage());
+        }
+    }
+
+    private synchronized Snapshot reload() {
+        Snapshot current = snapshot;
+        if (current != null && !stale) {
+            return current;
+        }
+        // 先清除标记再读取版本号和数据，期间到达的通知会重新标记失效
+        stale = false;
+        boolean force = modified;
+        modified = false;
+        long version;
+        try {
+            version = readVersion();
+        } catch (Exception e) {
+            if (current != null && !force) {
+                log.warn("读取门店目录版本失败，继续使用当前快照：{}", e.getMessage());
+                return current;
+            }
+            log.warn("读取门店目录版本失败，加载的快照没有版本号：{}", e.getMessage());
+            version = -1;
+        }
+
+        List<Store> stores = new ArrayList<>(storeMapper.selectList(null));
+        stores.sort(Comparator.comparing(Store::getStoreId));
+        Map<Long, Store> storesById = new HashMap<>();
+        stores.forEach(store -> storesById.put(store.getStoreId(), store));
+        Snapshot loaded = new Snapshot(version, digest(stores), List.copyOf(stores), Map.copyOf(storesById));
+        snapshot = loaded;
+        return loaded;
+    }
+
+    /**
+     * 门店内容摘要（SHA-256前16字节的十六进制），按各字段的文本形式计算
+     */
+    static String digest(List<Store> stores) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            for (Store store : stores) {
+                md.update(store.toString().getBytes(StandardCharsets.UTF_8));
+                md.update((byte) '\n');
+            }
+            return HexFormat.of().formatHex(md.digest(), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private long readVersion() {
+        String value = stringRedisTemplate.opsForValue().get(VERSION_KEY);
+        return value == null ? 0 : Long.parseLong(value);
+    }
+
+    private void onVersion(String message) {
+        Snapshot current = snapshot;
+        try {
+            if (current == null || Long.parseLong(message) != current.version()) {
+                stale = true;
+            }
+        } catch (NumberFormatException e) {
+            stale = true;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.express.cache;
+
+import cn.hutool.bean.BeanUtil;
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import com.example.express.entity.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 用户两级缓存
+ * L1为进程内LRU缓存（容量和过期时间有界），L2为Redis，分别按用户名和用户ID缓存。
+ * - 同一键并发未命中时只有一个线程回源，其余线程等待其结果，避免冷键击穿数据库
+ * - 用户信息变更或删除时删除L2并经Redis发布订阅通知所有节点清除L1
+ * - 缓存中保存的是副本，调用方修改返回的对象不会影响缓存
+ * - 缓存中不保存密码，认证时直接查询数据库
+ */
+@Slf4j
+@Component
+public class UserCache {
+
+    private static final String CHANNEL = "user:evict";
+    private static final String KEY_PREFIX = "user:";
+    private static final String NAME_PREFIX = "name:";
+    private static final String ID_PREFIX = "id:";
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.user-cache.local-capacity:1000}")
+    private int localCapacity;
+
+    @Value("${app.user-cache.local-ttl-ms:60000}")
+    private long localTtlMs;
+
+    @Value("${app.user-cache.redis-ttl-seconds:1800}")
+    private long redisTtlSeconds;
+
+    private LRUCache<String, User> localCache;
+
+    /**
+     * 正在回源的键；回源期间该键被清除时标记为过期，结果只返回给调用方，不写入缓存
+     */
+    private final Map<String, Loading> loading = new ConcurrentHashMap<>();
+
+    private static final class Loading {
+        private final CompletableFuture<User> future = new CompletableFuture<>();
+        private volatile boolean stale;
+    }
+
+    private Counter localHits;
+    private Counter localMisses;
+    private Counter redisHits;
+    private Counter redisMisses;
+
+    @PostConstruct
+    public void init() {
+        localCache = CacheUtil.newLRUCache(localCapacity, localTtlMs);
+        localHits = counter("local", "hit");
+        localMisses = counter("local", "miss");
+        redisHits = counter("redis", "hit");
+        redisMisses = counter("redis", "miss");
+        listenerContainer.addMessageListener(
+                (message, pattern) -> onEvict(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * 按用户名获取用户，未命中时通过loader从数据库加载
+     */
+    public User getByUsername(String username, Supplier<User> loader) {
+        return get(NAME_PREFIX + username, loader);
+    }
+
+    /**
+     * 按用户ID获取用户，未命中时通过loader从数据库加载
+     */
+    public User getById(Long userId, Supplier<User> loader) {
+        return get(ID_PREFIX + userId, loader);
+    }
+
+    /**
+     * 清除用户缓存（本节点及其他节点）
+     */
+    public void evict(Long userId, String username) {
+        List<String> keys = keys(userId, username);
+        keys.forEach(this::invalidate);
+        try {
+            redisTemplate.delete(keys.stream().map(key -> KEY_PREFIX + key).toList());
+            stringRedisTemplate.convertAndSend(CHANNEL, String.join(",", keys));
+        } catch (Exception e) {
+            log.warn("清除用户缓存失败，等待缓存过期：{}", e.getMessage());
+        }
+    }
+
+    private User get(String key, Supplier<User> loader) {
+        User user = localCache.get(key, false);
+        if (user != null) {
+            localHits.increment();
+            return copy(user);
+        }
+        localMisses.increment();
+
+        Loading current = new Loading();
+        Loading existing = loading.putIfAbsent(key, current);
+        if (existing != null) {
+            // 已有线程在加载该键，等待其结果
+            try {
+                User loaded = existing.future.join();
+                return loaded == null ? null : copy(loaded);
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            User loaded = load(key, loader, current);
+            current.future.complete(loaded);
+            return loaded == null ? null : copy(loaded);
+        } catch (RuntimeException e) {
+            current.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, current);
+        }
+    }
+
+    private User load(String key, Supplier<User> loader, Loading current) {
+        User user = readRedis(key);
+        if (user != null) {
+            redisHits.increment();
+        } else {
+            redisMisses.increment();
+            User loaded = loader.get();
+            if (loaded == null) {
+                return null;
+            }
+            user = copy(loaded);
+            user.setPassword(null);
+            if (!current.stale) {
+                writeRedis(user);
+            }
+        }
+        if (!current.stale) {
+            List<String> keys = keys(user.getUserId(), user.getUsername());
+            for (String k : keys) {
+                localCache.put(k, user);
+            }
+            // 写入本地缓存的同时被清除：撤销刚写入的数据
+            if (current.stale) {
+                keys.forEach(localCache::remove);
+            }
+        }
+        return user;
+    }
+
+    private User readRedis(String key) {
+        try {
+            Object value = redisTemplate.opsForValue().get(KEY_PREFIX + key);
+            if (value == null) {
+                return null;
+            }
+            // 旧版本写入的缓存可能带有密码，读取时一并去掉
+            User user = objectMapper.convertValue(value, User.class);
+            user.setPassword(null);
+            return user;
+        } catch (Exception e) {
+            log.warn("读取Redis用户缓存失败：{}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeRedis(User user) {
+        try {
+            // 值序列化器不带类型信息，以Map形式存储，读取时再转换为User
+            Map<?, ?> value = objectMapper.convertValue(user, Map.class);
+            redisTemplate.opsForValue().set(KEY_PREFIX + NAME_PREFIX + user.getUsername(), value,
+                    redisTtlSeconds, TimeUnit.SECONDS);
+            redisTemplate.opsForValue().set(KEY_PREFIX + ID_PREFIX + user.getUserId(), value,
+                    redisTtlSeconds, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("写入Redis用户缓存失败：{}", e.getMessage());
+        }
+    }
+
+    private void onEvict(String message) {
+        for (String key : message.split(",")) {
+            invalidate(key);
+        }
+    }
+
+    private void invalidate(String key) {
+        Loading current = loading.get(key);
+        if (current != null) {
+            current.stale = true;
+        }
+        localCache.remove(key);
+    }
+
+    private static User copy(User user) {
+        return BeanUtil.copyProperties(user, User.class);
+    }
+
+    private static List<String> keys(Long userId, String username) {
+        if (username == null) {
+            return List.of(ID_PREFIX + userId);
+        }
+        if (userId == null) {
+            return List.of(NAME_PREFIX + username);
+        }
+        return List.of(ID_PREFIX + userId, NAME_PREFIX + username);
+    }
+
+    private Counter counter(String level, String result) {
+        return Counter.builder("user.cache.gets")
+                .tag("level", level)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
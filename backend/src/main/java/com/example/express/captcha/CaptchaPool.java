@@ -0,0 +1,189 @@
+package com.example.express.captcha;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 验证码图片池
+ * 后台线程预先渲染验证码图片放入有界队列，请求线程只需取出一张；队列为空时才在请求线程上渲染。
+ * 字体、画布和编码缓冲区在每个渲染线程内复用
+ */
+@Slf4j
+@Component
+public class CaptchaPool {
+
+    private static final String CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+    private static final int CODE_LENGTH = 4;
+    private static final int WIDTH = 100;
+    private static final int HEIGHT = 40;
+    private static final Font FONT = new Font("Arial", Font.BOLD, 20);
+    private static final Color LINE_COLOR = new Color(160, 160, 160);
+    private static final String DATA_URI_PREFIX = "data:image/png;base64,";
+
+    /**
+     * 每个线程复用的画布和编码缓冲区
+     */
+    private static final ThreadLocal<Canvas> CANVAS = ThreadLocal.withInitial(Canvas::new);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.captcha.pool-size:200}")
+    private int poolSize;
+
+    @Value("${app.captcha.producer-threads:1}")
+    private int producerThreads;
+
+    private BlockingQueue<Captcha> pool;
+
+    private final List<Thread> producers = new ArrayList<>();
+
+    private volatile boolean running;
+
+    private Counter renderedCounter;
+    private Counter missCounter;
+    private Timer renderTimer;
+
+    /**
+     * 验证码：答案及PNG图片（data URI）
+     */
+    public record Captcha(String code, String image) {
+    }
+
+    private static final class Canvas {
+        private final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(2048);
+    }
+
+    @PostConstruct
+    public void start() {
+        // 不使用磁盘缓存，PNG直接在内存中编码
+        ImageIO.setUseCache(false);
+
+        pool = new ArrayBlockingQueue<>(poolSize);
+        renderedCounter = Counter.builder("captcha.pool.rendered").register(meterRegistry);
+        missCounter = Counter.builder("captcha.pool.misses")
+                .description("池为空时在请求线程上渲染的次数")
+                .register(meterRegistry);
+        renderTimer = Timer.builder("captcha.render.time").register(meterRegistry);
+        Gauge.builder("captcha.pool.size", pool, BlockingQueue::size).register(meterRegistry);
+
+        running = true;
+        for (int i = 0; i < producerThreads; i++) {
+            Thread producer = new Thread(this::produce, "captcha-producer-" + i);
+            producer.setDaemon(true);
+            producer.start();
+            producers.add(producer);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        producers.forEach(Thread::interrupt);
+    }
+
+    /**
+     * 取出一张验证码，池为空时当场渲染
+     */
+    public Captcha take() {
+        Captcha captcha = pool.poll();
+        if (captcha != null) {
+            return captcha;
+        }
+        missCounter.increment();
+        return render();
+    }
+
+    private void produce() {
+        while (running) {
+            try {
+                // 队列满时阻塞，取走一张即补一张
+                pool.put(render());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("预渲染验证码失败：{}", e.getMessage());
+            }
+        }
+    }
+
+    private Captcha render() {
+        long start = System.nanoTime();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        char[] code = new char[CODE_LENGTH];
+        for (int i = 0; i < CODE_LENGTH; i++) {
+            code[i] = CHARS.charAt(random.nextInt(CHARS.length()));
+        }
+
+        Canvas canvas = CANVAS.get();
+        Graphics2D g = canvas.image.createGraphics();
+        try {
+            // 背景
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, WIDTH, HEIGHT);
+            g.setFont(FONT);
+            g.setStroke(new BasicStroke(1f));
+
+            // 干扰线
+            g.setColor(LINE_COLOR);
+            for (int i = 0; i < 8; i++) {
+                g.drawLine(random.nextInt(WIDTH), random.nextInt(HEIGHT),
+                        random.nextInt(WIDTH), random.nextInt(HEIGHT));
+            }
+
+            // 噪点
+            for (int i = 0; i < 50; i++) {
+                g.setColor(new Color(random.nextInt(255), random.nextInt(255), random.nextInt(255)));
+                g.drawOval(random.nextInt(WIDTH), random.nextInt(HEIGHT), 1, 1);
+            }
+
+            // 验证码字符
+            for (int i = 0; i < CODE_LENGTH; i++) {
+                g.setColor(new Color(random.nextInt(100), random.nextInt(100), random.nextInt(100)));
+                g.drawString(String.valueOf(code[i]), 20 * i + 10, 25);
+            }
+        } finally {
+            g.dispose();
+        }
+
+        String image;
+        try {
+            canvas.buffer.reset();
+            ImageIO.write(canvas.image, "png", canvas.buffer);
+            image = DATA_URI_PREFIX + Base64.getEncoder().encodeToString(canvas.buffer.toByteArray());
+        } catch (IOException e) {
+            throw new IllegalStateException("生成验证码图片失败", e);
+        }
+
+        renderedCounter.increment();
+        renderTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return new Captcha(new String(code), image);
+    }
+}
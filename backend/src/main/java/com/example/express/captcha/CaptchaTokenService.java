@@ -0,0 +1,132 @@
+package com.example.express.captcha;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * 无状态验证码令牌（app.captcha.mode=token）
+ * 令牌格式为 base64url(随机数 | 过期时间) + "." + base64url(HMAC-SHA256(载荷 | 答案))，
+ * 签名中包含答案，令牌本身不泄露答案；签发和校验都不访问Redis。
+ * 已通过校验的令牌记入本地按时间分桶的布隆过滤器，同一节点上不能重复使用。
+ * 防重放只在节点内有效，多节点部署时同一令牌在有效期内最多可在每个节点各使用一次
+ */
+@Slf4j
+@Component
+public class CaptchaTokenService {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int NONCE_LENGTH = 12;
+    private static final int PAYLOAD_LENGTH = NONCE_LENGTH + Long.BYTES;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.captcha.token-secret:${jwt.secret}}")
+    private String secret;
+
+    @Value("${app.captcha.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${app.captcha.replay-expected-tokens:100000}")
+    private int expectedTokens;
+
+    @Value("${app.captcha.replay-false-positive-rate:0.0001}")
+    private double falsePositiveRate;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private SecretKeySpec key;
+
+    private ReplayGuard replayGuard;
+
+    @PostConstruct
+    public void init() {
+        key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+        replayGuard = new ReplayGuard(ttlSeconds * 1000, expectedTokens, falsePositiveRate);
+        log.info("验证码防重放过滤器：每桶{}位，{}个哈希函数", replayGuard.bitCount(), replayGuard.hashCount());
+    }
+
+    /**
+     * 签发包含答案摘要的验证码令牌
+     */
+    public String issue(String code) {
+        byte[] payload = new byte[PAYLOAD_LENGTH];
+        byte[] nonce = new byte[NONCE_LENGTH];
+        secureRandom.nextBytes(nonce);
+        ByteBuffer.wrap(payload)
+                .put(nonce)
+                .putLong(System.currentTimeMillis() + ttlSeconds * 1000);
+        return ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(sign(payload, code));
+    }
+
+    /**
+     * 校验令牌与用户输入的答案（不区分大小写），通过后令牌不能再次使用
+     */
+    public boolean verify(String token, String code) {
+        int dot = token.indexOf('.');
+        if (dot <= 0) {
+            return reject("invalid");
+        }
+
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = DECODER.decode(token.substring(0, dot));
+            signature = DECODER.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return reject("invalid");
+        }
+        if (payload.length != PAYLOAD_LENGTH) {
+            return reject("invalid");
+        }
+
+        long expiresAt = ByteBuffer.wrap(payload, NONCE_LENGTH, Long.BYTES).getLong();
+        if (expiresAt < System.currentTimeMillis()) {
+            return reject("expired");
+        }
+        if (!MessageDigest.isEqual(signature, sign(payload, code))) {
+            return reject("mismatch");
+        }
+
+        // 签名已验证，可直接作为布隆过滤器的哈希来源
+        ByteBuffer digest = ByteBuffer.wrap(signature);
+        if (!replayGuard.markUsed(expiresAt, digest.getLong(), digest.getLong())) {
+            return reject("replayed");
+        }
+        meterRegistry.counter("captcha.token.verify", "result", "ok").increment();
+        return true;
+    }
+
+    private byte[] sign(byte[] payload, String code) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            mac.update(payload);
+            return mac.doFinal(code.toUpperCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("验证码令牌签名失败", e);
+        }
+    }
+
+    private boolean reject(String reason) {
+        meterRegistry.counter("captcha.token.verify", "result", reason).increment();
+        return false;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.express.captcha;
+
+import java.util.Arrays;
+
+/**
+ * 按时间分桶的布隆过滤器，用于记录已使用过的验证码令牌
+ * 令牌按过期时间落入对应的时间桶，桶长度等于令牌有效期，因此同一时刻只有当前桶和下一个桶有效，
+ * 更早的桶中的令牌均已过期，整桶清空复用。
+ * 布隆过滤器可能误判（把未使用的令牌判为已使用），不会漏判；误判率由预期数量和目标误判率决定
+ */
+class ReplayGuard {
+
+    private static final int SLOTS = 3;
+
+    private final long bucketMillis;
+    private final int bitCount;
+    private final int hashCount;
+
+    private final long[][] bits = new long[SLOTS][];
+    private final long[] bucketIds = new long[SLOTS];
+
+    /**
+     * @param bucketMillis       时间桶长度（令牌有效期）
+     * @param expectedInsertions 每个时间桶预期的令牌数
+     * @param falsePositiveRate  目标误判率
+     */
+    ReplayGuard(long bucketMillis, int expectedInsertions, double falsePositiveRate) {
+        double ln2 = Math.log(2);
+        long m = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (ln2 * ln2));
+        this.bucketMillis = bucketMillis;
+        this.bitCount = (int) Math.max(64, Math.min(m, Integer.MAX_VALUE - 63));
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * ln2));
+        for (int i = 0; i < SLOTS; i++) {
+            bits[i] = new long[(bitCount + 63) / 64];
+            bucketIds[i] = -1;
+        }
+    }
+
+    /**
+     * 记录令牌
+     *
+     * @param expiresAt 令牌过期时间（毫秒）
+     * @param h1        令牌摘要的前64位
+     * @param h2        令牌摘要的后64位
+     * @return 首次出现返回true；已记录过（或误判）返回false
+     */
+    synchronized boolean markUsed(long expiresAt, long h1, long h2) {
+        long bucketId = expiresAt / bucketMillis;
+        int slot = (int) (bucketId % SLOTS);
+        if (bucketIds[slot] != bucketId) {
+            // 该槽位保存的是已整体过期的旧桶
+            Arrays.fill(bits[slot], 0L);
+            bucketIds[slot] = bucketId;
+        }
+
+        long[] words = bits[slot];
+        boolean added = false;
+        for (int i = 0; i < hashCount; i++) {
+            long combined = h1 + i * h2;
+            int index = (int) ((combined & Long.MAX_VALUE) % bitCount);
+            long mask = 1L << index;
+            int word = index >>> 6;
+            if ((words[word] & mask) == 0) {
+                words[word] |= mask;
+                added = true;
+            }
+        }
+        return added;
+    }
+
+    int bitCount() {
+        return bitCount;
+    }
+
+    int hashCount() {
+        return hashCount;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.express.common;
+
+/**
+ * 导出文件格式
+ */
+public enum ExportFormat {
+    CSV("csv", "text/csv"),
+    NDJSON("ndjson", "application/x-ndjson");
+
+    private final String extension;
+
+    private final String contentType;
+
+    ExportFormat(String extension, String contentType) {
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * 按名称（不区分大小写）解析导出格式
+     *
+     * @throws IllegalArgumentException 不支持的格式
+     */
+    public static ExportFormat from(String name) {
+        for (ExportFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("不支持的导出格式：" + name);
+    }
+}
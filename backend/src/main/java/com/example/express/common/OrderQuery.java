@@ -0,0 +1,28 @@
+package com.example.express.common;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * 订单查询条件（由请求参数绑定）
+ */
+@Data
+public class OrderQuery {
+    private String keyword; // 关键字：姓名、电话、地址
+
+    private Integer status; // 订单状态
+
+    private Long storeId; // 当前处理门店ID
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate startDate; // 创建日期起（含）
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate endDate; // 创建日期止（含）
+
+    public boolean hasKeyword() {
+        return keyword != null && !keyword.trim().isEmpty();
+    }
+}
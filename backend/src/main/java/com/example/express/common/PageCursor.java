@@ -0,0 +1,110 @@
+package com.example.express.common;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 键集分页游标
+ * 列表统一按(created_at, 主键)倒序排列，游标记录上一页最后一行的这两个值，
+ * 下一页以 created_at < ? OR (created_at = ? AND id < ?) 定位，翻到任意深度都只扫描一页数据。
+ * 对外以Base64编码的不透明字符串传递
+ */
+@Getter
+public class PageCursor {
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * 每页最多条数
+     */
+    public static final int MAX_SIZE = 100;
+
+    private final LocalDateTime createdAt;
+
+    private final long id;
+
+    public PageCursor(LocalDateTime createdAt, long id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    /**
+     * 解析游标，参数为空时返回null
+     *
+     * @throws IllegalArgumentException 游标格式无效
+     */
+    public static PageCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            int index = value.lastIndexOf(SEPARATOR);
+            return new PageCursor(LocalDateTime.parse(value.substring(0, index)),
+                    Long.parseLong(value.substring(index + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+    }
+
+    /**
+     * 校验页码和每页条数
+     *
+     * @throws IllegalArgumentException 页码小于1，或每页条数不在1~MAX_SIZE之间
+     */
+    public static void checkPage(Integer page, Integer size) {
+        if (page == null || page < 1) {
+            throw new IllegalArgumentException("页码必须大于0");
+        }
+        if (size == null || size < 1 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("每页条数必须在1~" + MAX_SIZE + "之间");
+        }
+    }
+
+    public String encode() {
+        String value = createdAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 为查询追加键集定位条件、排序，并多取一行用于判断是否还有下一页
+     *
+     * @param cursor   游标，为空时按offset定位（兼容page参数）
+     * @param idColumn 主键列名
+     * @param offset   无游标时跳过的行数
+     */
+    public static <T> void apply(QueryWrapper<T> queryWrapper, PageCursor cursor, String idColumn,
+                                 long offset, int size) {
+        if (offset < 0 || size < 1) {
+            throw new IllegalArgumentException("无效的分页参数");
+        }
+        if (cursor != null) {
+            queryWrapper.and(wrapper -> wrapper
+                    .lt("created_at", cursor.getCreatedAt())
+                    .or(w -> w.eq("created_at", cursor.getCreatedAt()).lt(idColumn, cursor.getId())));
+            offset = 0;
+        }
+        queryWrapper.orderByDesc("created_at").orderByDesc(idColumn);
+        queryWrapper.last(offset > 0 ? "LIMIT " + offset + ", " + (size + 1) : "LIMIT " + (size + 1));
+    }
+
+    /**
+     * 截掉多取的一行，返回下一页游标（没有下一页时返回null）
+     */
+    public static <T> String next(List<T> rows, int size, Function<T, LocalDateTime> createdAt,
+                                  Function<T, Long> id) {
+        if (rows.size() <= size) {
+            return null;
+        }
+        rows.subList(size, rows.size()).clear();
+        T last = rows.get(size - 1);
+        return new PageCursor(createdAt.apply(last), id.apply(last)).encode();
+    }
+}
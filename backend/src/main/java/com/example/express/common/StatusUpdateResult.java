@@ -0,0 +1,28 @@
+package com.example.express.common;
+
+import lombok.Getter;
+
+/**
+ * 订单状态变更结果
+ */
+@Getter
+public enum StatusUpdateResult {
+    SUCCESS(200, "订单状态更新成功"),
+    UNCHANGED(400, "订单已处于目标状态"),
+    INVALID_STATUS(400, "无效的目标状态"),
+    NOT_FOUND(404, "订单不存在"),
+    OPERATOR_NOT_FOUND(401, "操作人不存在"),
+    CONFLICT(409, "订单状态已被其他操作修改，请刷新后重试");
+
+    private final Integer code;
+    private final String message;
+
+    StatusUpdateResult(Integer code, String message) {
+        this.code = code;
+        this.message = message;
+    }
+
+    public boolean isSuccess() {
+        return this == SUCCESS;
+    }
+}
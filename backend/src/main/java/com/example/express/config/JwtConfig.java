@@ -1,9 +1,16 @@
 package com.example.express.config;
 
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.example.express.entity.User;
+import com.example.express.security.AuthenticatedUser;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -15,6 +22,7 @@ import java.util.function.Function;
 
 /**
  * JWT工具类，用于生成和验证JWT令牌
+ * 签名密钥和解析器在启动时创建一次；验签通过的令牌按摘要缓存其声明，缓存有效期不超过令牌的过期时间
  */
 @Component
 public class JwtConfig {
@@ -25,6 +33,46 @@ public class JwtConfig {
     @Value("${jwt.expiration}")
     private Long expiration;
 
+    @Value("${jwt.verified-cache-size:10000}")
+    private int verifiedCacheSize;
+
+    private Key signingKey;
+
+    private JwtParser jwtParser;
+
+    /**
+     * 已验证令牌的声明，键为令牌的SHA-256摘要
+     */
+    private LRUCache<String, Claims> verifiedTokens;
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        jwtParser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        verifiedTokens = CacheUtil.newLRUCache(verifiedCacheSize);
+    }
+
+    /**
+     * 验证令牌并返回其声明，每个令牌只需验签一次，之后在过期前直接读取缓存
+     *
+     * @throws io.jsonwebtoken.JwtException 令牌无效或已过期
+     */
+    public Claims parseToken(String token) {
+        String digest = DigestUtil.sha256Hex(token);
+        Claims claims = verifiedTokens.get(digest, false);
+        if (claims != null && (claims.getExpiration() == null || claims.getExpiration().after(new Date()))) {
+            return claims;
+        }
+
+        claims = jwtParser.parseClaimsJws(token).getBody();
+        long ttl = claims.getExpiration() == null ? expiration
+                : claims.getExpiration().getTime() - System.currentTimeMillis();
+        if (ttl > 0) {
+            verifiedTokens.put(digest, claims, ttl);
+        }
+        return claims;
+    }
+
     /**
      * 从令牌中获取用户名
      */
@@ -51,19 +99,7 @@ public class JwtConfig {
      * 从令牌中获取所有声明
      */
     private Claims getAllClaimsFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-
-    /**
-     * 获取签名密钥
-     */
-    private Key getSigningKey() {
-        byte[] keyBytes = secret.getBytes();
-        return Keys.hmacShaKeyFor(keyBytes);
+        return parseToken(token);
     }
 
     /**
@@ -75,12 +111,16 @@ public class JwtConfig {
     }
 
     /**
-     * 生成令牌
+     * 生成令牌，声明中携带用户ID、角色和所属门店
      */
-    public String generateToken(String username, String role) {
+    public String generateToken(User user) {
         Map<String, Object> claims = new HashMap<>();
-        claims.put("role", role);
-        return doGenerateToken(claims, username);
+        claims.put(AuthenticatedUser.CLAIM_USER_ID, user.getUserId());
+        claims.put(AuthenticatedUser.CLAIM_ROLE, user.getRole());
+        if (user.getStoreId() != null) {
+            claims.put(AuthenticatedUser.CLAIM_STORE_ID, user.getStoreId());
+        }
+        return doGenerateToken(claims, user.getUsername());
     }
 
     /**
@@ -95,7 +135,7 @@ public class JwtConfig {
                 .setSubject(subject)
                 .setIssuedAt(createdDate)
                 .setExpiration(expirationDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
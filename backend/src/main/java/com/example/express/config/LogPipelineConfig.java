@@ -0,0 +1,58 @@
+package com.example.express.config;
+
+import com.example.express.entity.OperationLog;
+import com.example.express.entity.OrderStatusLog;
+import com.example.express.mapper.OperationLogMapper;
+import com.example.express.mapper.OrderStatusLogMapper;
+import com.example.express.pipeline.WriteBehindQueue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 日志异步写入配置
+ * 操作日志和订单状态日志先进入有界队列，由后台线程按批次多行插入
+ */
+@Configuration
+public class LogPipelineConfig {
+
+    @Value("${app.log-pipeline.capacity:10000}")
+    private int capacity;
+
+    @Value("${app.log-pipeline.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.log-pipeline.flush-interval-ms:500}")
+    private long flushIntervalMs;
+
+    @Value("${app.log-pipeline.offer-timeout-ms:5}")
+    private long offerTimeoutMs;
+
+    @Value("${app.log-pipeline.spill-dir:logs/spill}")
+    private String spillDir;
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public WriteBehindQueue<OperationLog> operationLogQueue(OperationLogMapper operationLogMapper,
+                                                            ObjectMapper objectMapper,
+                                                            MeterRegistry meterRegistry) {
+        return new WriteBehindQueue<>("operation_log", OperationLog.class, operationLogMapper::insertBatch,
+                capacity, batchSize, flushIntervalMs, offerTimeoutMs, spillPath(), objectMapper, meterRegistry);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public WriteBehindQueue<OrderStatusLog> orderStatusLogQueue(OrderStatusLogMapper orderStatusLogMapper,
+                                                                ObjectMapper objectMapper,
+                                                                MeterRegistry meterRegistry) {
+        return new WriteBehindQueue<>("order_status_log", OrderStatusLog.class, orderStatusLogMapper::insertBatch,
+                capacity, batchSize, flushIntervalMs, offerTimeoutMs, spillPath(), objectMapper, meterRegistry);
+    }
+
+    private Path spillPath() {
+        return Paths.get(spillDir);
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.express.config;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -20,6 +21,7 @@ import java.util.Arrays;
 
 import com.example.express.security.JwtAuthenticationFilter;
 import com.example.express.security.JwtAuthenticationEntryPoint;
+import com.example.express.ratelimit.RateLimitFilter;
 
 /**
  * Spring Security 配置类
@@ -35,6 +37,9 @@ public class SecurityConfig {
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
@@ -50,6 +55,8 @@ public class SecurityConfig {
                         .requestMatchers("/api/auth/captcha").permitAll()
                         .requestMatchers("/api/public/**").permitAll()
                         .requestMatchers("/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .requestMatchers("/api/users/**").hasRole("ADMIN")
                         .requestMatchers("/api/staff/**").hasRole("ADMIN")
                         .requestMatchers("/api/stores/**").hasAnyRole("ADMIN", "STAFF")
@@ -57,7 +64,9 @@ public class SecurityConfig {
                         .requestMatchers("/api/staff-work-logs/**").hasAnyRole("ADMIN", "STAFF")
                         .requestMatchers("/api/operation-logs/**").hasAnyRole("ADMIN", "STAFF")
                         .anyRequest().authenticated())
-                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                // 认证之后限流，按用户限流的规则才能取到登录用户
+                .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
@@ -75,6 +84,16 @@ public class SecurityConfig {
         return source;
     }
 
+    /**
+     * 限流过滤器只在安全过滤器链中执行，不再由Servlet容器单独注册
+     */
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilterRegistration(RateLimitFilter filter) {
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
     @Bean
     public AuthenticationManager authenticationManager(AuthenticationConfiguration authConfig) throws Exception {
         return authConfig.getAuthenticationManager();
@@ -70,10 +70,10 @@ public class AuthController {
             
             // 更新最后登录时间
             user.setLastLogin(LocalDateTime.now());
-            userService.updateUser(user);
+            userService.updateLastLogin(user.getUserId(), user.getUsername(), user.getLastLogin());
             
             // 生成JWT令牌
-            String jwt = jwtConfig.generateToken(username, user.getRole());
+            String jwt = jwtConfig.generateToken(user);
             
             Map<String, Object> data = new HashMap<>();
             data.put("token", jwt);
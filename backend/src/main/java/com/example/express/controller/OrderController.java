@@ -1,19 +1,45 @@
 package com.example.express.controller;
 
+import com.example.express.annotation.CachedResponse;
 import com.example.express.annotation.OperationLogAnnotation;
 import com.example.express.common.ApiResponse;
+import com.example.express.common.ExportFormat;
+import com.example.express.common.OrderQuery;
+import com.example.express.common.PageCursor;
+import com.example.express.common.StatusUpdateResult;
 import com.example.express.entity.Order;
+import com.example.express.export.OrderExportLimiter;
+import com.example.express.importer.OrderImportJob;
+import com.example.express.importer.OrderImportService;
+import com.example.express.outbox.OrderOutboxRelay;
+import com.example.express.search.OrderSearchService;
+import com.example.express.security.AuthenticatedUser;
 import com.example.express.service.OrderService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * 订单控制器，处理订单相关请求
@@ -22,35 +48,118 @@ import java.util.Map;
 @RequestMapping("/api/orders")
 public class OrderController {
 
+    /**
+     * 订单状态选项（供前端下拉菜单使用）
+     */
+    private static final List<Map<String, Object>> STATUS_OPTIONS = List.of(
+            statusOption(0, "已创建"),
+            statusOption(1, "已揽收"),
+            statusOption(2, "运输中"),
+            statusOption(3, "派送中"),
+            statusOption(4, "已签收"));
+
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private OrderSearchService orderSearchService;
+
+    @Autowired
+    private OrderOutboxRelay orderOutboxRelay;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderImportService orderImportService;
+
+    @Autowired
+    private OrderExportLimiter orderExportLimiter;
+
+    @Value("${app.order.batch-max-items:5000}")
+    private int batchMaxItems;
+
     /**
      * 创建订单
      */
     @PostMapping
     @OperationLogAnnotation(operationType = "创建订单")
-    public ApiResponse createOrder(@RequestBody Order order) {
+    public ApiResponse createOrder(@RequestBody Order order, @AuthenticationPrincipal AuthenticatedUser user) {
         if (order == null) {
             return ApiResponse.badRequest("订单信息不能为空");
         }
 
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
+        String error = order.validate();
+        if (error != null) {
+            return ApiResponse.badRequest(error);
+        }
 
-        Order createdOrder = orderService.createOrder(order, username);
+        Order createdOrder = orderService.createOrder(order, user);
         return ApiResponse.success("订单创建成功", createdOrder);
     }
 
+    /**
+     * 批量创建订单（JSON数组）
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @OperationLogAnnotation(operationType = "创建订单")
+    public ApiResponse createOrders(@RequestBody List<Order> orders,
+                                    @AuthenticationPrincipal AuthenticatedUser user) {
+        if (orders == null || orders.isEmpty()) {
+            return ApiResponse.badRequest("订单列表不能为空");
+        }
+        if (orders.size() > batchMaxItems) {
+            return ApiResponse.badRequest("单次最多提交" + batchMaxItems + "个订单");
+        }
+
+        Map<String, Object> result = orderService.createOrders(orders, user);
+        return ApiResponse.success("批量创建完成", result);
+    }
+
+    /**
+     * 批量创建订单（NDJSON，每行一个订单）
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @OperationLogAnnotation(operationType = "创建订单")
+    @SuppressWarnings("unchecked")
+    public ApiResponse createOrdersFromNdjson(HttpServletRequest request,
+                                              @AuthenticationPrincipal AuthenticatedUser user) throws IOException {
+        List<Order> orders = new ArrayList<>();
+        Map<Integer, String> parseErrors = new HashMap<>();
+
+        BufferedReader reader = request.getReader();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            if (orders.size() >= batchMaxItems) {
+                return ApiResponse.badRequest("单次最多提交" + batchMaxItems + "个订单");
+            }
+            try {
+                orders.add(objectMapper.readValue(line, Order.class));
+            } catch (IOException e) {
+                // 解析失败的行以null占位，保证结果下标与输入行一致
+                parseErrors.put(orders.size(), "JSON格式错误");
+                orders.add(null);
+            }
+        }
+        if (orders.isEmpty()) {
+            return ApiResponse.badRequest("订单列表不能为空");
+        }
+
+        Map<String, Object> result = orderService.createOrders(orders, user);
+        List<Map<String, Object>> results = (List<Map<String, Object>>) result.get("results");
+        parseErrors.forEach((index, message) -> results.get(index).put("message", message));
+        return ApiResponse.success("批量创建完成", result);
+    }
+
     /**
      * 获取当前用户的订单列表
      */
     @GetMapping("/my")
-    public ApiResponse getMyOrders() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-
-        List<Order> orders = orderService.getOrdersByUsername(username);
+    public ApiResponse getMyOrders(@AuthenticationPrincipal AuthenticatedUser user) {
+        List<Order> orders = orderService.getOrdersByUser(user);
         return ApiResponse.success(orders);
     }
 
@@ -58,15 +167,12 @@ public class OrderController {
      * 获取订单详情
      */
     @GetMapping("/{orderId}")
-    public ApiResponse getOrderDetail(@PathVariable Long orderId) {
+    public ApiResponse getOrderDetail(@PathVariable Long orderId, @AuthenticationPrincipal AuthenticatedUser user) {
         if (orderId == null) {
             return ApiResponse.badRequest("订单ID不能为空");
         }
 
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-
-        Order order = orderService.getOrderDetail(orderId, username);
+        Order order = orderService.getOrderDetail(orderId, user);
         if (order == null) {
             return ApiResponse.notFound("订单不存在或无权查看");
         }
@@ -78,8 +184,8 @@ public class OrderController {
      */
     @PutMapping("/{orderId}/status")
     @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
-    @OperationLogAnnotation(operationType = "更新订单状态")
-    public ApiResponse updateOrderStatus(@PathVariable Long orderId, @RequestBody Map<String, String> statusMap) {
+    public ApiResponse updateOrderStatus(@PathVariable Long orderId, @RequestBody Map<String, String> statusMap,
+                                         @AuthenticationPrincipal AuthenticatedUser user) {
         if (orderId == null) {
             return ApiResponse.badRequest("订单ID不能为空");
         }
@@ -90,32 +196,181 @@ public class OrderController {
         }
 
         Integer targetStatus;
+        Integer expectedStatus = null;
         try {
             targetStatus = Integer.parseInt(statusStr);
+            String expectedStr = statusMap.get("expectedStatus");
+            if (expectedStr != null) {
+                expectedStatus = Integer.parseInt(expectedStr);
+            }
         } catch (NumberFormatException e) {
             return ApiResponse.badRequest("状态参数格式错误");
         }
 
-        boolean success = orderService.updateOrderStatus(orderId, targetStatus);
-        if (!success) {
-            return ApiResponse.error("订单状态更新失败");
+        StatusUpdateResult result = orderService.updateOrderStatus(orderId, targetStatus, expectedStatus, user);
+        if (!result.isSuccess()) {
+            return ApiResponse.error(result.getCode(), result.getMessage());
+        }
+        return ApiResponse.success(result.getMessage());
+    }
+
+    /**
+     * 批量更新订单状态（门店整批扫描，仅管理员和员工可操作）
+     */
+    @PutMapping("/batch/status")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
+    public ApiResponse batchUpdateOrderStatus(@RequestBody Map<String, Object> request,
+                                              @AuthenticationPrincipal AuthenticatedUser user) {
+        Object rawIds = request.get("orderIds");
+        if (!(rawIds instanceof List<?> idList) || idList.isEmpty()) {
+            return ApiResponse.badRequest("订单ID列表不能为空");
+        }
+        if (idList.size() > batchMaxItems) {
+            return ApiResponse.badRequest("单次最多提交" + batchMaxItems + "个订单");
+        }
+
+        List<Long> orderIds = new ArrayList<>(idList.size());
+        Integer targetStatus;
+        Long storeId = null;
+        try {
+            for (Object id : idList) {
+                orderIds.add(Long.valueOf(String.valueOf(id)));
+            }
+            targetStatus = Integer.valueOf(String.valueOf(request.get("status")));
+            if (request.get("storeId") != null) {
+                storeId = Long.valueOf(String.valueOf(request.get("storeId")));
+            }
+        } catch (NumberFormatException e) {
+            return ApiResponse.badRequest("参数格式错误");
+        }
+        if (targetStatus < 0 || targetStatus > 4) {
+            return ApiResponse.badRequest("无效的目标状态：" + targetStatus);
         }
-        return ApiResponse.success("订单状态更新成功");
+
+        Map<String, Object> result = orderService.batchUpdateOrderStatus(orderIds, targetStatus, storeId, user);
+        return ApiResponse.success("批量更新完成", result);
     }
 
     /**
      * 获取所有订单（仅管理员和员工可操作）
+     * 支持page/size按页查询，也可传入上一页返回的nextCursor继续向后翻页
      */
     @GetMapping("/list")
     @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
     public ApiResponse getAllOrders(
-            @RequestParam(required = false) String keyword,
+            OrderQuery query,
             @RequestParam(defaultValue = "1") Integer page,
-            @RequestParam(defaultValue = "10") Integer size) {
-        Map<String, Object> result = orderService.getAllOrders(keyword, page, size);
+            @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") boolean withTotal) {
+        PageCursor pageCursor;
+        try {
+            PageCursor.checkPage(page, size);
+            pageCursor = PageCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.badRequest(e.getMessage());
+        }
+        // 深分页在ES和MySQL上代价都很高，超出检索窗口后只能使用游标
+        if (pageCursor == null && (long) page * size > OrderSearchService.MAX_RESULT_WINDOW) {
+            return ApiResponse.badRequest("页码过大，超过 " + OrderSearchService.MAX_RESULT_WINDOW + " 条请使用nextCursor继续翻页");
+        }
+        Map<String, Object> result = orderService.getAllOrders(query, page, size, pageCursor, withTotal);
         return ApiResponse.success(result);
     }
 
+    /**
+     * 流式导出订单（仅管理员和员工可操作）
+     * 支持按状态、门店、创建日期范围筛选，格式为csv或ndjson，gzip=true时输出gzip压缩文件
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
+    public ResponseEntity<?> exportOrders(
+            OrderQuery query,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.from(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.badRequest(e.getMessage()));
+        }
+
+        // 每个导出在下载期间占用一个数据库连接，名额已满时直接拒绝
+        if (!orderExportLimiter.tryAcquire()) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body(ApiResponse.error(HttpStatus.TOO_MANY_REQUESTS.value(), "正在进行的导出过多，请稍后再试"));
+        }
+
+        String filename = "orders-" + LocalDate.now() + "." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+        StreamingResponseBody body = out -> {
+            try {
+                if (gzip) {
+                    try (GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024)) {
+                        orderService.exportOrders(query, exportFormat, gzipOut);
+                    }
+                } else {
+                    orderService.exportOrders(query, exportFormat, out);
+                }
+            } finally {
+                orderExportLimiter.release();
+            }
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(filename).build().toString())
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip")
+                        : MediaType.parseMediaType(exportFormat.getContentType() + ";charset=UTF-8"))
+                .body(body);
+    }
+
+    /**
+     * 从CSV文件批量导入订单（仅管理员和员工可操作）
+     * 文件须包含表头，必填列sender_info、receiver_info、item_type，可选列current_store_id；
+     * 立即返回任务ID，后台处理，进度和错误报告通过任务ID查询
+     */
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
+    @OperationLogAnnotation(operationType = "创建订单")
+    public ApiResponse importOrders(@RequestParam("file") MultipartFile file,
+                                    @AuthenticationPrincipal AuthenticatedUser user) throws IOException {
+        OrderImportJob job;
+        try {
+            job = orderImportService.startImport(file, user);
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.badRequest(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ApiResponse.error(e.getMessage());
+        }
+        return ApiResponse.success("导入任务已提交", job.toMap());
+    }
+
+    /**
+     * 查询订单导入任务的进度和错误报告（管理员可查询所有任务，其他用户只能查询自己提交的任务）
+     */
+    @GetMapping("/import/{jobId}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
+    public ApiResponse getImportJob(@PathVariable String jobId, @AuthenticationPrincipal AuthenticatedUser user) {
+        OrderImportJob job = orderImportService.getJob(jobId);
+        if (job == null || !(user.isAdmin() || user.getUserId().equals(job.getOwnerId()))) {
+            return ApiResponse.notFound("导入任务不存在或已过期");
+        }
+        return ApiResponse.success(job.toMap());
+    }
+
+    /**
+     * 全量重建订单搜索索引（仅管理员可操作）
+     */
+    @PostMapping("/search-index/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ApiResponse rebuildSearchIndex() {
+        if (!orderSearchService.isAvailable()) {
+            return ApiResponse.error("搜索服务不可用");
+        }
+        long indexed = orderOutboxRelay.backfill(OrderSearchService.CONSUMER_NAME);
+        return ApiResponse.success("索引重建完成", indexed);
+    }
+
     /**
      * 删除订单（仅管理员可操作）
      */
@@ -139,6 +394,7 @@ public class OrderController {
      */
     @GetMapping("/stats")
     @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
+    @CachedResponse(ttlMs = 5000)
     public ApiResponse getOrderStats() {
         Map<String, Object> stats = orderService.getOrderStats();
         return ApiResponse.success(stats);
@@ -149,6 +405,7 @@ public class OrderController {
      */
     @GetMapping("/recent")
     @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
+    @CachedResponse(ttlMs = 2000)
     public ApiResponse getRecentOrders() {
         List<Order> recentOrders = orderService.getRecentOrders();
         return ApiResponse.success(recentOrders);
@@ -159,35 +416,18 @@ public class OrderController {
      */
     @GetMapping("/status-options")
     @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
+    @CachedResponse(constant = true, roleAware = false)
     public ApiResponse getOrderStatusOptions() {
-        List<Map<String, Object>> statusOptions = new ArrayList<>();
-
-        // 添加所有可能的订单状态
-        Map<String, Object> option0 = new HashMap<>();
-        option0.put("value", 0);
-        option0.put("label", "已创建");
-        statusOptions.add(option0);
-
-        Map<String, Object> option1 = new HashMap<>();
-        option1.put("value", 1);
-        option1.put("label", "已揽收");
-        statusOptions.add(option1);
-
-        Map<String, Object> option2 = new HashMap<>();
-        option2.put("value", 2);
-        option2.put("label", "运输中");
-        statusOptions.add(option2);
-
-        Map<String, Object> option3 = new HashMap<>();
-        option3.put("value", 3);
-        option3.put("label", "派送中");
-        statusOptions.add(option3);
-
-        Map<String, Object> option4 = new HashMap<>();
-        option4.put("value", 4);
-        option4.put("label", "已签收");
-        statusOptions.add(option4);
-
-        return ApiResponse.success(statusOptions);
+        return ApiResponse.success(STATUS_OPTIONS);
+    }
+
+    /**
+     * 字段顺序固定，各节点序列化结果一致，ETag相同
+     */
+    private static Map<String, Object> statusOption(int value, String label) {
+        Map<String, Object> option = new LinkedHashMap<>();
+        option.put("value", value);
+        option.put("label", label);
+        return Collections.unmodifiableMap(option);
     }
 }
\ No newline at end of file
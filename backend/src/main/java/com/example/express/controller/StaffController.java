@@ -1,8 +1,10 @@
 package com.example.express.controller;
 
 import com.example.express.common.ApiResponse;
+import com.example.express.common.PageCursor;
 import com.example.express.entity.Staff;
 import com.example.express.service.StaffService;
+import com.example.express.annotation.CachedResponse;
 import com.example.express.annotation.OperationLogAnnotation;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -25,7 +27,7 @@ public class StaffController {
      * 创建员工
      */
     @PostMapping
-    @OperationLogAnnotation(operationType = "创建员工")
+    @OperationLogAnnotation(operationType = "员工管理")
     public ApiResponse<Staff> createStaff(@RequestBody Staff staff) {
         Staff createdStaff = staffService.createStaff(staff);
         return ApiResponse.success(createdStaff);
@@ -35,7 +37,7 @@ public class StaffController {
      * 更新员工信息
      */
     @PutMapping("/{staffId}")
-    @OperationLogAnnotation(operationType = "更新员工信息")
+    @OperationLogAnnotation(operationType = "员工管理")
     public ApiResponse<Staff> updateStaff(@PathVariable Long staffId, @RequestBody Staff staff) {
         staff.setStaffId(staffId);
         Staff updatedStaff = staffService.updateStaff(staff);
@@ -56,12 +58,22 @@ public class StaffController {
 
     /**
      * 获取所有员工（分页）
+     * 支持page/size按页查询，也可传入上一页返回的nextCursor继续向后翻页
      */
     @GetMapping
     public ApiResponse<Map<String, Object>> getAllStaffs(
             @RequestParam(defaultValue = "1") Integer page,
-            @RequestParam(defaultValue = "10") Integer size) {
-        Map<String, Object> staffs = staffService.getAllStaffs(page, size);
+            @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") boolean withTotal) {
+        PageCursor pageCursor;
+        try {
+            PageCursor.checkPage(page, size);
+            pageCursor = PageCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.badRequest(e.getMessage());
+        }
+        Map<String, Object> staffs = staffService.getAllStaffs(page, size, pageCursor, withTotal);
         return ApiResponse.success(staffs);
     }
 
@@ -69,7 +81,7 @@ public class StaffController {
      * 删除员工
      */
     @DeleteMapping("/{staffId}")
-    @OperationLogAnnotation(operationType = "删除员工")
+    @OperationLogAnnotation(operationType = "员工管理")
     public ApiResponse<Boolean> deleteStaff(@PathVariable Long staffId) {
         boolean result = staffService.deleteStaff(staffId);
         if (!result) {
@@ -82,6 +94,7 @@ public class StaffController {
      * 获取员工统计数据
      */
     @GetMapping("/stats")
+    @CachedResponse(ttlMs = 30000, roleAware = false)
     public ApiResponse<Map<String, Object>> getStaffStats() {
         Map<String, Object> stats = staffService.getStaffStats();
         return ApiResponse.success(stats);
@@ -1,12 +1,17 @@
 package com.example.express.controller;
 
+import com.example.express.cache.StoreCatalog;
 import com.example.express.common.ApiResponse;
 import com.example.express.entity.Store;
+import com.example.express.geo.StoreDistance;
 import com.example.express.service.StoreService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 门店管理控制器
@@ -18,22 +23,91 @@ public class StoreController {
     @Autowired
     private StoreService storeService;
 
+    @Value("${app.distance-matrix.neighbors:20}")
+    private int maxNeighbors;
+
+    @Value("${app.distance-matrix.max-query-stores:200}")
+    private int maxDistanceStores;
+
     /**
      * 获取所有门店
+     * 门店目录未变化（If-None-Match与ETag一致）时返回304，不返回响应体
      */
     @GetMapping
-    public ApiResponse<List<Store>> getAllStores() {
-        List<Store> stores = storeService.getAllStores();
-        return ApiResponse.success(stores);
+    public ApiResponse<List<Store>> getAllStores(WebRequest webRequest) {
+        StoreCatalog.Snapshot catalog = storeService.getStoreCatalog();
+        String etag = catalog.etag();
+        if (etag != null && webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return ApiResponse.success(catalog.stores());
+    }
+
+    /**
+     * 查询距离指定坐标最近的营业门店（按距离升序）
+     */
+    @GetMapping("/nearest")
+    public ApiResponse<List<StoreDistance>> getNearestStores(@RequestParam double lng,
+                                                             @RequestParam double lat,
+                                                             @RequestParam(defaultValue = "5") int k,
+                                                             @RequestParam(required = false) Double radiusKm) {
+        if (lng < -180 || lng > 180 || lat < -90 || lat > 90) {
+            return ApiResponse.badRequest("经纬度超出范围");
+        }
+        if (k < 1 || k > 100) {
+            return ApiResponse.badRequest("k必须在1到100之间");
+        }
+        if (radiusKm != null && radiusKm <= 0) {
+            return ApiResponse.badRequest("查询半径必须大于0");
+        }
+        return ApiResponse.success(storeService.findNearestStores(lng, lat, k, radiusKm));
+    }
+
+    /**
+     * 指定门店之间的距离矩阵（公里，未知距离为null），结果大小为门店数的平方，门店数有上限
+     */
+    @GetMapping("/distances")
+    public ApiResponse<Map<String, Object>> getStoreDistances(@RequestParam(required = false) List<Long> storeIds) {
+        if (storeIds == null || storeIds.isEmpty()) {
+            return ApiResponse.badRequest("请指定门店");
+        }
+        if (storeIds.size() > maxDistanceStores) {
+            return ApiResponse.badRequest("一次最多查询" + maxDistanceStores + "个门店之间的距离");
+        }
+        Map<String, Object> result = storeService.getStoreDistances(storeIds);
+        if (result == null) {
+            return ApiResponse.badRequest("门店不存在");
+        }
+        return ApiResponse.success(result);
+    }
+
+    /**
+     * 查询距离指定门店最近的门店（按距离升序）
+     */
+    @GetMapping("/{storeId}/neighbors")
+    public ApiResponse<List<StoreDistance>> getNeighborStores(@PathVariable Long storeId,
+                                                              @RequestParam(defaultValue = "5") int k) {
+        if (k < 1 || k > maxNeighbors) {
+            return ApiResponse.badRequest("k必须在1到" + maxNeighbors + "之间");
+        }
+        List<StoreDistance> neighbors = storeService.findNeighborStores(storeId, k);
+        if (neighbors == null) {
+            return ApiResponse.notFound("门店不存在");
+        }
+        return ApiResponse.success(neighbors);
     }
 
     /**
      * 获取门店详情
      */
     @GetMapping("/{storeId}")
-    public ApiResponse<Store> getStoreDetail(@PathVariable Long storeId) {
-        Store store = storeService.getStoreDetail(storeId);
-        return ApiResponse.success(store);
+    public ApiResponse<Store> getStoreDetail(@PathVariable Long storeId, WebRequest webRequest) {
+        StoreCatalog.Snapshot catalog = storeService.getStoreCatalog();
+        String etag = catalog.etag(storeId);
+        if (etag != null && webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return ApiResponse.success(catalog.get(storeId));
     }
 
     /**
@@ -1,9 +1,8 @@
 package com.example.express.controller;
 
-import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.example.express.annotation.OperationLogAnnotation;
 import com.example.express.common.ApiResponse;
+import com.example.express.common.PageCursor;
 import com.example.express.entity.User;
 import com.example.express.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,7 +11,6 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -31,6 +29,7 @@ public class UserController {
 
     /**
      * 获取用户列表
+     * 支持page/size按页查询，也可传入上一页返回的nextCursor继续向后翻页
      */
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -38,28 +37,19 @@ public class UserController {
             @RequestParam(value = "page", defaultValue = "1") Integer page,
             @RequestParam(value = "size", defaultValue = "10") Integer size,
             @RequestParam(value = "username", required = false) String username,
-            @RequestParam(value = "role", required = false) String role) {
-
-        // 构建查询条件
-        QueryWrapper<User> queryWrapper = new QueryWrapper<>();
-        if (username != null && !username.isEmpty()) {
-            queryWrapper.like("username", username);
-        }
-        if (role != null && !role.isEmpty()) {
-            queryWrapper.eq("role", role);
+            @RequestParam(value = "role", required = false) String role,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "withTotal", defaultValue = "true") boolean withTotal) {
+
+        PageCursor pageCursor;
+        try {
+            PageCursor.checkPage(page, size);
+            pageCursor = PageCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.badRequest(e.getMessage());
         }
 
-        // 按创建时间降序排序
-        queryWrapper.orderByDesc("created_at");
-
-        // 分页查询
-        Page<User> pageResult = userService.page(new Page<>(page, size), queryWrapper);
-
-        // 返回结果
-        Map<String, Object> data = new HashMap<>();
-        data.put("total", pageResult.getTotal());
-        data.put("list", pageResult.getRecords());
-
+        Map<String, Object> data = userService.getUserList(username, role, page, size, pageCursor, withTotal);
         return ApiResponse.success(data);
     }
 
@@ -104,16 +94,11 @@ public class UserController {
             return ApiResponse.error("状态值无效");
         }
 
-        // 获取用户
-        User user = userService.getById(userId);
-        if (user == null) {
+        // 更新状态
+        if (!userService.updateStatus(userId, status)) {
             return ApiResponse.error("用户不存在");
         }
 
-        // 更新状态
-        user.setStatus(status);
-        userService.updateUser(user);
-
         return ApiResponse.success("用户状态更新成功");
     }
 
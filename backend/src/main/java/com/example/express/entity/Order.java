@@ -1,14 +1,24 @@
 package com.example.express.entity;
 
+import cn.hutool.json.JSONUtil;
 import com.baomidou.mybatisplus.annotation.*;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import lombok.Data;
 
 import java.time.LocalDateTime;
+import java.util.Set;
 
 @Data
 @TableName("express_order")
 public class Order {
+    /**
+     * 物品类型，与express_order.item_type的ENUM定义保持一致
+     */
+    public static final Set<String> ITEM_TYPES = Set.of("电器", "玻璃", "陶瓷");
+
     @TableId(type = IdType.INPUT) // 使用雪花算法生成ID
+    @JsonSerialize(using = ToStringSerializer.class) // 雪花ID超出JS安全整数范围，序列化为字符串
     private Long orderId;
 
     private String senderInfo; // JSON格式存储寄件人信息
@@ -29,6 +39,24 @@ public class Order {
     @TableField(fill = FieldFill.INSERT_UPDATE)
     private LocalDateTime updatedAt;
 
+    /**
+     * 校验创建订单所需的字段
+     *
+     * @return 校验失败原因，校验通过返回null
+     */
+    public String validate() {
+        if (senderInfo == null || !JSONUtil.isTypeJSONObject(senderInfo)) {
+            return "寄件人信息格式错误";
+        }
+        if (receiverInfo == null || !JSONUtil.isTypeJSONObject(receiverInfo)) {
+            return "收件人信息格式错误";
+        }
+        if (itemType == null || !ITEM_TYPES.contains(itemType)) {
+            return "无效的物品类型：" + itemType;
+        }
+        return null;
+    }
+
     public String canTransitTo(Integer targetStatus) {
         // 检查目标状态是否在有效范围内
         if (targetStatus < 0 || targetStatus > 4) {
@@ -0,0 +1,41 @@
+package com.example.express.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 订单变更事件（事务性发件箱）
+ * 与订单数据在同一事务中写入，由后台中继投递给搜索索引、统计、缓存等下游
+ */
+@Data
+@TableName("order_outbox")
+public class OrderOutbox {
+  public static final String CREATE = "CREATE";
+  public static final String UPDATE = "UPDATE";
+  public static final String DELETE = "DELETE";
+
+  @TableId(type = IdType.AUTO)
+  private Long eventId;
+  private Long orderId;
+  private String eventType; // CREATE/UPDATE/DELETE
+  private Integer oldStatus; // 变更前状态（创建时为空）
+  private Integer newStatus; // 变更后状态（删除时为空）
+  private Long storeId; // 变更后订单所在门店
+  private LocalDateTime createdAt;
+
+  public static OrderOutbox of(String eventType, Long orderId, Integer oldStatus, Integer newStatus,
+      Long storeId) {
+    OrderOutbox event = new OrderOutbox();
+    event.setEventType(eventType);
+    event.setOrderId(orderId);
+    event.setOldStatus(oldStatus);
+    event.setNewStatus(newStatus);
+    event.setStoreId(storeId);
+    event.setCreatedAt(LocalDateTime.now());
+    return event;
+  }
+}
@@ -10,7 +10,7 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Data
-@TableName("store")
+@TableName(value = "store", autoResultMap = true)
 public class Store {
     @TableId(type = IdType.AUTO)
     private Long storeId;
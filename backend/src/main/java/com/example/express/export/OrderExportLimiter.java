@@ -0,0 +1,37 @@
+package com.example.express.export;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * 订单导出并发限制
+ * 每个导出在整个下载期间占用一个数据库连接（流式游标），同时进行的导出数受限，避免慢速下载耗尽连接池。
+ * 名额须在开始输出响应之前占用，以便名额已满时仍能返回429
+ */
+@Component
+public class OrderExportLimiter {
+
+    @Value("${app.order-export.max-concurrent:2}")
+    private int maxConcurrent;
+
+    private Semaphore permits;
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * 占用一个导出名额，名额已满时返回false；返回true时须在导出结束后调用release
+     */
+    public boolean tryAcquire() {
+        return permits.tryAcquire();
+    }
+
+    public void release() {
+        permits.release();
+    }
+}
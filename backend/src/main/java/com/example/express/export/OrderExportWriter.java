@@ -0,0 +1,122 @@
+package com.example.express.export;
+
+import com.example.express.common.ExportFormat;
+import com.example.express.entity.Order;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+
+/**
+ * 订单导出写入器：逐行写出CSV或NDJSON，不在内存中累积数据
+ */
+public class OrderExportWriter implements Closeable {
+
+    private static final String[] CSV_HEADER = {
+            "order_id", "status", "status_text", "item_type", "current_store_id", "created_by",
+            "created_at", "updated_at", "sender_info", "receiver_info"
+    };
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final ExportFormat format;
+
+    private final ObjectMapper objectMapper;
+
+    private final Writer writer;
+
+    private long rows;
+
+    public OrderExportWriter(ExportFormat format, ObjectMapper objectMapper, OutputStream out) throws IOException {
+        this.format = format;
+        this.objectMapper = objectMapper;
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        if (format == ExportFormat.CSV) {
+            // UTF-8 BOM，便于Excel正确识别中文
+            writer.write('\uFEFF');
+            writeCsvRow(CSV_HEADER);
+        }
+    }
+
+    public void write(Order order) throws IOException {
+        if (format == ExportFormat.NDJSON) {
+            writer.write(objectMapper.writeValueAsString(order));
+            writer.write('\n');
+        } else {
+            writeCsvRow(new String[] {
+                    String.valueOf(order.getOrderId()),
+                    toString(order.getStatus()),
+                    order.getStatus() == null ? "" : order.getStatusText(),
+                    toString(order.getItemType()),
+                    toString(order.getCurrentStoreId()),
+                    toString(order.getCreatedBy()),
+                    format(order.getCreatedAt()),
+                    format(order.getUpdatedAt()),
+                    toString(order.getSenderInfo()),
+                    toString(order.getReceiverInfo())
+            });
+        }
+        rows++;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * 刷出缓冲区；不关闭底层输出流，由调用方负责
+     */
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+    }
+
+    private void writeCsvRow(String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeCsvField(values[i]);
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * 含逗号、引号或换行的字段加引号，字段内的引号写两次
+     */
+    private void writeCsvField(String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private static String toString(Object value) {
+        return value == null ? "" : value.toString();
+    }
+
+    private static String format(TemporalAccessor value) {
+        return value == null ? "" : DATE_TIME.format(value);
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.express.geo;
+
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.example.express.util.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 高德距离测量客户端
+ * 一次请求计算多个起点到同一终点的距离（高德每次最多100个起点），超出时分多次请求；
+ * 请求有超时，连续失败后熔断
+ */
+@Component
+public class AmapDistanceClient {
+
+    /**
+     * 高德距离测量每次最多的起点数
+     */
+    private static final int MAX_ORIGINS = 100;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.amap.key:}")
+    private String key;
+
+    @Value("${app.amap.distance-url:https://restapi.amap.com/v3/distance}")
+    private String distanceUrl;
+
+    /**
+     * 距离类型：0-直线距离，1-驾车导航距离
+     */
+    @Value("${app.amap.distance.type:1}")
+    private int type;
+
+    @Value("${app.amap.distance.timeout-ms:3000}")
+    private long timeoutMs;
+
+    @Value("${app.amap.distance.breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${app.amap.distance.breaker.open-ms:60000}")
+    private long breakerOpenMs;
+
+    private HttpClient httpClient;
+
+    private CircuitBreaker circuitBreaker;
+
+    private Timer requestTimer;
+
+    @PostConstruct
+    public void init() {
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(timeoutMs))
+                .build();
+        circuitBreaker = new CircuitBreaker("amap-distance", failureThreshold, breakerOpenMs);
+        requestTimer = Timer.builder("amap.distance.latency")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 计算各起点到终点的距离
+     *
+     * @return 与origins一一对应的距离（公里），高德未返回结果的为NaN
+     * @throws IOException 请求失败、超时或熔断中
+     */
+    public float[] distancesKm(List<GeoPoint> origins, GeoPoint destination) throws IOException {
+        float[] distances = new float[origins.size()];
+        Arrays.fill(distances, Float.NaN);
+        for (int from = 0; from < origins.size(); from += MAX_ORIGINS) {
+            List<GeoPoint> chunk = origins.subList(from, Math.min(from + MAX_ORIGINS, origins.size()));
+            request(chunk, destination, distances, from);
+        }
+        return distances;
+    }
+
+    private void request(List<GeoPoint> origins, GeoPoint destination, float[] distances, int offset)
+            throws IOException {
+        if (!circuitBreaker.allowRequest()) {
+            meterRegistry.counter("amap.distance.requests", "result", "rejected").increment();
+            throw new IOException("距离测量服务熔断中");
+        }
+        String originParam = origins.stream().map(GeoPoint::toString).collect(Collectors.joining("|"));
+        long start = System.nanoTime();
+        try {
+            URI uri = URI.create(distanceUrl + "?key=" + encode(key) + "&type=" + type + "&output=JSON"
+                    + "&origins=" + encode(originParam) + "&destination=" + encode(destination.toString()));
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .timeout(Duration.ofMillis(timeoutMs))
+                    .GET()
+                    .build();
+            HttpResponse<String> response = httpClient.send(request,
+                    HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            parseResponse(response, distances, offset, origins.size());
+        } catch (IOException | RuntimeException e) {
+            circuitBreaker.recordFailure();
+            meterRegistry.counter("amap.distance.requests", "result", "error").increment();
+            throw e instanceof IOException io ? io : new IOException(e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            circuitBreaker.recordFailure();
+            throw new IOException("距离测量请求被中断", e);
+        } finally {
+            requestTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        circuitBreaker.recordSuccess();
+        meterRegistry.counter("amap.distance.requests", "result", "success").increment();
+    }
+
+    /**
+     * 解析高德距离测量响应：results中origin_id为起点序号（从1开始），distance单位为米
+     */
+    private static void parseResponse(HttpResponse<String> response, float[] distances, int offset, int count)
+            throws IOException {
+        if (response.statusCode() != 200) {
+            throw new IOException("HTTP " + response.statusCode());
+        }
+        JSONObject body = JSONUtil.parseObj(response.body());
+        if (!"1".equals(body.getStr("status"))) {
+            throw new IOException(body.getStr("info") + "（" + body.getStr("infocode") + "）");
+        }
+        JSONArray results = body.getJSONArray("results");
+        if (results == null) {
+            return;
+        }
+        for (Object item : results) {
+            if (!(item instanceof JSONObject result)) {
+                continue;
+            }
+            Integer originId = result.getInt("origin_id");
+            Double meters = result.getDouble("distance");
+            if (originId != null && originId >= 1 && originId <= count && meters != null) {
+                distances[offset + originId - 1] = (float) (meters / 1000);
+            }
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,467 @@
+package com.example.express.geo;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.core.convert.Convert;
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.example.express.util.CircuitBreaker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 高德地理编码客户端（地址转坐标）
+ * - 地址先归一化（全角转半角、去空白、小写）作为缓存键，依次查本地LRU缓存和Redis，查不到的结果也缓存一段时间；
+ *   请求上游时仍使用原始地址
+ * - 同一地址的并发查询合并为一次
+ * - Redis读取使用单独的线程池，队列有界，积压时直接返回未知坐标，不占用上游请求的回调线程
+ * - 未命中的地址进入队列，按批（高德批量接口每次最多10个地址）或等待窗口到期后合并为一次请求
+ * - 请求有超时，连续失败后熔断，熔断期间直接返回未知坐标
+ * 上游出错时结果不缓存；坐标未知时返回null
+ */
+@Slf4j
+@Component
+public class AmapGeocoder {
+
+    private static final String KEY_PREFIX = "geo:addr:";
+
+    /**
+     * 高德批量地理编码每次最多的地址数
+     */
+    private static final int MAX_BATCH_SIZE = 10;
+
+    /**
+     * 地址无法解析（缓存中以空字符串表示），按引用比较
+     */
+    private static final GeoPoint NOT_FOUND = new GeoPoint(Double.NaN, Double.NaN);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.amap.key:}")
+    private String key;
+
+    @Value("${app.amap.geocode-url:https://restapi.amap.com/v3/geocode/geo}")
+    private String geocodeUrl;
+
+    @Value("${app.amap.geocode.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.amap.geocode.local-capacity:10000}")
+    private int localCapacity;
+
+    @Value("${app.amap.geocode.local-ttl-ms:3600000}")
+    private long localTtlMs;
+
+    @Value("${app.amap.geocode.redis-ttl-seconds:2592000}")
+    private long redisTtlSeconds;
+
+    @Value("${app.amap.geocode.not-found-ttl-seconds:3600}")
+    private long notFoundTtlSeconds;
+
+    @Value("${app.amap.geocode.batch-size:10}")
+    private int batchSize;
+
+    @Value("${app.amap.geocode.batch-window-ms:10}")
+    private long batchWindowMs;
+
+    @Value("${app.amap.geocode.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.amap.geocode.redis-threads:4}")
+    private int redisThreads;
+
+    @Value("${app.amap.geocode.redis-queue-capacity:1000}")
+    private int redisQueueCapacity;
+
+    @Value("${app.amap.geocode.max-in-flight:4}")
+    private int maxInFlight;
+
+    @Value("${app.amap.geocode.timeout-ms:2000}")
+    private long timeoutMs;
+
+    @Value("${app.amap.geocode.breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${app.amap.geocode.breaker.open-ms:30000}")
+    private long breakerOpenMs;
+
+    private LRUCache<String, GeoPoint> localCache;
+
+    private final Map<String, CompletableFuture<GeoPoint>> inflight = new ConcurrentHashMap<>();
+
+    private BlockingQueue<Pending> pending;
+
+    private Semaphore requestPermits;
+
+    private CircuitBreaker circuitBreaker;
+
+    private ThreadPoolExecutor redisExecutor;
+
+    private ExecutorService httpExecutor;
+
+    private HttpClient httpClient;
+
+    private Thread dispatcher;
+
+    private Timer upstreamTimer;
+
+    /**
+     * 等待上游查询的地址
+     *
+     * @param cacheKey 归一化后的地址
+     * @param address  请求上游的原始地址
+     */
+    private record Pending(String cacheKey, String address, CompletableFuture<GeoPoint> future) {
+    }
+
+    @PostConstruct
+    public void init() {
+        batchSize = Math.max(1, Math.min(batchSize, MAX_BATCH_SIZE));
+        localCache = CacheUtil.newLRUCache(localCapacity, localTtlMs);
+        pending = new LinkedBlockingQueue<>(queueCapacity);
+        requestPermits = new Semaphore(maxInFlight);
+        circuitBreaker = new CircuitBreaker("amap-geocode", failureThreshold, breakerOpenMs);
+
+        AtomicInteger redisThreadIndex = new AtomicInteger();
+        redisExecutor = new ThreadPoolExecutor(redisThreads, redisThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(redisQueueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "geocode-redis-" + redisThreadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        redisExecutor.allowCoreThreadTimeOut(true);
+        // HttpClient的线程池：同时进行的上游请求数受requestPermits限制，回调任务不会无限积压
+        AtomicInteger httpThreadIndex = new AtomicInteger();
+        httpExecutor = Executors.newFixedThreadPool(Math.max(2, maxInFlight), runnable -> {
+            Thread thread = new Thread(runnable, "geocode-http-" + httpThreadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(timeoutMs))
+                .executor(httpExecutor)
+                .build();
+
+        upstreamTimer = Timer.builder("geocode.upstream.latency")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("geocode.circuit.open", circuitBreaker,
+                        breaker -> breaker.getState() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .register(meterRegistry);
+        Gauge.builder("geocode.queue.size", pending, BlockingQueue::size).register(meterRegistry);
+
+        if (enabled) {
+            dispatcher = new Thread(this::dispatchLoop, "geocode-dispatcher");
+            dispatcher.setDaemon(true);
+            dispatcher.start();
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+        redisExecutor.shutdownNow();
+        httpExecutor.shutdownNow();
+    }
+
+    /**
+     * 只查本地缓存，不等待；未命中时在后台发起查询，供后续调用命中
+     * 用于订单创建等不能等待外部服务的场景
+     *
+     * @return 坐标，未命中或地址无法解析时返回null
+     */
+    public GeoPoint getIfCached(String address) {
+        String cacheKey = normalize(address);
+        if (cacheKey.isEmpty()) {
+            return null;
+        }
+        GeoPoint point = localCache.get(cacheKey, false);
+        if (point != null) {
+            countLookup("local", "hit");
+            return point == NOT_FOUND ? null : point;
+        }
+        countLookup("local", "miss");
+        if (enabled) {
+            lookup(cacheKey, address);
+        }
+        return null;
+    }
+
+    /**
+     * 地址转坐标，最多等待timeoutMs
+     *
+     * @return 坐标，地址无法解析、上游出错或超时时返回null
+     */
+    public GeoPoint geocode(String address) {
+        return geocodeAsync(address).completeOnTimeout(null, timeoutMs, TimeUnit.MILLISECONDS).join();
+    }
+
+    /**
+     * 异步地址转坐标
+     *
+     * @return 坐标，地址无法解析或上游出错时为null，不会异常完成
+     */
+    public CompletableFuture<GeoPoint> geocodeAsync(String address) {
+        String cacheKey = normalize(address);
+        if (cacheKey.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        GeoPoint point = localCache.get(cacheKey, false);
+        if (point != null) {
+            countLookup("local", "hit");
+            return CompletableFuture.completedFuture(point == NOT_FOUND ? null : point);
+        }
+        countLookup("local", "miss");
+        if (!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return lookup(cacheKey, address).handle((result, error) -> error != null || result == NOT_FOUND ? null : result);
+    }
+
+    /**
+     * 地址归一化：全角转半角，去除空白和批量请求的分隔符，英文转小写
+     */
+    static String normalize(String address) {
+        if (address == null) {
+            return "";
+        }
+        String halfWidth = Convert.toDBC(address);
+        StringBuilder normalized = new StringBuilder(halfWidth.length());
+        for (int i = 0; i < halfWidth.length(); i++) {
+            char c = halfWidth.charAt(i);
+            if (!Character.isWhitespace(c) && c != '|') {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 请求上游的地址：原始地址去除首尾空白，批量请求的分隔符替换为空格
+     */
+    static String upstreamAddress(String address) {
+        return address.replace('|', ' ').trim();
+    }
+
+    /**
+     * 查询Redis及上游，同一地址同时只有一次查询；完成后写入本地缓存（上游出错时不写入）
+     *
+     * @param address 原始地址，合并的查询以第一次查询的地址请求上游
+     */
+    private CompletableFuture<GeoPoint> lookup(String cacheKey, String address) {
+        CompletableFuture<GeoPoint> created = new CompletableFuture<>();
+        CompletableFuture<GeoPoint> existing = inflight.putIfAbsent(cacheKey, created);
+        if (existing != null) {
+            meterRegistry.counter("geocode.coalesced").increment();
+            return existing;
+        }
+        created.whenComplete((point, error) -> {
+            // 先写缓存再移除，期间的查询要么合并到本次结果，要么命中缓存
+            if (error == null) {
+                localCache.put(cacheKey, point,
+                        point == NOT_FOUND ? Math.min(localTtlMs, notFoundTtlSeconds * 1000) : localTtlMs);
+            }
+            inflight.remove(cacheKey, created);
+        });
+        Pending item = new Pending(cacheKey, upstreamAddress(address), created);
+        try {
+            redisExecutor.execute(() -> loadFromRedis(item));
+        } catch (RejectedExecutionException e) {
+            countLookup("redis", "rejected");
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
+
+    private void loadFromRedis(Pending item) {
+        String cacheKey = item.cacheKey();
+        CompletableFuture<GeoPoint> future = item.future();
+        try {
+            String cached = stringRedisTemplate.opsForValue().get(redisKey(cacheKey));
+            if (cached != null) {
+                countLookup("redis", "hit");
+                GeoPoint point = GeoPoint.parse(cached);
+                future.complete(point == null ? NOT_FOUND : point);
+                return;
+            }
+            countLookup("redis", "miss");
+        } catch (Exception e) {
+            log.debug("读取地理编码缓存失败：{}", e.getMessage());
+        }
+        if (!pending.offer(item)) {
+            meterRegistry.counter("geocode.upstream.requests", "result", "rejected").increment();
+            future.completeExceptionally(new IOException("地理编码队列已满"));
+        }
+    }
+
+    /**
+     * 合并队列中的地址：凑满一批或等待窗口到期后发出请求
+     */
+    private void dispatchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<Pending> batch = new ArrayList<>(batchSize);
+                batch.add(pending.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchWindowMs);
+                while (batch.size() < batchSize) {
+                    Pending next = pending.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                requestPermits.acquire();
+                send(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.warn("地理编码请求调度失败", e);
+            }
+        }
+    }
+
+    private void send(List<Pending> batch) {
+        if (!circuitBreaker.allowRequest()) {
+            requestPermits.release();
+            meterRegistry.counter("geocode.upstream.requests", "result", "rejected").increment();
+            IOException error = new IOException("地理编码服务熔断中");
+            batch.forEach(item -> item.future().completeExceptionally(error));
+            return;
+        }
+
+        HttpRequest request;
+        try {
+            String addresses = batch.stream().map(Pending::address).collect(Collectors.joining("|"));
+            URI uri = URI.create(geocodeUrl + "?key=" + encode(key) + "&batch=" + (batch.size() > 1)
+                    + "&output=JSON&address=" + encode(addresses));
+            request = HttpRequest.newBuilder(uri)
+                    .timeout(Duration.ofMillis(timeoutMs))
+                    .GET()
+                    .build();
+        } catch (RuntimeException e) {
+            requestPermits.release();
+            circuitBreaker.recordFailure();
+            log.warn("构造地理编码请求失败：{}", e.getMessage());
+            batch.forEach(item -> item.future().completeExceptionally(e));
+            return;
+        }
+        long start = System.nanoTime();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                .whenComplete((response, error) -> {
+                    requestPermits.release();
+                    upstreamTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    List<GeoPoint> points;
+                    try {
+                        if (error != null) {
+                            throw new IOException("地理编码请求失败：" + error.getMessage(), error);
+                        }
+                        points = parseResponse(response, batch.size());
+                    } catch (Exception e) {
+                        circuitBreaker.recordFailure();
+                        meterRegistry.counter("geocode.upstream.requests", "result", "error").increment();
+                        log.debug("地理编码失败：{}", e.getMessage());
+                        batch.forEach(item -> item.future().completeExceptionally(e));
+                        return;
+                    }
+                    circuitBreaker.recordSuccess();
+                    meterRegistry.counter("geocode.upstream.requests", "result", "success").increment();
+                    for (int i = 0; i < batch.size(); i++) {
+                        store(batch.get(i), points.get(i));
+                    }
+                });
+    }
+
+    /**
+     * 解析高德地理编码响应，geocodes与请求的地址按顺序一一对应，无法解析的地址location为空
+     *
+     * @return 与请求地址一一对应的坐标，无法解析的为null
+     */
+    private static List<GeoPoint> parseResponse(HttpResponse<String> response, int size) throws IOException {
+        if (response.statusCode() != 200) {
+            throw new IOException("HTTP " + response.statusCode());
+        }
+        JSONObject body = JSONUtil.parseObj(response.body());
+        if (!"1".equals(body.getStr("status"))) {
+            throw new IOException(body.getStr("info") + "（" + body.getStr("infocode") + "）");
+        }
+        JSONArray geocodes = body.getJSONArray("geocodes");
+        List<GeoPoint> points = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Object geocode = geocodes != null && i < geocodes.size() ? geocodes.get(i) : null;
+            points.add(geocode instanceof JSONObject json ? GeoPoint.parse(json.getStr("location")) : null);
+        }
+        return points;
+    }
+
+    /**
+     * 写入Redis并完成查询，无法解析的地址以空字符串缓存较短时间
+     */
+    private void store(Pending item, GeoPoint point) {
+        try {
+            if (point != null) {
+                stringRedisTemplate.opsForValue().set(redisKey(item.cacheKey()), point.toString(),
+                        redisTtlSeconds, TimeUnit.SECONDS);
+            } else {
+                stringRedisTemplate.opsForValue().set(redisKey(item.cacheKey()), "",
+                        notFoundTtlSeconds, TimeUnit.SECONDS);
+            }
+        } catch (Exception e) {
+            log.debug("写入地理编码缓存失败：{}", e.getMessage());
+        }
+        item.future().complete(point == null ? NOT_FOUND : point);
+    }
+
+    private void countLookup(String level, String result) {
+        meterRegistry.counter("geocode.cache.lookups", "level", level, "result", result).increment();
+    }
+
+    private static String redisKey(String cacheKey) {
+        return KEY_PREFIX + DigestUtil.md5Hex(cacheKey);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
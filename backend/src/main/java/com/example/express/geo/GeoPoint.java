@@ -0,0 +1,37 @@
+package com.example.express.geo;
+
+/**
+ * 经纬度坐标
+ *
+ * @param lng 经度
+ * @param lat 纬度
+ */
+public record GeoPoint(double lng, double lat) {
+
+    /**
+     * 解析"经度,纬度"格式的坐标（高德location字段、门店gpsLocation均为此格式）
+     *
+     * @return 坐标，格式错误或坐标无效时返回null
+     */
+    public static GeoPoint parse(String value) {
+        if (value == null) {
+            return null;
+        }
+        int comma = value.indexOf(',');
+        if (comma < 0) {
+            return null;
+        }
+        try {
+            double lng = Double.parseDouble(value.substring(0, comma).trim());
+            double lat = Double.parseDouble(value.substring(comma + 1).trim());
+            return GeoUtils.isValid(lng, lat) ? new GeoPoint(lng, lat) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return lng + "," + lat;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.express.geo;
+
+/**
+ * 地理计算工具
+ */
+public final class GeoUtils {
+
+    /**
+     * 地球平均半径（公里）
+     */
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    /**
+     * 每度纬度对应的距离（公里）
+     */
+    public static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+
+    private GeoUtils() {
+    }
+
+    /**
+     * 按半正矢公式计算两点间的球面距离（公里）
+     */
+    public static double haversineKm(double lng1, double lat1, double lng2, double lat2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double sinLat = Math.sin(dLat / 2);
+        double sinLng = Math.sin(dLng / 2);
+        double a = sinLat * sinLat
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLng * sinLng;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * 坐标是否有效；门店未设置坐标时默认为(0,0)，视为无效
+     */
+    public static boolean isValid(double lng, double lat) {
+        return lng >= -180 && lng <= 180 && lat >= -90 && lat <= 90 && !(lng == 0 && lat == 0);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.express.geo;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * MySQL几何类型内部格式编解码（仅POINT）
+ * 内部格式为 4字节SRID（小端）+ WKB，POINT的WKB为 1字节字节序 + 4字节类型(1) + 8字节X + 8字节Y，共25字节。
+ * 绑定参数和读取结果都直接使用该二进制格式，不需要额外调用ST_GeomFromText/ST_AsText。
+ * 坐标以"经度,纬度"字符串表示，与Store.gpsLocation一致，X为经度，Y为纬度（SRID 0）
+ */
+public final class MySqlPointCodec {
+
+    public static final int POINT_LENGTH = 25;
+
+    private static final int WKB_POINT = 1;
+    private static final byte LITTLE_ENDIAN = 1;
+
+    private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_BE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle DOUBLE_LE = MethodHandles.byteArrayViewVarHandle(double[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle DOUBLE_BE = MethodHandles.byteArrayViewVarHandle(double[].class, ByteOrder.BIG_ENDIAN);
+
+    private static final String TEXT_PREFIX = "POINT(";
+
+    private MySqlPointCodec() {
+    }
+
+    /**
+     * 编码为MySQL内部格式
+     */
+    public static byte[] encode(int srid, double x, double y) {
+        byte[] bytes = new byte[POINT_LENGTH];
+        INT_LE.set(bytes, 0, srid);
+        bytes[4] = LITTLE_ENDIAN;
+        INT_LE.set(bytes, 5, WKB_POINT);
+        DOUBLE_LE.set(bytes, 9, x);
+        DOUBLE_LE.set(bytes, 17, y);
+        return bytes;
+    }
+
+    /**
+     * 将"经度,纬度"编码为MySQL内部格式，格式不正确或坐标不是有限数值（NaN、Infinity）时返回null
+     */
+    public static byte[] encode(String coordinates) {
+        int comma = coordinates.indexOf(',');
+        if (comma <= 0 || comma != coordinates.lastIndexOf(',')) {
+            return null;
+        }
+        try {
+            double lng = Double.parseDouble(coordinates.substring(0, comma).trim());
+            double lat = Double.parseDouble(coordinates.substring(comma + 1).trim());
+            if (!Double.isFinite(lng) || !Double.isFinite(lat)) {
+                return null;
+            }
+            return encode(0, lng, lat);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 将MySQL内部格式解码为"经度,纬度"；兼容以ST_AsText查询得到的"POINT(x y)"文本，
+     * 无法识别或坐标不是有限数值时返回null
+     */
+    public static String decode(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        if (bytes.length == POINT_LENGTH) {
+            boolean littleEndian = bytes[4] == LITTLE_ENDIAN;
+            int type = littleEndian ? (int) INT_LE.get(bytes, 5) : (int) INT_BE.get(bytes, 5);
+            if (type == WKB_POINT) {
+                double x = littleEndian ? (double) DOUBLE_LE.get(bytes, 9) : (double) DOUBLE_BE.get(bytes, 9);
+                double y = littleEndian ? (double) DOUBLE_LE.get(bytes, 17) : (double) DOUBLE_BE.get(bytes, 17);
+                return format(x, y);
+            }
+        }
+        return decodeText(new String(bytes, StandardCharsets.US_ASCII));
+    }
+
+    private static String decodeText(String text) {
+        if (!text.startsWith(TEXT_PREFIX) || !text.endsWith(")")) {
+            return null;
+        }
+        String coordinates = text.substring(TEXT_PREFIX.length(), text.length() - 1).trim();
+        int space = coordinates.indexOf(' ');
+        if (space <= 0) {
+            return null;
+        }
+        try {
+            double x = Double.parseDouble(coordinates.substring(0, space));
+            double y = Double.parseDouble(coordinates.substring(space + 1).trim());
+            return format(x, y);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String format(double x, double y) {
+        return Double.isFinite(x) && Double.isFinite(y) ? x + "," + y : null;
+    }
+}
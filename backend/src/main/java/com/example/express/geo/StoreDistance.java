@@ -0,0 +1,12 @@
+package com.example.express.geo;
+
+import com.example.express.entity.Store;
+
+/**
+ * 门店及其与查询点的距离
+ *
+ * @param store      门店
+ * @param distanceKm 球面距离（公里）
+ */
+public record StoreDistance(Store store, double distanceKm) {
+}
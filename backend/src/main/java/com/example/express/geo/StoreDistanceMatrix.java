@@ -0,0 +1,563 @@
+package com.example.express.geo;
+
+import com.example.express.cache.StoreCatalog;
+import com.example.express.entity.Store;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 门店距离矩阵
+ * 全部门店两两之间的距离（公里）以float按上三角压缩保存在一个数组中（n个门店占n(n-1)/2个元素），
+ * 另为每个门店预先排好最近的若干门店，距离查询和k近邻查询只读数组，不做计算。
+ * 门店来自门店目录快照，快照变化时同步：门店集合不变时只重算坐标变化的门店所在的行，
+ * 否则重建（坐标未变的门店之间沿用原有距离）。
+ * 可选地由高德距离测量接口逐个门店把直线距离替换为驾车距离（矩阵按对称保存，取最后一次测量的方向），
+ * 测量在单独的线程中进行，不占用定时任务线程。
+ * 矩阵不可变，更新时复制后整体替换，读取无需加锁
+ */
+@Slf4j
+@Component
+public class StoreDistanceMatrix {
+
+    @Autowired
+    private StoreCatalog storeCatalog;
+
+    @Autowired
+    private AmapDistanceClient amapDistanceClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 每个门店预先排序的近邻数，即k近邻查询的k上限
+     */
+    @Value("${app.distance-matrix.neighbors:20}")
+    private int neighborCount;
+
+    /**
+     * 一次距离矩阵查询的门店数上限，结果大小为其平方
+     */
+    @Value("${app.distance-matrix.max-query-stores:200}")
+    private int maxQueryStores;
+
+    @Value("${app.distance-matrix.refine.enabled:false}")
+    private boolean refineEnabled;
+
+    private volatile Matrix matrix;
+
+    /**
+     * 等待以驾车距离修正的门店（作为终点），受this保护
+     */
+    private final Set<Long> pendingRefine = new LinkedHashSet<>();
+
+    /**
+     * 驾车距离修正线程，同时只进行一个门店的修正
+     */
+    private ExecutorService refineExecutor;
+
+    private final AtomicBoolean refining = new AtomicBoolean();
+
+    /**
+     * 距离矩阵快照
+     */
+    private static final class Matrix {
+        private final List<Store> source;
+        private final Store[] stores;
+        private final Map<Long, Integer> indexById;
+        private final double[] lngs;
+        private final double[] lats;
+        // 上三角压缩的距离（公里），任一门店坐标无效时为NaN
+        private final float[] distances;
+        // 每个门店的近邻下标，按距离升序，每行width个，不足时以-1补齐
+        private final int[] neighbors;
+        private final int width;
+        // 以该门店为终点的距离是否已修正为驾车距离
+        private final boolean[] refined;
+
+        private Matrix(List<Store> source, Store[] stores, double[] lngs, double[] lats, float[] distances,
+                       int[] neighbors, int width, boolean[] refined) {
+            this.source = source;
+            this.stores = stores;
+            this.lngs = lngs;
+            this.lats = lats;
+            this.distances = distances;
+            this.neighbors = neighbors;
+            this.width = width;
+            this.refined = refined;
+            this.indexById = new HashMap<>(stores.length * 2);
+            for (int i = 0; i < stores.length; i++) {
+                indexById.put(stores[i].getStoreId(), i);
+            }
+        }
+
+        private int size() {
+            return stores.length;
+        }
+
+        private float distance(int i, int j) {
+            return i == j ? 0f : distances[pairIndex(stores.length, i, j)];
+        }
+    }
+
+    /**
+     * 两个门店之间的距离（公里）
+     *
+     * @return 距离，门店不存在或坐标无效时返回NaN
+     */
+    public float distanceKm(Long fromStoreId, Long toStoreId) {
+        Matrix current = current();
+        Integer from = current.indexById.get(fromStoreId);
+        Integer to = current.indexById.get(toStoreId);
+        return from == null || to == null ? Float.NaN : current.distance(from, to);
+    }
+
+    /**
+     * 指定门店之间的距离矩阵
+     *
+     * @param storeIds 门店ID，不能为空且不超过maxQueryStores个
+     * @return storeIds、distances（按storeIds顺序的二维数组，未知距离为null）及已修正为驾车距离的门店数；
+     * 存在未知门店时返回null
+     * @throws IllegalArgumentException 未指定门店或门店数超过上限
+     */
+    public Map<String, Object> distances(List<Long> storeIds) {
+        if (storeIds == null || storeIds.isEmpty()) {
+            throw new IllegalArgumentException("请指定门店");
+        }
+        if (storeIds.size() > maxQueryStores) {
+            throw new IllegalArgumentException("一次最多查询" + maxQueryStores + "个门店之间的距离");
+        }
+        Matrix current = current();
+        int[] indexes = new int[storeIds.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            Integer index = current.indexById.get(storeIds.get(i));
+            if (index == null) {
+                return null;
+            }
+            indexes[i] = index;
+        }
+
+        List<Long> ids = new ArrayList<>(indexes.length);
+        List<List<Float>> rows = new ArrayList<>(indexes.length);
+        int refinedCount = 0;
+        for (int i : indexes) {
+            ids.add(current.stores[i].getStoreId());
+            List<Float> row = new ArrayList<>(indexes.length);
+            for (int j : indexes) {
+                float distance = current.distance(i, j);
+                row.add(Float.isNaN(distance) ? null : distance);
+            }
+            rows.add(row);
+            if (current.refined[i]) {
+                refinedCount++;
+            }
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("storeIds", ids);
+        result.put("distances", rows);
+        result.put("refinedStores", refinedCount);
+        return result;
+    }
+
+    /**
+     * 距离指定门店最近的k个门店（按距离升序，不含自身和坐标无效的门店）
+     *
+     * @param k 不超过neighbors配置
+     * @return 近邻门店，门店不存在时返回null
+     */
+    public List<StoreDistance> nearest(Long storeId, int k) {
+        Matrix current = current();
+        Integer index = current.indexById.get(storeId);
+        if (index == null) {
+            return null;
+        }
+        int limit = Math.min(k, current.width);
+        List<StoreDistance> result = new ArrayList<>(limit);
+        for (int n = 0; n < limit; n++) {
+            int neighbor = current.neighbors[index * current.width + n];
+            if (neighbor < 0) {
+                break;
+            }
+            result.add(new StoreDistance(current.stores[neighbor], current.distance(index, neighbor)));
+        }
+        return result;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (refineEnabled) {
+            refineExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "distance-matrix-refine");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (refineExecutor != null) {
+            refineExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 定时与门店目录同步，使查询很少需要等待重算
+     */
+    @Scheduled(fixedDelayString = "${app.distance-matrix.sync-interval-ms:5000}")
+    public void scheduledSync() {
+        try {
+            current();
+        } catch (Exception e) {
+            log.warn("同步门店距离矩阵失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定时提交一个门店的驾车距离修正，上一次修正尚未结束时跳过；本方法不等待测量
+     */
+    @Scheduled(fixedDelayString = "${app.distance-matrix.refine.interval-ms:1000}")
+    public void refineNext() {
+        if (!refineEnabled || !refining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refineExecutor.execute(() -> {
+                try {
+                    refineOne();
+                } catch (Exception e) {
+                    log.warn("修正门店驾车距离失败：{}", e.getMessage());
+                } finally {
+                    refining.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refining.set(false);
+        }
+    }
+
+    /**
+     * 以驾车距离修正一个门店（作为终点到其他所有门店），在修正线程中执行
+     */
+    private void refineOne() {
+        Matrix snapshot = current();
+        Long storeId;
+        synchronized (this) {
+            if (pendingRefine.isEmpty()) {
+                return;
+            }
+            storeId = pendingRefine.iterator().next();
+            pendingRefine.remove(storeId);
+        }
+        Integer destination = snapshot.indexById.get(storeId);
+        if (destination == null || !GeoUtils.isValid(snapshot.lngs[destination], snapshot.lats[destination])) {
+            return;
+        }
+
+        List<Integer> originIndexes = new ArrayList<>();
+        List<GeoPoint> origins = new ArrayList<>();
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (i != destination && GeoUtils.isValid(snapshot.lngs[i], snapshot.lats[i])) {
+                originIndexes.add(i);
+                origins.add(new GeoPoint(snapshot.lngs[i], snapshot.lats[i]));
+            }
+        }
+        float[] roadDistances;
+        try {
+            roadDistances = origins.isEmpty() ? new float[0]
+                    : amapDistanceClient.distancesKm(origins, new GeoPoint(snapshot.lngs[destination], snapshot.lats[destination]));
+        } catch (IOException e) {
+            log.debug("修正门店{}的驾车距离失败：{}", storeId, e.getMessage());
+            synchronized (this) {
+                pendingRefine.add(storeId);
+            }
+            return;
+        }
+        applyRefinement(snapshot, storeId, destination, originIndexes, roadDistances);
+    }
+
+    private synchronized void applyRefinement(Matrix snapshot, Long storeId, int destination,
+                                              List<Integer> originIndexes, float[] roadDistances) {
+        if (matrix != snapshot) {
+            // 测量期间门店发生变化，重新排队
+            pendingRefine.add(storeId);
+            return;
+        }
+        int n = snapshot.size();
+        float[] distances = snapshot.distances.clone();
+        for (int k = 0; k < originIndexes.size(); k++) {
+            if (!Float.isNaN(roadDistances[k])) {
+                distances[pairIndex(n, originIndexes.get(k), destination)] = roadDistances[k];
+            }
+        }
+        boolean[] refined = snapshot.refined.clone();
+        refined[destination] = true;
+        Matrix updated = new Matrix(snapshot.source, snapshot.stores, snapshot.lngs, snapshot.lats, distances,
+                snapshot.neighbors.clone(), snapshot.width, refined);
+        updateNeighbors(updated, destination);
+        matrix = updated;
+        meterRegistry.counter("distance.matrix.refined").increment();
+    }
+
+    private Matrix current() {
+        List<Store> stores = storeCatalog.current().stores();
+        Matrix current = matrix;
+        if (current != null && current.source == stores) {
+            return current;
+        }
+        return sync(stores);
+    }
+
+    private synchronized Matrix sync(List<Store> stores) {
+        Matrix old = matrix;
+        if (old != null && old.source == stores) {
+            return old;
+        }
+        long start = System.nanoTime();
+        Matrix updated = old != null && sameStores(old, stores) ? incremental(old, stores) : rebuild(old, stores);
+        matrix = updated;
+        meterRegistry.timer("distance.matrix.sync.time").record(System.nanoTime() - start,
+                TimeUnit.NANOSECONDS);
+        return updated;
+    }
+
+    /**
+     * 门店集合未变：沿用原有下标，只重算坐标变化的门店所在的行
+     */
+    private Matrix incremental(Matrix old, List<Store> stores) {
+        int n = old.size();
+        Store[] ordered = new Store[n];
+        double[] lngs = old.lngs.clone();
+        double[] lats = old.lats.clone();
+        List<Integer> moved = new ArrayList<>();
+        for (Store store : stores) {
+            int index = old.indexById.get(store.getStoreId());
+            ordered[index] = store;
+            double[] coordinates = coordinates(store);
+            if (Double.compare(coordinates[0], lngs[index]) != 0 || Double.compare(coordinates[1], lats[index]) != 0) {
+                lngs[index] = coordinates[0];
+                lats[index] = coordinates[1];
+                moved.add(index);
+            }
+        }
+        if (moved.isEmpty()) {
+            return new Matrix(stores, ordered, old.lngs, old.lats, old.distances, old.neighbors, old.width,
+                    old.refined);
+        }
+
+        float[] distances = old.distances.clone();
+        boolean[] refined = old.refined.clone();
+        Matrix updated = new Matrix(stores, ordered, lngs, lats, distances, old.neighbors.clone(), old.width,
+                refined);
+        // 逐个门店更新距离和近邻，保证调整近邻时其余距离与近邻顺序一致
+        for (int s : moved) {
+            for (int i = 0; i < n; i++) {
+                if (i != s) {
+                    distances[pairIndex(n, i, s)] = distance(lngs, lats, i, s);
+                }
+            }
+            refined[s] = false;
+            updateNeighbors(updated, s);
+        }
+        synchronized (this) {
+            moved.forEach(s -> pendingRefine.add(ordered[s].getStoreId()));
+        }
+        meterRegistry.counter("distance.matrix.sync", "type", "incremental").increment();
+        return updated;
+    }
+
+    /**
+     * 门店增删：重建矩阵，两个门店都未变化（存在于原矩阵且坐标相同）时沿用原有距离
+     */
+    private Matrix rebuild(Matrix old, List<Store> stores) {
+        int n = stores.size();
+        Store[] ordered = stores.toArray(new Store[0]);
+        double[] lngs = new double[n];
+        double[] lats = new double[n];
+        int[] oldIndexes = new int[n];
+        boolean[] refined = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            double[] coordinates = coordinates(ordered[i]);
+            lngs[i] = coordinates[0];
+            lats[i] = coordinates[1];
+            Integer oldIndex = old == null ? null : old.indexById.get(ordered[i].getStoreId());
+            boolean unchanged = oldIndex != null && Double.compare(old.lngs[oldIndex], lngs[i]) == 0
+                    && Double.compare(old.lats[oldIndex], lats[i]) == 0;
+            oldIndexes[i] = unchanged ? oldIndex : -1;
+            refined[i] = unchanged && old.refined[oldIndex];
+        }
+
+        float[] distances = new float[pairCount(n)];
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                distances[pairIndex(n, i, j)] = oldIndexes[i] >= 0 && oldIndexes[j] >= 0
+                        ? old.distance(oldIndexes[i], oldIndexes[j])
+                        : distance(lngs, lats, i, j);
+            }
+        }
+        int width = Math.max(1, neighborCount);
+        int[] neighbors = new int[n * width];
+        Matrix rebuilt = new Matrix(stores, ordered, lngs, lats, distances, neighbors, width, refined);
+        for (int i = 0; i < n; i++) {
+            computeNeighbors(rebuilt, i);
+        }
+
+        synchronized (this) {
+            pendingRefine.removeIf(id -> !rebuilt.indexById.containsKey(id));
+            for (int i = 0; i < n; i++) {
+                if (oldIndexes[i] < 0) {
+                    pendingRefine.add(ordered[i].getStoreId());
+                }
+            }
+        }
+        meterRegistry.counter("distance.matrix.sync", "type", "full").increment();
+        log.info("门店距离矩阵已重建：{}个门店", n);
+        return rebuilt;
+    }
+
+    /**
+     * 门店s的距离变化后更新近邻：重排s自己的近邻，并调整其他门店近邻中s的位置
+     */
+    private static void updateNeighbors(Matrix m, int s) {
+        computeNeighbors(m, s);
+        for (int i = 0; i < m.size(); i++) {
+            if (i != s) {
+                adjustNeighbor(m, i, s);
+            }
+        }
+    }
+
+    /**
+     * 按整行距离重排门店i的近邻
+     */
+    private static void computeNeighbors(Matrix m, int i) {
+        int offset = i * m.width;
+        Arrays.fill(m.neighbors, offset, offset + m.width, -1);
+        int count = 0;
+        for (int j = 0; j < m.size(); j++) {
+            if (j != i) {
+                count = insertNeighbor(m, i, j, count);
+            }
+        }
+    }
+
+    /**
+     * 门店i与s的距离变化后调整i的近邻；s原在近邻中且变远到可能被其他门店取代时重排整行
+     */
+    private static void adjustNeighbor(Matrix m, int i, int s) {
+        int offset = i * m.width;
+        int count = 0;
+        int position = -1;
+        while (count < m.width && m.neighbors[offset + count] >= 0) {
+            if (m.neighbors[offset + count] == s) {
+                position = count;
+            }
+            count++;
+        }
+        if (position >= 0) {
+            System.arraycopy(m.neighbors, offset + position + 1, m.neighbors, offset + position,
+                    count - position - 1);
+            m.neighbors[offset + count - 1] = -1;
+            count--;
+            float distance = m.distance(i, s);
+            boolean wasFull = count + 1 == m.width;
+            if (wasFull && (Float.isNaN(distance) || count == 0
+                    || distance > m.distance(i, m.neighbors[offset + count - 1]))) {
+                computeNeighbors(m, i);
+                return;
+            }
+        }
+        insertNeighbor(m, i, s, count);
+    }
+
+    /**
+     * 把门店j按距离插入门店i的近邻（已有count个），近邻已满且j更远时忽略
+     *
+     * @return 插入后的近邻数
+     */
+    private static int insertNeighbor(Matrix m, int i, int j, int count) {
+        float distance = m.distance(i, j);
+        if (Float.isNaN(distance)) {
+            return count;
+        }
+        int offset = i * m.width;
+        int position = count;
+        while (position > 0 && m.distance(i, m.neighbors[offset + position - 1]) > distance) {
+            position--;
+        }
+        if (position >= m.width) {
+            return count;
+        }
+        int moveCount = Math.min(count, m.width - 1) - position;
+        if (moveCount > 0) {
+            System.arraycopy(m.neighbors, offset + position, m.neighbors, offset + position + 1, moveCount);
+        }
+        m.neighbors[offset + position] = j;
+        return Math.min(count + 1, m.width);
+    }
+
+    private static boolean sameStores(Matrix old, List<Store> stores) {
+        if (old.size() != stores.size()) {
+            return false;
+        }
+        for (Store store : stores) {
+            if (!old.indexById.containsKey(store.getStoreId())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 门店坐标，无效坐标（含默认的0,0）以NaN表示
+     */
+    private static double[] coordinates(Store store) {
+        double[] coordinates = store.getGpsCoordinates();
+        return GeoUtils.isValid(coordinates[0], coordinates[1])
+                ? coordinates
+                : new double[] { Double.NaN, Double.NaN };
+    }
+
+    private static float distance(double[] lngs, double[] lats, int i, int j) {
+        if (Double.isNaN(lngs[i]) || Double.isNaN(lngs[j])) {
+            return Float.NaN;
+        }
+        return (float) GeoUtils.haversineKm(lngs[i], lats[i], lngs[j], lats[j]);
+    }
+
+    private static int pairCount(int n) {
+        long count = (long) n * (n - 1) / 2;
+        if (count > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("门店数量过多，无法构建距离矩阵：" + n);
+        }
+        return (int) count;
+    }
+
+    /**
+     * 上三角压缩下标：(a, b)（a < b）位于第a行之前的所有元素之后
+     */
+    private static int pairIndex(int n, int i, int j) {
+        int a = Math.min(i, j);
+        int b = Math.max(i, j);
+        return (int) ((long) a * (2L * n - a - 1) / 2 + (b - a - 1));
+    }
+}
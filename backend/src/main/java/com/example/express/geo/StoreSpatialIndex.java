@@ -0,0 +1,273 @@
+package com.example.express.geo;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.example.express.entity.Store;
+import com.example.express.mapper.StoreMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 营业门店空间索引
+ * 按经纬度把门店划入固定大小的网格，查询时从查询点所在网格向外逐圈扫描，
+ * 当某一圈与查询点的最小可能距离已超过当前第k近的门店（或查询半径）时停止；
+ * 需扫描的网格数超过门店数时直接全量扫描。距离按半正矢公式计算。
+ * 门店增删改时增量更新，另有定时全量重建兜底其他节点上的变更。
+ * 查询不访问数据库：首次加载失败时按较短间隔重试，加载完成前查询结果为空。
+ * 不处理跨180度经线的情况
+ */
+@Slf4j
+@Component
+public class StoreSpatialIndex {
+
+    /**
+     * 经度方向按纬线长度估算的距离略大于大圆距离，留出余量
+     */
+    private static final double LNG_BOUND_FACTOR = 0.95;
+
+    @Autowired
+    private StoreMapper storeMapper;
+
+    @Value("${app.geo.cell-degrees:0.05}")
+    private double cellDegrees;
+
+    private volatile Grid grid = new Grid();
+
+    private volatile boolean loaded;
+
+    private record Entry(Store store, double lng, double lat, long cell) {
+    }
+
+    private static final class Grid {
+        private final Map<Long, Map<Long, Entry>> cells = new ConcurrentHashMap<>();
+        private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+        // 已占用网格的范围，只扩大不缩小，用于确定最多需要扫描的圈数
+        private volatile int minX = Integer.MAX_VALUE;
+        private volatile int maxX = Integer.MIN_VALUE;
+        private volatile int minY = Integer.MAX_VALUE;
+        private volatile int maxY = Integer.MIN_VALUE;
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.warn("加载门店空间索引失败，稍后重试：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 启动时加载失败后的重试，加载完成后不再执行
+     */
+    @Scheduled(fixedDelayString = "${app.geo.load-retry-interval-ms:10000}",
+            initialDelayString = "${app.geo.load-retry-interval-ms:10000}")
+    public void retryLoad() {
+        if (!loaded) {
+            scheduledReload();
+        }
+    }
+
+    /**
+     * 定时全量重建
+     */
+    @Scheduled(fixedDelayString = "${app.geo.reload-interval-ms:300000}",
+            initialDelayString = "${app.geo.reload-interval-ms:300000}")
+    public void scheduledReload() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.warn("重建门店空间索引失败：{}", e.getMessage());
+        }
+    }
+
+    public synchronized void reload() {
+        Grid rebuilt = new Grid();
+        List<Store> stores = storeMapper.selectList(new QueryWrapper<Store>().eq("status", 1));
+        int skipped = 0;
+        for (Store store : stores) {
+            if (!put(rebuilt, store)) {
+                skipped++;
+            }
+        }
+        // 坐标无法解析时所有门店都会被跳过，查询恒为空，需要明确暴露出来
+        if (skipped > 0) {
+            log.warn("{} 个营业门店没有有效坐标，未加入空间索引（共 {} 个营业门店）", skipped, stores.size());
+        }
+        grid = rebuilt;
+        loaded = true;
+    }
+
+    /**
+     * 门店创建或更新后调用；非营业或没有有效坐标的门店从索引中移除
+     */
+    public synchronized void update(Store store) {
+        if (store == null || store.getStoreId() == null) {
+            return;
+        }
+        remove(grid, store.getStoreId());
+        put(grid, store);
+    }
+
+    /**
+     * 门店删除后调用
+     */
+    public synchronized void remove(Long storeId) {
+        remove(grid, storeId);
+    }
+
+    /**
+     * 查询距离最近的营业门店
+     *
+     * @param k        返回数量
+     * @param radiusKm 查询半径（公里），为null时不限
+     * @return 按距离升序排列的门店，索引尚未加载时为空
+     */
+    public List<StoreDistance> nearest(double lng, double lat, int k, Double radiusKm) {
+        Grid current = grid;
+        if (!loaded || current.entries.isEmpty() || k <= 0) {
+            return new ArrayList<>();
+        }
+
+        PriorityQueue<StoreDistance> best = new PriorityQueue<>(
+                Comparator.comparingDouble(StoreDistance::distanceKm).reversed());
+        int cx = cellIndex(lng);
+        int cy = cellIndex(lat);
+        // 查询点到所在网格边界的最短距离（度）
+        double dx = Math.min(lng - cx * cellDegrees, (cx + 1) * cellDegrees - lng);
+        double dy = Math.min(lat - cy * cellDegrees, (cy + 1) * cellDegrees - lat);
+        int maxRing = Math.max(Math.max(Math.abs(cx - current.minX), Math.abs(cx - current.maxX)),
+                Math.max(Math.abs(cy - current.minY), Math.abs(cy - current.maxY)));
+
+        long scanned = 0;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            if (ring > 0) {
+                double bound = lowerBoundKm(lat, dx, dy, ring);
+                if (radiusKm != null && bound > radiusKm) {
+                    break;
+                }
+                if (best.size() == k && bound > best.peek().distanceKm()) {
+                    break;
+                }
+            }
+            long ringCells = ring == 0 ? 1 : 8L * ring;
+            if (scanned + ringCells > current.entries.size()) {
+                best.clear();
+                current.entries.values().forEach(entry -> offer(best, entry, lng, lat, k, radiusKm));
+                break;
+            }
+            scanned += ringCells;
+            scanRing(current, cx, cy, ring, entry -> offer(best, entry, lng, lat, k, radiusKm));
+        }
+
+        List<StoreDistance> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(StoreDistance::distanceKm));
+        return result;
+    }
+
+    private void scanRing(Grid current, int cx, int cy, int ring, Consumer<Entry> consumer) {
+        if (ring == 0) {
+            scanCell(current, cx, cy, consumer);
+            return;
+        }
+        for (int x = cx - ring; x <= cx + ring; x++) {
+            scanCell(current, x, cy - ring, consumer);
+            scanCell(current, x, cy + ring, consumer);
+        }
+        for (int y = cy - ring + 1; y <= cy + ring - 1; y++) {
+            scanCell(current, cx - ring, y, consumer);
+            scanCell(current, cx + ring, y, consumer);
+        }
+    }
+
+    private static void scanCell(Grid current, int x, int y, Consumer<Entry> consumer) {
+        Map<Long, Entry> cell = current.cells.get(cellKey(x, y));
+        if (cell != null) {
+            cell.values().forEach(consumer);
+        }
+    }
+
+    private static void offer(PriorityQueue<StoreDistance> best, Entry entry, double lng, double lat,
+                              int k, Double radiusKm) {
+        double distance = GeoUtils.haversineKm(lng, lat, entry.lng(), entry.lat());
+        if (radiusKm != null && distance > radiusKm) {
+            return;
+        }
+        if (best.size() < k) {
+            best.add(new StoreDistance(entry.store(), distance));
+        } else if (distance < best.peek().distanceKm()) {
+            best.poll();
+            best.add(new StoreDistance(entry.store(), distance));
+        }
+    }
+
+    /**
+     * 第ring圈网格中任意一点与查询点的最小可能距离（公里）；包内可见，供测试校验剪枝下界
+     */
+    double lowerBoundKm(double lat, double dx, double dy, int ring) {
+        double latDegrees = dy + (ring - 1) * cellDegrees;
+        double lngDegrees = dx + (ring - 1) * cellDegrees;
+        // 经度方向按该圈可能到达的最高纬度估算
+        double maxLat = Math.min(90, Math.abs(lat) + (ring + 1) * cellDegrees);
+        double lngKm = lngDegrees * GeoUtils.KM_PER_DEGREE * Math.cos(Math.toRadians(maxLat)) * LNG_BOUND_FACTOR;
+        return Math.min(latDegrees * GeoUtils.KM_PER_DEGREE, lngKm);
+    }
+
+    /**
+     * @return 是否加入索引（非营业或坐标无效的门店不加入）
+     */
+    private boolean put(Grid target, Store store) {
+        if (!store.isOperating()) {
+            return false;
+        }
+        double[] coordinates = store.getGpsCoordinates();
+        double lng = coordinates[0];
+        double lat = coordinates[1];
+        if (!GeoUtils.isValid(lng, lat)) {
+            return false;
+        }
+        int x = cellIndex(lng);
+        int y = cellIndex(lat);
+        Entry entry = new Entry(store, lng, lat, cellKey(x, y));
+        target.cells.computeIfAbsent(entry.cell(), key -> new ConcurrentHashMap<>()).put(store.getStoreId(), entry);
+        target.entries.put(store.getStoreId(), entry);
+        target.minX = Math.min(target.minX, x);
+        target.maxX = Math.max(target.maxX, x);
+        target.minY = Math.min(target.minY, y);
+        target.maxY = Math.max(target.maxY, y);
+        return true;
+    }
+
+    private static void remove(Grid target, Long storeId) {
+        Entry entry = target.entries.remove(storeId);
+        if (entry == null) {
+            return;
+        }
+        Map<Long, Entry> cell = target.cells.get(entry.cell());
+        if (cell != null) {
+            cell.remove(storeId);
+            if (cell.isEmpty()) {
+                target.cells.remove(entry.cell());
+            }
+        }
+    }
+
+    private int cellIndex(double degrees) {
+        return (int) Math.floor(degrees / cellDegrees);
+    }
+
+    private static long cellKey(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+}
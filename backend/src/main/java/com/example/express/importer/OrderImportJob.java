@@ -0,0 +1,120 @@
+package com.example.express.importer;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 订单导入任务：进度计数及逐行错误报告（最多保留maxErrors条）
+ */
+public class OrderImportJob {
+
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    private final String jobId;
+
+    private final String filename;
+
+    private final Long ownerId;
+
+    private final int maxErrors;
+
+    private final LocalDateTime startedAt = LocalDateTime.now();
+
+    private final AtomicLong readRows = new AtomicLong();
+    private final AtomicLong successCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+
+    private final List<Map<String, Object>> errors = new ArrayList<>();
+
+    private volatile String status = RUNNING;
+
+    private volatile String message;
+
+    private volatile LocalDateTime finishedAt;
+
+    OrderImportJob(String jobId, String filename, Long ownerId, int maxErrors) {
+        this.jobId = jobId;
+        this.filename = filename;
+        this.ownerId = ownerId;
+        this.maxErrors = maxErrors;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    void rowRead() {
+        readRows.incrementAndGet();
+    }
+
+    void succeeded(long count) {
+        successCount.addAndGet(count);
+    }
+
+    void rowFailed(long row, String error) {
+        failureCount.incrementAndGet();
+        synchronized (errors) {
+            if (errors.size() < maxErrors) {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("row", row);
+                entry.put("message", error);
+                errors.add(entry);
+            }
+        }
+    }
+
+    void complete() {
+        finishedAt = LocalDateTime.now();
+        status = COMPLETED;
+    }
+
+    void fail(String reason) {
+        message = reason;
+        finishedAt = LocalDateTime.now();
+        status = FAILED;
+    }
+
+    boolean isAborted() {
+        return FAILED.equals(status);
+    }
+
+    /**
+     * 任务进度和错误报告（错误按行号排序）
+     */
+    public Map<String, Object> toMap() {
+        List<Map<String, Object>> sortedErrors;
+        synchronized (errors) {
+            sortedErrors = new ArrayList<>(errors);
+        }
+        sortedErrors.sort(Comparator.comparingLong(entry -> (Long) entry.get("row")));
+
+        long success = successCount.get();
+        long failure = failureCount.get();
+        Map<String, Object> result = new HashMap<>();
+        result.put("jobId", jobId);
+        result.put("filename", filename);
+        result.put("status", status);
+        result.put("message", message);
+        result.put("readRows", readRows.get());
+        result.put("processedRows", success + failure);
+        result.put("successCount", success);
+        result.put("failureCount", failure);
+        result.put("errors", sortedErrors);
+        result.put("errorsTruncated", failure > sortedErrors.size());
+        result.put("startedAt", startedAt);
+        result.put("finishedAt", finishedAt);
+        return result;
+    }
+}
@@ -0,0 +1,419 @@
+package com.example.express.importer;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.TimedCache;
+import cn.hutool.core.util.IdUtil;
+import com.example.express.cache.StoreCatalog;
+import com.example.express.entity.Order;
+import com.example.express.security.AuthenticatedUser;
+import com.example.express.service.OrderService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 订单批量导入
+ * 上传的CSV文件先落盘，再由后台流水线处理：
+ * 读取线程切分记录并按块放入有界队列，多个校验线程并行转换、校验（物品类型、寄收件人JSON、门店），
+ * 校验通过的订单按块放入第二个有界队列，由写入线程调用批量创建（雪花ID，分块批量插入）。
+ * 队列有界，下游较慢时上游阻塞，内存占用与文件大小无关。
+ * 任务进度和逐行错误报告可按任务ID查询，任务信息只保存在处理它的节点上
+ */
+@Slf4j
+@Component
+public class OrderImportService {
+
+    /**
+     * 必填列与可选列（列名不区分大小写，下划线可省略，如sender_info或senderInfo）
+     */
+    private static final String COLUMN_SENDER = "senderinfo";
+    private static final String COLUMN_RECEIVER = "receiverinfo";
+    private static final String COLUMN_ITEM_TYPE = "itemtype";
+    private static final String COLUMN_STORE = "currentstoreid";
+
+    /**
+     * 队列结束标记，按引用比较
+     */
+    private static final List<RawRow> RAW_END = new ArrayList<>(0);
+    private static final List<ValidRow> VALID_END = new ArrayList<>(0);
+
+    private static final String ENCODING_ERROR = "文件编码错误，请使用UTF-8编码的CSV文件";
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private StoreCatalog storeCatalog;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.order-import.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.order-import.queue-capacity:8}")
+    private int queueCapacity;
+
+    @Value("${app.order-import.parallelism:4}")
+    private int parallelism;
+
+    @Value("${app.order-import.writers:2}")
+    private int writers;
+
+    @Value("${app.order-import.max-concurrent-jobs:2}")
+    private int maxConcurrentJobs;
+
+    @Value("${app.order-import.max-errors:1000}")
+    private int maxErrors;
+
+    @Value("${app.order-import.job-ttl-ms:3600000}")
+    private long jobTtlMs;
+
+    private TimedCache<String, OrderImportJob> jobs;
+
+    private Semaphore permits;
+
+    private ExecutorService executor;
+
+    /**
+     * 读取阶段输出：记录起始行号及各字段
+     */
+    private record RawRow(long row, List<String> fields) {
+    }
+
+    /**
+     * 校验阶段输出：记录起始行号及校验通过的订单
+     */
+    private record ValidRow(long row, Order order) {
+    }
+
+    /**
+     * 表头中各列的位置，可选列不存在时为-1
+     */
+    private record Columns(int sender, int receiver, int itemType, int store) {
+    }
+
+    @FunctionalInterface
+    private interface Stage {
+        void run() throws Exception;
+    }
+
+    @PostConstruct
+    public void init() {
+        jobs = CacheUtil.newTimedCache(jobTtlMs);
+        jobs.schedulePrune(jobTtlMs);
+        permits = new Semaphore(maxConcurrentJobs);
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "order-import-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        jobs.cancelPruneSchedule();
+        executor.shutdownNow();
+    }
+
+    /**
+     * 提交导入任务：文件保存到临时目录后立即返回，后台处理
+     *
+     * @throws IllegalArgumentException 文件为空或格式不支持
+     * @throws IllegalStateException    同时进行的导入任务已达上限
+     */
+    public OrderImportJob startImport(MultipartFile file, AuthenticatedUser user) throws IOException {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("导入文件不能为空");
+        }
+        String filename = file.getOriginalFilename() == null ? "" : file.getOriginalFilename();
+        String lowerName = filename.toLowerCase(Locale.ROOT);
+        if (lowerName.endsWith(".xlsx") || lowerName.endsWith(".xls")) {
+            throw new IllegalArgumentException("暂不支持Excel文件，请另存为CSV（UTF-8）后上传");
+        }
+        if (!permits.tryAcquire()) {
+            throw new IllegalStateException("正在进行的导入任务过多，请稍后再试");
+        }
+
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile("order-import-", ".csv");
+            file.transferTo(tempFile);
+            OrderImportJob job = new OrderImportJob(IdUtil.fastSimpleUUID(), filename, user.getUserId(), maxErrors);
+            jobs.put(job.getJobId(), job);
+            Path source = tempFile;
+            executor.execute(() -> runJob(job, source, user));
+            return job;
+        } catch (IOException | RuntimeException e) {
+            permits.release();
+            if (tempFile != null) {
+                Files.deleteIfExists(tempFile);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 查询导入任务，不存在或已过期时返回null
+     */
+    public OrderImportJob getJob(String jobId) {
+        return jobs.get(jobId, false);
+    }
+
+    private void runJob(OrderImportJob job, Path file, AuthenticatedUser user) {
+        long start = System.currentTimeMillis();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            CsvRecordReader reader = new CsvRecordReader(in);
+            Columns columns = parseHeader(reader.next());
+
+            BlockingQueue<List<RawRow>> rawQueue = new ArrayBlockingQueue<>(queueCapacity);
+            BlockingQueue<List<ValidRow>> validQueue = new ArrayBlockingQueue<>(queueCapacity);
+            AtomicInteger activeValidators = new AtomicInteger(parallelism);
+            CountDownLatch finished = new CountDownLatch(parallelism + writers + 1);
+            for (int i = 0; i < parallelism; i++) {
+                executor.execute(() -> runStage(job, finished,
+                        () -> validate(job, columns, rawQueue, validQueue, activeValidators)));
+            }
+            for (int i = 0; i < writers; i++) {
+                executor.execute(() -> runStage(job, finished, () -> write(job, validQueue, user)));
+            }
+            runStage(job, finished, () -> read(job, reader, rawQueue));
+            finished.await();
+            if (!job.isAborted()) {
+                job.complete();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.fail("导入任务被中断");
+        } catch (Exception e) {
+            job.fail(e instanceof CharacterCodingException ? ENCODING_ERROR : e.getMessage());
+        } finally {
+            Map<String, Object> progress = job.toMap();
+            log.info("订单导入任务{}结束：状态{}，成功{}，失败{}，耗时{}ms", job.getJobId(), progress.get("status"),
+                    progress.get("successCount"), progress.get("failureCount"), System.currentTimeMillis() - start);
+            meterRegistry.counter("order.import.rows", "result", "success").increment((Long) progress.get("successCount"));
+            meterRegistry.counter("order.import.rows", "result", "failure").increment((Long) progress.get("failureCount"));
+            meterRegistry.timer("order.import.time").record(System.currentTimeMillis() - start, TimeUnit.MILLISECONDS);
+            // 结束后重新计时，错误报告在结束后保留jobTtlMs
+            jobs.put(job.getJobId(), job);
+            permits.release();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("删除导入临时文件失败：{}", file);
+            }
+        }
+    }
+
+    /**
+     * 执行流水线的一个阶段，出错时将任务标记为失败，其他阶段随之退出
+     */
+    private void runStage(OrderImportJob job, CountDownLatch finished, Stage stage) {
+        try {
+            stage.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.fail("导入任务被中断");
+        } catch (CharacterCodingException e) {
+            job.fail(ENCODING_ERROR);
+        } catch (Exception e) {
+            log.warn("订单导入任务{}处理失败", job.getJobId(), e);
+            job.fail(e.getMessage());
+        } finally {
+            finished.countDown();
+        }
+    }
+
+    /**
+     * 读取阶段：切分CSV记录（字段内可能含换行，只能顺序读取），按块放入队列
+     */
+    private void read(OrderImportJob job, CsvRecordReader reader, BlockingQueue<List<RawRow>> rawQueue)
+            throws IOException, InterruptedException {
+        try {
+            List<RawRow> chunk = new ArrayList<>(chunkSize);
+            List<String> fields;
+            while ((fields = reader.next()) != null) {
+                if (fields.size() == 1 && fields.get(0).isBlank()) {
+                    continue; // 跳过空行
+                }
+                job.rowRead();
+                chunk.add(new RawRow(reader.getRecordLine(), fields));
+                if (chunk.size() >= chunkSize) {
+                    if (!put(rawQueue, chunk, job)) {
+                        return;
+                    }
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                put(rawQueue, chunk, job);
+            }
+        } finally {
+            for (int i = 0; i < parallelism; i++) {
+                put(rawQueue, RAW_END, job);
+            }
+        }
+    }
+
+    /**
+     * 校验阶段：转换为订单并校验，校验失败的行记入错误报告；
+     * 最后一个结束的校验线程通知写入线程结束
+     */
+    private void validate(OrderImportJob job, Columns columns, BlockingQueue<List<RawRow>> rawQueue,
+                          BlockingQueue<List<ValidRow>> validQueue, AtomicInteger activeValidators)
+            throws InterruptedException {
+        try {
+            List<RawRow> chunk;
+            while ((chunk = take(rawQueue, job)) != null && chunk != RAW_END) {
+                StoreCatalog.Snapshot stores = storeCatalog.current();
+                List<ValidRow> valid = new ArrayList<>(chunk.size());
+                for (RawRow raw : chunk) {
+                    Order order = new Order();
+                    String error = toOrder(raw.fields(), columns, stores, order);
+                    if (error != null) {
+                        job.rowFailed(raw.row(), error);
+                    } else {
+                        valid.add(new ValidRow(raw.row(), order));
+                    }
+                }
+                if (!valid.isEmpty() && !put(validQueue, valid, job)) {
+                    return;
+                }
+            }
+        } finally {
+            if (activeValidators.decrementAndGet() == 0) {
+                for (int i = 0; i < writers; i++) {
+                    put(validQueue, VALID_END, job);
+                }
+            }
+        }
+    }
+
+    /**
+     * 写入阶段：批量创建订单，写入失败的行按行号记入错误报告
+     */
+    @SuppressWarnings("unchecked")
+    private void write(OrderImportJob job, BlockingQueue<List<ValidRow>> validQueue, AuthenticatedUser user)
+            throws InterruptedException {
+        List<ValidRow> chunk;
+        while ((chunk = take(validQueue, job)) != null && chunk != VALID_END) {
+            List<Order> orders = new ArrayList<>(chunk.size());
+            chunk.forEach(row -> orders.add(row.order()));
+            Map<String, Object> summary = orderService.createOrders(orders, user);
+
+            long success = 0;
+            for (Map<String, Object> result : (List<Map<String, Object>>) summary.get("results")) {
+                if (Boolean.TRUE.equals(result.get("success"))) {
+                    success++;
+                } else {
+                    job.rowFailed(chunk.get((Integer) result.get("index")).row(), String.valueOf(result.get("message")));
+                }
+            }
+            job.succeeded(success);
+        }
+    }
+
+    private static Columns parseHeader(List<String> header) {
+        if (header == null) {
+            throw new IllegalArgumentException("导入文件为空");
+        }
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            indexes.putIfAbsent(header.get(i).trim().replace("_", "").toLowerCase(Locale.ROOT), i);
+        }
+        return new Columns(requiredColumn(indexes, COLUMN_SENDER, "sender_info"),
+                requiredColumn(indexes, COLUMN_RECEIVER, "receiver_info"),
+                requiredColumn(indexes, COLUMN_ITEM_TYPE, "item_type"),
+                indexes.getOrDefault(COLUMN_STORE, -1));
+    }
+
+    private static int requiredColumn(Map<String, Integer> indexes, String key, String name) {
+        Integer index = indexes.get(key);
+        if (index == null) {
+            throw new IllegalArgumentException("缺少必填列：" + name);
+        }
+        return index;
+    }
+
+    /**
+     * 将一行转换为订单
+     *
+     * @return 校验失败原因，校验通过返回null
+     */
+    private static String toOrder(List<String> fields, Columns columns, StoreCatalog.Snapshot stores, Order order) {
+        order.setSenderInfo(field(fields, columns.sender()));
+        order.setReceiverInfo(field(fields, columns.receiver()));
+        order.setItemType(field(fields, columns.itemType()));
+        String storeId = field(fields, columns.store());
+        if (storeId != null) {
+            try {
+                order.setCurrentStoreId(Long.valueOf(storeId));
+            } catch (NumberFormatException e) {
+                return "门店ID格式错误：" + storeId;
+            }
+            if (stores.get(order.getCurrentStoreId()) == null) {
+                return "门店不存在：" + storeId;
+            }
+        }
+        return order.validate();
+    }
+
+    private static String field(List<String> fields, int index) {
+        if (index < 0 || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * 放入队列，队列满时等待；任务已失败时放弃并返回false
+     */
+    private static <T> boolean put(BlockingQueue<T> queue, T item, OrderImportJob job) throws InterruptedException {
+        while (!job.isAborted()) {
+            if (queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 从队列取出，队列空时等待；任务已失败时返回null
+     */
+    private static <T> T take(BlockingQueue<T> queue, OrderImportJob job) throws InterruptedException {
+        while (!job.isAborted()) {
+            T item = queue.poll(100, TimeUnit.MILLISECONDS);
+            if (item != null) {
+                return item;
+            }
+        }
+        return null;
+    }
+}
@@ -2,8 +2,23 @@ package com.example.express.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.example.express.entity.OperationLog;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 @Mapper
 public interface OperationLogMapper extends BaseMapper<OperationLog> {
+
+  /**
+   * 多行插入操作日志
+   */
+  @Insert("<script>"
+      + "INSERT INTO operation_log (operator_id, operation_type, target_id, detail, ip_address, created_at) VALUES "
+      + "<foreach collection='logs' item='log' separator=','>"
+      + "(#{log.operatorId}, #{log.operationType}, #{log.targetId}, #{log.detail}, #{log.ipAddress}, #{log.createdAt})"
+      + "</foreach>"
+      + "</script>")
+  int insertBatch(@Param("logs") List<OperationLog> logs);
 }
\ No newline at end of file
@@ -1,8 +1,21 @@
 package com.example.express.mapper;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
 import com.example.express.entity.Order;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 订单数据访问接口
@@ -11,4 +24,72 @@ import org.apache.ibatis.annotations.Mapper;
 public interface OrderMapper extends BaseMapper<Order> {
     // 继承BaseMapper后，已经有基本的CRUD方法
     // 如需自定义复杂查询，可在此添加方法
-}
\ No newline at end of file
+
+    /**
+     * 条件更新订单状态：仅当当前状态等于期望状态时更新
+     *
+     * @return 受影响行数，0表示订单不存在或状态已被修改
+     */
+    @Update("UPDATE express_order SET status = #{newStatus}, updated_at = NOW() "
+            + "WHERE order_id = #{orderId} AND status = #{expectedStatus}")
+    int compareAndSetStatus(@Param("orderId") Long orderId,
+                            @Param("expectedStatus") Integer expectedStatus,
+                            @Param("newStatus") Integer newStatus);
+
+    /**
+     * 加锁读取一批订单的状态和当前门店，用于批量状态变更
+     */
+    @Select("<script>"
+            + "SELECT order_id, status, current_store_id FROM express_order WHERE order_id IN "
+            + "<foreach collection='orderIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>"
+            + " FOR UPDATE"
+            + "</script>")
+    List<Order> selectStatusForUpdate(@Param("orderIds") Collection<Long> orderIds);
+
+    /**
+     * 集合更新一批订单的状态，门店ID为空时保留原门店
+     */
+    @Update("<script>"
+            + "UPDATE express_order SET status = #{newStatus}, "
+            + "<if test='storeId != null'>current_store_id = #{storeId}, </if>"
+            + "updated_at = NOW() WHERE order_id IN "
+            + "<foreach collection='orderIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>"
+            + "</script>")
+    int updateStatusBatch(@Param("orderIds") Collection<Long> orderIds,
+                          @Param("newStatus") Integer newStatus,
+                          @Param("storeId") Long storeId);
+
+    /**
+     * 以流式游标按主键顺序读取全部订单（MySQL需fetchSize为Integer.MIN_VALUE才会逐行读取）
+     * 需在事务内使用
+     */
+    @Select("SELECT * FROM express_order ORDER BY order_id")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<Order> scanAll();
+
+    /**
+     * 以流式游标按条件读取订单，需在事务内使用
+     */
+    @Select("SELECT * FROM express_order ${ew.customSqlSegment}")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<Order> scanByQuery(@Param(Constants.WRAPPER) Wrapper<Order> wrapper);
+
+    /**
+     * 一次分组聚合统计各状态订单数及其中指定时间之后创建的订单数
+     *
+     * @return 每个状态一行：status、total、created_since
+     */
+    @Select("SELECT status, COUNT(*) AS total, SUM(created_at >= #{since}) AS created_since "
+            + "FROM express_order GROUP BY status")
+    List<Map<String, Object>> countByStatus(@Param("since") LocalDateTime since);
+
+    /**
+     * 统计各门店未完成的订单数
+     *
+     * @param closedStatus 不计入的最小状态（已签收）
+     * @return 每个门店一行：store_id、total
+     */
+    @Select("SELECT current_store_id AS store_id, COUNT(*) AS total FROM express_order "
+            + "WHERE status < #{closedStatus} AND current_store_id IS NOT NULL GROUP BY current_store_id")
+    List<Map<String, Object>> countOpenByStore(@Param("closedStatus") int closedStatus);
+}
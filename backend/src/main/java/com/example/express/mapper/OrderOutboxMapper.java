@@ -0,0 +1,71 @@
+package com.example.express.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.example.express.entity.OrderOutbox;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 订单变更事件数据访问接口
+ * 每个下游消费者在order_outbox_offset中记录已处理到的事件ID
+ */
+@Mapper
+public interface OrderOutboxMapper extends BaseMapper<OrderOutbox> {
+
+  /**
+   * 多行插入变更事件
+   */
+  @Insert("<script>"
+      + "INSERT INTO order_outbox (order_id, event_type, old_status, new_status, store_id, created_at) VALUES "
+      + "<foreach collection='events' item='e' separator=','>"
+      + "(#{e.orderId}, #{e.eventType}, #{e.oldStatus}, #{e.newStatus}, #{e.storeId}, #{e.createdAt})"
+      + "</foreach>"
+      + "</script>")
+  int insertBatch(@Param("events") List<OrderOutbox> events);
+
+  /**
+   * 读取指定事件ID之后的事件
+   */
+  @Select("SELECT * FROM order_outbox WHERE event_id > #{afterId} ORDER BY event_id LIMIT #{limit}")
+  List<OrderOutbox> selectAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+
+  /**
+   * 初始化消费者位点（已存在时忽略）
+   */
+  @Insert("INSERT IGNORE INTO order_outbox_offset (consumer, last_event_id) VALUES (#{consumer}, 0)")
+  int initOffset(@Param("consumer") String consumer);
+
+  /**
+   * 锁定消费者位点，已被其他节点锁定时返回null
+   */
+  @Select("SELECT last_event_id FROM order_outbox_offset WHERE consumer = #{consumer} FOR UPDATE SKIP LOCKED")
+  Long lockOffset(@Param("consumer") String consumer);
+
+  @Update("UPDATE order_outbox_offset SET last_event_id = #{eventId} WHERE consumer = #{consumer}")
+  int updateOffset(@Param("consumer") String consumer, @Param("eventId") long eventId);
+
+  /**
+   * 所有消费者中最小的位点
+   */
+  @Select("<script>"
+      + "SELECT MIN(last_event_id) FROM order_outbox_offset WHERE consumer IN "
+      + "<foreach collection='consumers' item='c' open='(' separator=',' close=')'>#{c}</foreach>"
+      + "</script>")
+  Long selectMinOffset(@Param("consumers") Collection<String> consumers);
+
+  @Select("SELECT MAX(event_id) FROM order_outbox")
+  Long selectMaxEventId();
+
+  /**
+   * 清理所有消费者都已处理的事件
+   */
+  @Delete("DELETE FROM order_outbox WHERE event_id <= #{eventId} LIMIT #{limit}")
+  int deleteConsumed(@Param("eventId") long eventId, @Param("limit") int limit);
+}
@@ -2,8 +2,23 @@ package com.example.express.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.example.express.entity.OrderStatusLog;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 @Mapper
 public interface OrderStatusLogMapper extends BaseMapper<OrderStatusLog> {
+
+  /**
+   * 多行插入订单状态变更日志
+   */
+  @Insert("<script>"
+      + "INSERT INTO order_status_log (order_id, old_status, new_status, store_id, operator_id, created_at) VALUES "
+      + "<foreach collection='logs' item='log' separator=','>"
+      + "(#{log.orderId}, #{log.oldStatus}, #{log.newStatus}, #{log.storeId}, #{log.operatorId}, #{log.createdAt})"
+      + "</foreach>"
+      + "</script>")
+  int insertBatch(@Param("logs") List<OrderStatusLog> logs);
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.example.express.outbox;
+
+import com.example.express.entity.Order;
+import com.example.express.entity.OrderOutbox;
+
+import java.util.List;
+
+/**
+ * 订单变更下游消费者
+ * 事件至少投递一次，处理失败时整批重试，实现需保证幂等或可被定期对账修正
+ */
+public interface OrderChangeListener {
+
+    /**
+     * 消费者名称，用于记录消费位点
+     */
+    String name();
+
+    /**
+     * 处理一批按事件ID排序的变更事件，抛出异常时位点不前进
+     */
+    void onOrderChanges(List<OrderOutbox> events);
+
+    /**
+     * 全量回填：按批次接收现有订单，默认不处理
+     */
+    default void onBackfill(List<Order> orders) {
+    }
+
+    /**
+     * 全量回填全部完成后调用，默认不处理
+     *
+     * @param total 回填的订单数
+     */
+    default void onBackfillCompleted(long total) {
+    }
+}
@@ -0,0 +1,345 @@
+package com.example.express.outbox;
+
+import com.example.express.entity.Order;
+import com.example.express.entity.OrderOutbox;
+import com.example.express.mapper.OrderMapper;
+import com.example.express.mapper.OrderOutboxMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 订单变更事件中继
+ * 定时按消费者位点分批读取order_outbox并投递给各个OrderChangeListener：
+ * - 每个消费者独立记录位点，某个下游故障不影响其他下游
+ * - 位点行以FOR UPDATE SKIP LOCKED锁定，多节点部署时同一消费者同时只有一个节点在投递
+ * - 投递成功后才前进位点（至少一次）；事件ID出现空洞时等待未提交的事务，
+ *   本节点在同一空洞上等待超时后先行跳过，被跳过的事件ID在保留期内持续重查，迟到提交的事件补投
+ */
+@Slf4j
+@Component
+public class OrderOutboxRelay {
+
+    private static final int PURGE_LIMIT = 5000;
+
+    /**
+     * 每个消费者最多跟踪的被跳过事件ID数，超出的部分只记录日志
+     */
+    private static final int MAX_SKIPPED = 10_000;
+
+    @Autowired
+    private OrderOutboxMapper orderOutboxMapper;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    private List<OrderChangeListener> listeners = new ArrayList<>();
+
+    @Value("${app.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.outbox.gap-timeout-ms:60000}")
+    private long gapTimeoutMs;
+
+    @Value("${app.outbox.skipped-retention-ms:3600000}")
+    private long skippedRetentionMs;
+
+    @Value("${app.outbox.backfill-batch-size:1000}")
+    private int backfillBatchSize;
+
+    private final Set<String> initializedConsumers = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, AtomicLong> lagMillis = new HashMap<>();
+
+    private final Map<String, AtomicLong> pendingEvents = new HashMap<>();
+
+    private final Map<String, Counter> deliveredCounters = new HashMap<>();
+
+    private final Map<String, Counter> failureCounters = new HashMap<>();
+
+    private final Map<String, Counter> skippedCounters = new HashMap<>();
+
+    /**
+     * 各消费者当前等待的空洞
+     */
+    private final Map<String, GapWait> gapWaits = new ConcurrentHashMap<>();
+
+    /**
+     * 各消费者被跳过的事件ID及跳过时间
+     */
+    private final Map<String, NavigableMap<Long, Long>> skippedEvents = new ConcurrentHashMap<>();
+
+    /**
+     * 空洞处的事件ID及本节点开始等待的时间（按本节点时钟计，与事件的created_at无关）
+     */
+    private record GapWait(long eventId, long since) {
+    }
+
+    @PostConstruct
+    public void init() {
+        for (OrderChangeListener listener : listeners) {
+            String name = listener.name();
+            AtomicLong lag = new AtomicLong();
+            AtomicLong pending = new AtomicLong();
+            lagMillis.put(name, lag);
+            pendingEvents.put(name, pending);
+            Gauge.builder("order.outbox.lag.seconds", lag, value -> value.get() / 1000.0)
+                    .tag("consumer", name)
+                    .register(meterRegistry);
+            Gauge.builder("order.outbox.pending", pending, AtomicLong::get)
+                    .tag("consumer", name)
+                    .register(meterRegistry);
+            deliveredCounters.put(name, Counter.builder("order.outbox.delivered")
+                    .tag("consumer", name)
+                    .register(meterRegistry));
+            failureCounters.put(name, Counter.builder("order.outbox.failures")
+                    .tag("consumer", name)
+                    .register(meterRegistry));
+            skippedCounters.put(name, Counter.builder("order.outbox.skipped")
+                    .tag("consumer", name)
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * 定时投递变更事件
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:500}")
+    public void relay() {
+        for (OrderChangeListener listener : listeners) {
+            try {
+                // 单次最多连续投递若干批，避免某个消费者长时间占用调度线程
+                for (int i = 0; i < 10; i++) {
+                    if (!deliverBatch(listener)) {
+                        break;
+                    }
+                }
+            } catch (Exception e) {
+                failureCounters.get(listener.name()).increment();
+                log.warn("订单变更事件投递失败，消费者：{}，稍后重试：{}", listener.name(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 清理所有消费者均已处理的事件
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.purge-interval-ms:60000}")
+    public void purge() {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        try {
+            List<String> consumers = listeners.stream().map(OrderChangeListener::name).toList();
+            Long minOffset = orderOutboxMapper.selectMinOffset(consumers);
+            if (minOffset == null || minOffset <= 0) {
+                return;
+            }
+            // 保留仍在等待补投的事件ID之后的事件，迟到提交的事件不会在补投前被清理
+            long purgeUpTo = minOffset;
+            for (NavigableMap<Long, Long> skipped : skippedEvents.values()) {
+                Map.Entry<Long, Long> first = skipped.firstEntry();
+                if (first != null) {
+                    purgeUpTo = Math.min(purgeUpTo, first.getKey() - 1);
+                }
+            }
+            if (purgeUpTo <= 0) {
+                return;
+            }
+            int deleted;
+            do {
+                deleted = orderOutboxMapper.deleteConsumed(purgeUpTo, PURGE_LIMIT);
+            } while (deleted == PURGE_LIMIT);
+        } catch (Exception e) {
+            log.warn("清理订单变更事件失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 全量回填：以游标流式读取订单表，分批交给指定消费者
+     *
+     * @return 回填的订单数
+     */
+    public long backfill(String consumer) {
+        OrderChangeListener listener = listeners.stream()
+                .filter(l -> l.name().equals(consumer))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("未知的消费者：" + consumer));
+
+        // 游标需要在同一个会话（事务）内读取
+        Long count = transactionTemplate.execute(status -> {
+            long total = 0;
+            List<Order> batch = new ArrayList<>(backfillBatchSize);
+            try (Cursor<Order> cursor = orderMapper.scanAll()) {
+                for (Order order : cursor) {
+                    batch.add(order);
+                    if (batch.size() >= backfillBatchSize) {
+                        listener.onBackfill(batch);
+                        total += batch.size();
+                        batch.clear();
+                    }
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("读取订单游标失败", e);
+            }
+            if (!batch.isEmpty()) {
+                listener.onBackfill(batch);
+                total += batch.size();
+            }
+            return total;
+        });
+        long total = count == null ? 0 : count;
+        listener.onBackfillCompleted(total);
+        log.info("订单全量回填完成，消费者：{}，共 {} 条", consumer, total);
+        return total;
+    }
+
+    /**
+     * 投递一批事件
+     *
+     * @return 是否可能还有待投递的事件
+     */
+    private boolean deliverBatch(OrderChangeListener listener) {
+        String name = listener.name();
+        if (!initializedConsumers.contains(name)) {
+            orderOutboxMapper.initOffset(name);
+            initializedConsumers.add(name);
+        }
+
+        Boolean hasMore = transactionTemplate.execute(status -> {
+            Long offset = orderOutboxMapper.lockOffset(name);
+            if (offset == null) {
+                // 其他节点正在投递该消费者
+                return false;
+            }
+
+            redeliverSkipped(listener);
+            List<OrderOutbox> events = orderOutboxMapper.selectAfter(offset, batchSize);
+            List<OrderOutbox> deliverable = contiguousPrefix(name, events, offset);
+            updateMetrics(name, offset, events.isEmpty() ? null : events.get(0));
+            if (deliverable.isEmpty()) {
+                return false;
+            }
+
+            listener.onOrderChanges(deliverable);
+            long lastEventId = deliverable.get(deliverable.size() - 1).getEventId();
+            orderOutboxMapper.updateOffset(name, lastEventId);
+            deliveredCounters.get(name).increment(deliverable.size());
+            return deliverable.size() == events.size() && events.size() == batchSize;
+        });
+        return Boolean.TRUE.equals(hasMore);
+    }
+
+    /**
+     * 取事件ID连续的前缀：遇到空洞时认为空洞对应的事务尚未提交，先停在空洞处；
+     * 本节点在同一空洞上等待超过gapTimeoutMs后跳过空洞，并记录被跳过的事件ID以便补投
+     */
+    private List<OrderOutbox> contiguousPrefix(String name, List<OrderOutbox> events, long offset) {
+        long expected = offset + 1;
+        for (int i = 0; i < events.size(); i++) {
+            OrderOutbox event = events.get(i);
+            if (event.getEventId() != expected) {
+                if (!gapExpired(name, expected)) {
+                    return events.subList(0, i);
+                }
+                skip(name, expected, event.getEventId() - 1);
+            }
+            expected = event.getEventId() + 1;
+        }
+        return events;
+    }
+
+    /**
+     * 本节点在该空洞上的等待是否已超时；首次遇到该空洞时开始计时
+     */
+    private boolean gapExpired(String name, long eventId) {
+        long now = System.currentTimeMillis();
+        GapWait wait = gapWaits.get(name);
+        if (wait == null || wait.eventId() != eventId) {
+            gapWaits.put(name, new GapWait(eventId, now));
+            return false;
+        }
+        return now - wait.since() >= gapTimeoutMs;
+    }
+
+    private void skip(String name, long fromId, long toId) {
+        log.warn("订单变更事件ID {}~{} 等待 {} 秒仍未提交，消费者 {} 先行跳过，{} 分钟内提交的将补投",
+                fromId, toId, gapTimeoutMs / 1000, name, skippedRetentionMs / 60_000);
+        NavigableMap<Long, Long> skipped = skippedEvents.computeIfAbsent(name, k -> new ConcurrentSkipListMap<>());
+        long now = System.currentTimeMillis();
+        for (long id = fromId; id <= toId; id++) {
+            if (skipped.size() >= MAX_SKIPPED) {
+                log.error("消费者 {} 待补投的事件ID过多，事件ID {}~{} 不再跟踪，迟到提交时将不会投递", name, id, toId);
+                break;
+            }
+            if (skipped.putIfAbsent(id, now) == null) {
+                skippedCounters.get(name).increment();
+            }
+        }
+    }
+
+    /**
+     * 补投此前被跳过、之后才提交的事件（其ID小于位点，投递顺序晚于后续事件）；
+     * 超过保留时间仍未出现的事件ID视为事务已回滚，不再重查
+     */
+    private void redeliverSkipped(OrderChangeListener listener) {
+        NavigableMap<Long, Long> skipped = skippedEvents.get(listener.name());
+        if (skipped == null || skipped.isEmpty()) {
+            return;
+        }
+        long expireBefore = System.currentTimeMillis() - skippedRetentionMs;
+        skipped.values().removeIf(skippedAt -> skippedAt < expireBefore);
+        if (skipped.isEmpty()) {
+            return;
+        }
+        List<OrderOutbox> late = new ArrayList<>(orderOutboxMapper.selectBatchIds(skipped.keySet()));
+        if (late.isEmpty()) {
+            return;
+        }
+        late.sort(Comparator.comparing(OrderOutbox::getEventId));
+        listener.onOrderChanges(late);
+        late.forEach(event -> skipped.remove(event.getEventId()));
+        deliveredCounters.get(listener.name()).increment(late.size());
+        log.warn("已补投迟到提交的订单变更事件 {} 条，消费者：{}", late.size(), listener.name());
+    }
+
+    private void updateMetrics(String name, long offset, OrderOutbox oldestPending) {
+        if (oldestPending == null) {
+            lagMillis.get(name).set(0);
+        } else {
+            lagMillis.get(name).set(Math.max(0,
+                    Duration.between(oldestPending.getCreatedAt(), LocalDateTime.now()).toMillis()));
+        }
+        Long maxEventId = orderOutboxMapper.selectMaxEventId();
+        pendingEvents.get(name).set(maxEventId == null ? 0 : Math.max(0, maxEventId - offset));
+    }
+}
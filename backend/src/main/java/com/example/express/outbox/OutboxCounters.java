@@ -0,0 +1,85 @@
+package com.example.express.outbox;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 由订单变更事件增量维护、定时与数据库对账的Redis计数（哈希）
+ * - 对账以数据库快照整体替换计数，哈希中的watermark为快照可见的最大事件ID，不大于watermark的事件已包含在快照中
+ * - 大于watermark的事件按事件ID去重：已计入的事件ID记录在集合（计数键加":applied"）中，对账时清空。
+ *   重复投递的事件不会重复计数；事务提交晚于更大ID的事件（中继补投的缺口事件）迟到时仍会计入
+ */
+public final class OutboxCounters {
+
+    public static final String FIELD_WATERMARK = "watermark";
+
+    /**
+     * 按事件应用增量：ARGV为(事件ID, 字段, 增量)三元组，同一事件可有多个三元组；
+     * 计数尚未初始化（无watermark）时不处理，等待对账写入完整快照。返回本次计入的事件数
+     */
+    private static final DefaultRedisScript<Long> APPLY_SCRIPT = new DefaultRedisScript<>(
+            "local current = redis.call('HGET', KEYS[1], 'watermark') "
+                    + "if not current then return -1 end "
+                    + "local watermark = tonumber(current) "
+                    + "local fresh = {} "
+                    + "local applied = 0 "
+                    + "for i = 1, #ARGV, 3 do "
+                    + "  local id = ARGV[i] "
+                    + "  if tonumber(id) > watermark then "
+                    + "    if fresh[id] == nil then "
+                    + "      fresh[id] = redis.call('SADD', KEYS[2], id) == 1 "
+                    + "      if fresh[id] then applied = applied + 1 end "
+                    + "    end "
+                    + "    if fresh[id] then redis.call('HINCRBY', KEYS[1], ARGV[i + 1], ARGV[i + 2]) end "
+                    + "  end "
+                    + "end "
+                    + "return applied", Long.class);
+
+    /**
+     * 以对账快照整体替换计数，并清空已计入的事件ID
+     */
+    private static final DefaultRedisScript<Long> REPLACE_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[1], KEYS[2]) "
+                    + "redis.call('HSET', KEYS[1], unpack(ARGV)) "
+                    + "return 1", Long.class);
+
+    private OutboxCounters() {
+    }
+
+    /**
+     * 按事件应用增量
+     *
+     * @param deltas (事件ID, 字段, 增量)三元组
+     */
+    public static void apply(StringRedisTemplate redis, String key, List<String> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        redis.execute(APPLY_SCRIPT, List.of(key, appliedKey(key)), deltas.toArray());
+    }
+
+    /**
+     * 以对账快照替换计数
+     *
+     * @param watermark 快照可见的最大事件ID
+     * @param fields    计数字段及取值
+     */
+    public static void replace(StringRedisTemplate redis, String key, long watermark, Map<String, String> fields) {
+        List<String> args = new ArrayList<>(fields.size() * 2 + 2);
+        args.add(FIELD_WATERMARK);
+        args.add(String.valueOf(watermark));
+        fields.forEach((field, value) -> {
+            args.add(field);
+            args.add(value);
+        });
+        redis.execute(REPLACE_SCRIPT, List.of(key, appliedKey(key)), args.toArray());
+    }
+
+    private static String appliedKey(String key) {
+        return key + ":applied";
+    }
+}
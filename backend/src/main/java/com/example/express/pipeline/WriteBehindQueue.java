@@ -0,0 +1,405 @@
+package com.example.express.pipeline;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 异步批量写入队列（write-behind）
+ * 请求线程只负责入队，后台线程按批次大小或时间间隔合并写库。
+ *
+ * - 背压：队列有界，入队最多等待offerTimeoutMs，仍然满时直接写入本地溢出文件，不阻塞请求线程
+ * - 容灾：批量写库失败的数据写入溢出文件（每行一条JSON），定期重放（不论队列是否空闲），数据库故障期间不丢数据
+ * - 坏数据：整批失败时二分重试定位到单行，数据库可用但单独写入仍失败的行写入死信文件，不再重放，避免一行拖住整批
+ * - 停机：stop()时停止接收新数据，排空队列后退出，剩余数据写入溢出文件
+ * - 事务：在事务中提交的数据在事务提交后才入队，回滚时丢弃
+ */
+@Slf4j
+public class WriteBehindQueue<T> {
+
+    /**
+     * 检查并重放溢出文件的间隔；队列持续繁忙时也按此间隔在两批之间重放，避免溢出文件只增不减
+     */
+    private static final long REPLAY_INTERVAL_MS = 30_000L;
+
+    /**
+     * 连续这么多行单独写入失败且期间没有任何写入成功时，视为数据库不可用，本轮剩余数据不再尝试
+     */
+    private static final int MAX_CONSECUTIVE_ROW_FAILURES = 3;
+
+    private final String name;
+    private final Class<T> type;
+    private final Consumer<List<T>> writer;
+    private final BlockingQueue<T> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final Path spillFile;
+    private final Path replayFile;
+    private final Path deadLetterFile;
+    private final ObjectMapper objectMapper;
+    private final Object spillLock = new Object();
+
+    private final DistributionSummary batchSizeSummary;
+    private final Timer flushTimer;
+    private final Counter spilledCounter;
+    private final Counter replayedCounter;
+    private final Counter deadLetterCounter;
+
+    private volatile boolean running;
+    /**
+     * 最近一次写库成功的时间（System.nanoTime）
+     */
+    private volatile long lastSuccessNanos = Long.MIN_VALUE;
+    private Thread flusher;
+
+    public WriteBehindQueue(String name, Class<T> type, Consumer<List<T>> writer, int capacity, int batchSize,
+                            long flushIntervalMs, long offerTimeoutMs, Path spillDir,
+                            ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.type = type;
+        this.writer = writer;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.spillFile = spillDir.resolve(name + ".ndjson");
+        this.replayFile = spillDir.resolve(name + ".ndjson.replay");
+        this.deadLetterFile = spillDir.resolve(name + ".dead.ndjson");
+        this.objectMapper = objectMapper;
+
+        Gauge.builder("log.pipeline.queue.depth", queue, BlockingQueue::size)
+                .tag("queue", name)
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("log.pipeline.batch.size")
+                .tag("queue", name)
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("log.pipeline.flush.latency")
+                .tag("queue", name)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.spilledCounter = Counter.builder("log.pipeline.spilled")
+                .tag("queue", name)
+                .register(meterRegistry);
+        this.replayedCounter = Counter.builder("log.pipeline.replayed")
+                .tag("queue", name)
+                .register(meterRegistry);
+        this.deadLetterCounter = Counter.builder("log.pipeline.dead_letter")
+                .tag("queue", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 启动后台写入线程
+     */
+    public void start() throws IOException {
+        Files.createDirectories(spillFile.getParent());
+        running = true;
+        flusher = new Thread(this::runLoop, "write-behind-" + name);
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * 停止接收新数据，排空队列后退出
+     */
+    public void stop() throws InterruptedException {
+        running = false;
+        if (flusher != null) {
+            flusher.join(10_000L);
+        }
+        // 超时仍未写完的数据落盘，下次启动时重放
+        List<T> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            spill(remaining);
+        }
+    }
+
+    /**
+     * 提交一条数据
+     */
+    public void submit(T item) {
+        submitAll(List.of(item));
+    }
+
+    /**
+     * 提交多条数据
+     */
+    public void submitAll(Collection<T> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(items);
+                }
+            });
+        } else {
+            enqueue(items);
+        }
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    private void enqueue(Collection<T> items) {
+        List<T> rejected = null;
+        for (T item : items) {
+            boolean accepted = false;
+            if (running) {
+                try {
+                    accepted = queue.offer(item, offerTimeoutMs, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (!accepted) {
+                if (rejected == null) {
+                    rejected = new ArrayList<>();
+                }
+                rejected.add(item);
+            }
+        }
+        // 队列已满或已停止：直接落盘，交给后台线程稍后重放
+        if (rejected != null) {
+            log.warn("写入队列[{}]已满，{} 条数据写入溢出文件", name, rejected.size());
+            spill(rejected);
+        }
+    }
+
+    private void runLoop() {
+        List<T> batch = new ArrayList<>(batchSize);
+        replaySpill(System.nanoTime());
+        long lastReplay = System.currentTimeMillis();
+        while (running || !queue.isEmpty()) {
+            try {
+                T first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                long iterationStart = System.nanoTime();
+                if (first != null) {
+                    // 攒批：直到达到批次大小或等待超过刷新间隔
+                    batch.add(first);
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                    while (batch.size() < batchSize) {
+                        queue.drainTo(batch, batchSize - batch.size());
+                        long remaining = deadline - System.nanoTime();
+                        if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                            break;
+                        }
+                        T next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                    flush(batch);
+                    batch.clear();
+                }
+                if (System.currentTimeMillis() - lastReplay > REPLAY_INTERVAL_MS) {
+                    lastReplay = System.currentTimeMillis();
+                    // 本轮刚写入成功的批次也算作数据库可用的依据
+                    replaySpill(iterationStart);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("写入队列[{}]处理异常", name, e);
+            }
+        }
+        if (!batch.isEmpty()) {
+            spill(batch);
+        }
+    }
+
+    private void flush(List<T> batch) {
+        long start = System.nanoTime();
+        WritePass pass = new WritePass(start);
+        List<T> failed = new ArrayList<>();
+        try {
+            write(batch, failed, pass);
+            batchSizeSummary.record(pass.written);
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (!failed.isEmpty()) {
+            log.error("写入队列[{}]批量写库失败，{} 条数据未写入", name, failed.size(), pass.lastError);
+            settle(failed, pass);
+        }
+    }
+
+    /**
+     * 写入一批数据；整批失败时二分重试，单独写入仍失败的行放入failed。
+     * 已判定数据库不可用时不再尝试，直接放入failed
+     */
+    private void write(List<T> rows, List<T> failed, WritePass pass) {
+        if (pass.unavailable) {
+            failed.addAll(rows);
+            return;
+        }
+        try {
+            writer.accept(rows);
+            lastSuccessNanos = System.nanoTime();
+            pass.written += rows.size();
+            pass.consecutiveRowFailures = 0;
+            return;
+        } catch (Exception e) {
+            pass.lastError = e;
+        }
+        if (rows.size() == 1) {
+            failed.add(rows.get(0));
+            if (++pass.consecutiveRowFailures >= MAX_CONSECUTIVE_ROW_FAILURES && !pass.succeeded()) {
+                pass.unavailable = true;
+            }
+            return;
+        }
+        int mid = rows.size() / 2;
+        write(new ArrayList<>(rows.subList(0, mid)), failed, pass);
+        write(new ArrayList<>(rows.subList(mid, rows.size())), failed, pass);
+    }
+
+    /**
+     * 处理写入失败的数据：本轮数据库确实接受过写入时，单独写入仍失败的行是坏数据，写入死信文件；
+     * 否则无法区分坏数据和数据库故障，全部写入溢出文件稍后重放
+     */
+    private void settle(List<T> failed, WritePass pass) {
+        if (pass.succeeded() && !pass.unavailable) {
+            log.error("写入队列[{}]{} 条数据单独写入仍失败，写入死信文件 {}", name, failed.size(), deadLetterFile);
+            append(deadLetterFile, failed, deadLetterCounter);
+        } else {
+            spill(failed);
+        }
+    }
+
+    /**
+     * 追加写入溢出文件，每行一条JSON
+     */
+    private void spill(List<T> items) {
+        append(spillFile, items, spilledCounter);
+    }
+
+    private void append(Path file, List<T> items, Counter counter) {
+        synchronized (spillLock) {
+            try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (T item : items) {
+                    out.write(objectMapper.writeValueAsString(item));
+                    out.newLine();
+                }
+                counter.increment(items.size());
+            } catch (IOException e) {
+                log.error("写入队列[{}]写文件 {} 失败，丢弃 {} 条数据", name, file, items.size(), e);
+            }
+        }
+    }
+
+    /**
+     * 重放溢出文件中的数据，写库失败的部分重新落盘或写入死信文件
+     *
+     * @param passStart 本轮开始时间，此后的任何写入成功都说明数据库可用
+     */
+    private void replaySpill(long passStart) {
+        synchronized (spillLock) {
+            try {
+                if (!Files.exists(replayFile)) {
+                    if (!Files.exists(spillFile)) {
+                        return;
+                    }
+                    Files.move(spillFile, replayFile, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } catch (IOException e) {
+                log.error("写入队列[{}]准备重放溢出文件失败", name, e);
+                return;
+            }
+        }
+
+        WritePass pass = new WritePass(passStart);
+        List<T> batch = new ArrayList<>(batchSize);
+        List<T> failed = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(replayFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    batch.add(objectMapper.readValue(line, type));
+                } catch (JsonProcessingException e) {
+                    log.warn("写入队列[{}]跳过无法解析的溢出数据：{}", name, line);
+                    continue;
+                }
+                if (batch.size() >= batchSize) {
+                    replayBatch(batch, failed, pass);
+                }
+            }
+            replayBatch(batch, failed, pass);
+            Files.delete(replayFile);
+        } catch (IOException e) {
+            log.error("写入队列[{}]读取溢出文件失败", name, e);
+            return;
+        }
+        if (!failed.isEmpty()) {
+            log.warn("写入队列[{}]重放溢出数据失败 {} 条", name, failed.size(), pass.lastError);
+            settle(failed, pass);
+        }
+    }
+
+    private void replayBatch(List<T> batch, List<T> failed, WritePass pass) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        int before = pass.written;
+        write(batch, failed, pass);
+        replayedCounter.increment(pass.written - before);
+        batch.clear();
+    }
+
+    /**
+     * 一次刷新或重放的写入状态
+     */
+    private class WritePass {
+        private final long startNanos;
+        private int written;
+        private int consecutiveRowFailures;
+        private boolean unavailable;
+        private Exception lastError;
+
+        WritePass(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * 本轮开始后数据库是否接受过写入
+         */
+        boolean succeeded() {
+            long last = lastSuccessNanos;
+            return last != Long.MIN_VALUE && last - startNanos >= 0;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.express.ratelimit;
+
+import com.example.express.common.ApiResponse;
+import com.example.express.security.AuthenticatedUser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * 限流过滤器
+ * 位于JWT认证过滤器之后，按配置的规则匹配请求，超出限额时直接返回429，不再进入后续过滤器和控制器
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Autowired
+    private RateLimitProperties properties;
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RateLimitProperties.Rule rule = properties.isEnabled() ? match(request) : null;
+        if (rule == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        boolean allowed = rateLimiter.tryAcquire(rule, resolveKey(rule, request));
+        meterRegistry.counter("ratelimit.requests", "rule", rule.getName(),
+                "result", allowed ? "allowed" : "denied").increment();
+        if (allowed) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Retry-After",
+                String.valueOf((long) Math.ceil(1 / Math.max(rule.getRefillPerSecond(), 0.001))));
+
+        ApiResponse<?> apiResponse = ApiResponse.error(HttpStatus.TOO_MANY_REQUESTS.value(), "请求过于频繁，请稍后再试");
+
+        PrintWriter writer = response.getWriter();
+        writer.write(objectMapper.writeValueAsString(apiResponse));
+        writer.flush();
+    }
+
+    private RateLimitProperties.Rule match(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (RateLimitProperties.Rule rule : properties.getRules()) {
+            if (!rule.getMethods().isEmpty()
+                    && rule.getMethods().stream().noneMatch(method -> method.equalsIgnoreCase(request.getMethod()))) {
+                continue;
+            }
+            if (pathMatcher.match(rule.getPath(), path)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按登录用户限流时使用用户ID，否则使用客户端IP
+     */
+    private static String resolveKey(RateLimitProperties.Rule rule, HttpServletRequest request) {
+        if ("principal".equalsIgnoreCase(rule.getKey())) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+                return "u:" + user.getUserId();
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
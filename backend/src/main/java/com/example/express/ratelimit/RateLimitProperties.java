@@ -0,0 +1,91 @@
+package com.example.express.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 限流配置（app.rate-limit）
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    /**
+     * 是否启用限流
+     */
+    private boolean enabled = true;
+
+    /**
+     * 本地令牌租约有效期，过期未用完的令牌作废
+     */
+    private long leaseTtlMs = 1000;
+
+    /**
+     * 每个节点最多保留的本地令牌桶数量
+     */
+    private int localCapacity = 10000;
+
+    /**
+     * 向Redis租借令牌的超时时间，超时按Redis不可用处理
+     */
+    private long redisTimeoutMs = 100;
+
+    /**
+     * 连续多少次访问Redis失败后熔断，熔断期间直接使用本地令牌桶
+     */
+    private int breakerFailureThreshold = 5;
+
+    /**
+     * 熔断后的冷却时间
+     */
+    private long breakerOpenMs = 10000;
+
+    /**
+     * 限流规则，按顺序匹配，第一条匹配的规则生效
+     */
+    private List<Rule> rules = new ArrayList<>();
+
+    @Data
+    public static class Rule {
+
+        /**
+         * 规则名称，用于Redis键和监控指标
+         */
+        private String name;
+
+        /**
+         * 路径（Ant风格）
+         */
+        private String path;
+
+        /**
+         * 请求方法，为空时匹配所有方法
+         */
+        private List<String> methods = new ArrayList<>();
+
+        /**
+         * 限流维度：ip 按客户端IP；principal 按登录用户，未登录时按IP
+         */
+        private String key = "ip";
+
+        /**
+         * 全局令牌桶容量（允许的突发请求数）
+         */
+        private long capacity = 10;
+
+        /**
+         * 全局令牌桶每秒补充的令牌数
+         */
+        private double refillPerSecond = 1;
+
+        /**
+         * 每次从全局令牌桶租借到本地的令牌数，越大访问Redis越少，但各节点间的配额越不均匀
+         */
+        private int leaseSize = 1;
+    }
+}
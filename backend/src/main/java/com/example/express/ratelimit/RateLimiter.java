@@ -0,0 +1,216 @@
+package com.example.express.ratelimit;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import com.example.express.util.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分布式令牌桶限流
+ * 全局令牌桶保存在Redis中，由Lua脚本原子地补充和扣减；各节点按限流键维护本地令牌桶，
+ * 一次从全局令牌桶租借若干令牌，在租约有效期内本地扣减，用完或过期后再向Redis租借。
+ * 全局令牌桶已空时记住预计补充出令牌的时间，此前的请求在本地直接拒绝，不访问Redis。
+ * 访问Redis有单独的短超时，连续失败后熔断；Redis不可用或熔断期间退化为按规则速率的单节点本地令牌桶
+ */
+@Slf4j
+@Component
+public class RateLimiter {
+
+    private static final String KEY_PREFIX = "ratelimit:";
+
+    /**
+     * 访问Redis的线程数及排队上限，排满时按Redis不可用处理
+     */
+    private static final int REDIS_THREADS = 16;
+    private static final int REDIS_QUEUE_CAPACITY = 256;
+
+    /**
+     * 按Redis服务器时间补充令牌后租借：ARGV为(容量, 每秒补充数, 租借数)，
+     * 返回实际租到的令牌数；没有令牌时返回负数，其绝对值为补充出一个令牌还需的毫秒数
+     */
+    private static final DefaultRedisScript<Long> LEASE_SCRIPT = new DefaultRedisScript<>(
+            "local capacity = tonumber(ARGV[1]) "
+                    + "local rate = tonumber(ARGV[2]) "
+                    + "local want = tonumber(ARGV[3]) "
+                    + "local time = redis.call('TIME') "
+                    + "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000) "
+                    + "local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts') "
+                    + "local tokens = tonumber(state[1]) or capacity "
+                    + "local ts = tonumber(state[2]) or now "
+                    + "tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate / 1000) "
+                    + "local granted = math.min(want, math.floor(tokens)) "
+                    + "tokens = tokens - granted "
+                    + "redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(now)) "
+                    + "redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / rate * 1000) + 1000) "
+                    + "if granted > 0 then return granted end "
+                    + "return -math.max(1, math.ceil((1 - tokens) * 1000 / rate))", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RateLimitProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private LRUCache<String, LocalBucket> buckets;
+
+    private ThreadPoolExecutor redisExecutor;
+
+    private CircuitBreaker circuitBreaker;
+
+    /**
+     * 本地令牌桶：租约内的令牌、全局令牌桶为空的截止时间，以及Redis不可用时使用的单节点令牌桶
+     */
+    private static final class LocalBucket {
+        private long leased;
+        private long leaseExpiresAt;
+        private long emptyUntil;
+        private double fallbackTokens = -1;
+        private long fallbackTimestamp;
+    }
+
+    @PostConstruct
+    public void init() {
+        buckets = CacheUtil.newLRUCache(properties.getLocalCapacity());
+        AtomicInteger threadIndex = new AtomicInteger();
+        redisExecutor = new ThreadPoolExecutor(REDIS_THREADS, REDIS_THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(REDIS_QUEUE_CAPACITY), runnable -> {
+            Thread thread = new Thread(runnable, "rate-limit-redis-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        redisExecutor.allowCoreThreadTimeOut(true);
+        circuitBreaker = new CircuitBreaker("rate-limit-redis", properties.getBreakerFailureThreshold(),
+                properties.getBreakerOpenMs());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        redisExecutor.shutdownNow();
+    }
+
+    /**
+     * 取得或创建本地令牌桶；创建时加锁，避免并发请求各自创建桶导致租约和空桶状态丢失
+     */
+    private LocalBucket localBucket(String bucketKey) {
+        LocalBucket bucket = buckets.get(bucketKey, false);
+        if (bucket != null) {
+            return bucket;
+        }
+        synchronized (buckets) {
+            bucket = buckets.get(bucketKey, false);
+            if (bucket == null) {
+                bucket = new LocalBucket();
+                buckets.put(bucketKey, bucket);
+            }
+            return bucket;
+        }
+    }
+
+    /**
+     * 尝试获取一个令牌
+     *
+     * @param rule 限流规则
+     * @param key  限流键（IP或用户ID）
+     */
+    public boolean tryAcquire(RateLimitProperties.Rule rule, String key) {
+        String bucketKey = rule.getName() + ":" + key;
+        LocalBucket bucket = localBucket(bucketKey);
+
+        long now = System.currentTimeMillis();
+        synchronized (bucket) {
+            if (bucket.leased > 0 && now < bucket.leaseExpiresAt) {
+                bucket.leased--;
+                return true;
+            }
+            // 全局令牌桶已空，预计补充出令牌之前直接拒绝
+            if (now < bucket.emptyUntil) {
+                return false;
+            }
+        }
+
+        // 本地令牌用完，向全局令牌桶租借（不持有本地锁）
+        if (!circuitBreaker.allowRequest()) {
+            meterRegistry.counter("ratelimit.leases", "rule", rule.getName(), "result", "rejected").increment();
+            return acquireFallback(bucket, rule, now);
+        }
+        long granted;
+        try {
+            granted = lease(rule, bucketKey);
+            circuitBreaker.recordSuccess();
+            meterRegistry.counter("ratelimit.leases", "rule", rule.getName(),
+                    "result", granted > 0 ? "granted" : "empty").increment();
+        } catch (Exception e) {
+            circuitBreaker.recordFailure();
+            meterRegistry.counter("ratelimit.leases", "rule", rule.getName(), "result", "error").increment();
+            log.debug("限流租借令牌失败，使用本地令牌桶：{}", e.getMessage());
+            return acquireFallback(bucket, rule, now);
+        }
+
+        if (granted <= 0) {
+            synchronized (bucket) {
+                bucket.emptyUntil = now + (granted < 0 ? -granted : properties.getLeaseTtlMs());
+            }
+            return false;
+        }
+        synchronized (bucket) {
+            // 本次请求消耗一个，其余留给本节点后续请求
+            bucket.leased = granted - 1;
+            bucket.leaseExpiresAt = now + properties.getLeaseTtlMs();
+        }
+        return true;
+    }
+
+    /**
+     * 向全局令牌桶租借令牌，超过redisTimeoutMs未返回时放弃
+     *
+     * @return 租到的令牌数，没有令牌时为负数（补充出一个令牌还需的毫秒数）
+     */
+    private long lease(RateLimitProperties.Rule rule, String bucketKey) throws Exception {
+        Future<Long> future = redisExecutor.submit(() -> stringRedisTemplate.execute(LEASE_SCRIPT,
+                List.of(KEY_PREFIX + bucketKey), String.valueOf(rule.getCapacity()),
+                String.valueOf(rule.getRefillPerSecond()), String.valueOf(Math.max(1, rule.getLeaseSize()))));
+        try {
+            Long result = future.get(properties.getRedisTimeoutMs(), TimeUnit.MILLISECONDS);
+            return result == null ? 0 : result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        } finally {
+            future.cancel(true);
+        }
+    }
+
+    private static boolean acquireFallback(LocalBucket bucket, RateLimitProperties.Rule rule, long now) {
+        synchronized (bucket) {
+            if (bucket.fallbackTokens < 0) {
+                bucket.fallbackTokens = rule.getCapacity();
+            } else {
+                double refill = (now - bucket.fallbackTimestamp) * rule.getRefillPerSecond() / 1000;
+                bucket.fallbackTokens = Math.min(rule.getCapacity(), bucket.fallbackTokens + Math.max(0, refill));
+            }
+            bucket.fallbackTimestamp = now;
+            if (bucket.fallbackTokens < 1) {
+                return false;
+            }
+            bucket.fallbackTokens--;
+            return true;
+        }
+    }
+}
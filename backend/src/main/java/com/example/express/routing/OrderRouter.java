@@ -0,0 +1,155 @@
+package com.example.express.routing;
+
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.example.express.entity.Order;
+import com.example.express.geo.AmapGeocoder;
+import com.example.express.geo.GeoPoint;
+import com.example.express.geo.GeoUtils;
+import com.example.express.geo.StoreDistance;
+import com.example.express.geo.StoreSpatialIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单路由：为未指定门店的新订单分配处理门店
+ * 从寄件人信息（坐标或地址的地理编码缓存）中取得坐标，经空间索引找出附近的若干营业门店，
+ * 按 距离 + 负载权重 × 门店未签收订单数 取代价最小者。
+ * 全程只使用内存中的索引和负载副本，不访问数据库或Redis。
+ * 路由本身不计入负载，订单写入成功后由调用方通过StoreLoadTracker.assigned计入
+ */
+@Component
+public class OrderRouter {
+
+    private static final String ROUTED = "routed";
+    private static final String NO_LOCATION = "no-location";
+    private static final String NO_STORE = "no-store";
+
+    @Autowired
+    private StoreSpatialIndex storeSpatialIndex;
+
+    @Autowired
+    private StoreLoadTracker storeLoadTracker;
+
+    @Autowired
+    private AmapGeocoder amapGeocoder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.routing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.routing.candidates:5}")
+    private int candidates;
+
+    @Value("${app.routing.max-radius-km:50}")
+    private double maxRadiusKm;
+
+    /**
+     * 每个未签收订单折算的距离（公里），为0时只按距离选择
+     */
+    @Value("${app.routing.load-weight-km:0.1}")
+    private double loadWeightKm;
+
+    private Timer routeTimer;
+
+    @PostConstruct
+    public void init() {
+        routeTimer = Timer.builder("order.routing.time")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 为订单分配门店；订单已指定门店、寄件人坐标未知或附近没有营业门店时不处理
+     *
+     * @return 是否完成分配
+     */
+    public boolean route(Order order) {
+        return route(order, null);
+    }
+
+    /**
+     * 为同一批次中的订单分配门店：pending为本批次已分配但尚未写入的各门店订单数（可为null），计入负载，
+     * 分配成功时累加，避免同一批次的订单都落到同一门店
+     *
+     * @return 是否完成分配
+     */
+    public boolean route(Order order, Map<Long, Long> pending) {
+        if (!enabled || order.getCurrentStoreId() != null) {
+            return false;
+        }
+        long start = System.nanoTime();
+        String result = doRoute(order, pending);
+        routeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        meterRegistry.counter("order.routing", "result", result).increment();
+        return ROUTED.equals(result);
+    }
+
+    private String doRoute(Order order, Map<Long, Long> pending) {
+        GeoPoint location = senderLocation(order.getSenderInfo());
+        if (location == null) {
+            return NO_LOCATION;
+        }
+        List<StoreDistance> nearby = storeSpatialIndex.nearest(location.lng(), location.lat(), candidates, maxRadiusKm);
+        if (nearby.isEmpty()) {
+            return NO_STORE;
+        }
+
+        StoreDistance best = null;
+        double bestCost = Double.MAX_VALUE;
+        for (StoreDistance candidate : nearby) {
+            Long candidateId = candidate.store().getStoreId();
+            long queued = pending == null ? 0 : pending.getOrDefault(candidateId, 0L);
+            double cost = candidate.distanceKm() + loadWeightKm * (storeLoadTracker.getLoad(candidateId) + queued);
+            if (cost < bestCost) {
+                best = candidate;
+                bestCost = cost;
+            }
+        }
+        Long storeId = best.store().getStoreId();
+        order.setCurrentStoreId(storeId);
+        if (pending != null) {
+            pending.merge(storeId, 1L, Long::sum);
+        }
+        return ROUTED;
+    }
+
+    /**
+     * 寄件人坐标：优先读取寄件人信息中的坐标，
+     * 支持longitude/latitude、lng/lat两组字段，或"经度,纬度"格式的location字段；
+     * 没有坐标时按address字段查地理编码缓存（不等待上游，未命中时后台查询，后续订单可命中）
+     *
+     * @return 坐标，未知时返回null
+     */
+    private GeoPoint senderLocation(String senderInfo) {
+        if (senderInfo == null || !JSONUtil.isTypeJSONObject(senderInfo)) {
+            return null;
+        }
+        JSONObject sender;
+        try {
+            sender = JSONUtil.parseObj(senderInfo);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        Double lng = sender.getDouble("longitude", sender.getDouble("lng"));
+        Double lat = sender.getDouble("latitude", sender.getDouble("lat"));
+        if (lng != null && lat != null && GeoUtils.isValid(lng, lat)) {
+            return new GeoPoint(lng, lat);
+        }
+        GeoPoint location = GeoPoint.parse(sender.getStr("location"));
+        if (location != null) {
+            return location;
+        }
+        return amapGeocoder.getIfCached(sender.getStr("address"));
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.express.routing;
+
+import com.example.express.entity.OrderOutbox;
+import com.example.express.mapper.OrderMapper;
+import com.example.express.mapper.OrderOutboxMapper;
+import com.example.express.outbox.OrderChangeListener;
+import com.example.express.outbox.OutboxCounters;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 门店负载计数（各门店未签收的订单数）
+ * 计数保存在Redis哈希中供各节点共享，由订单变更事件增量更新，并定时与数据库分组聚合结果对账；
+ * 重复投递的事件按事件ID去重，迟到的缺口事件仍会计入（见OutboxCounters）。
+ * 状态变更事件只带变更后的门店，订单转移门店造成的偏差由对账修正。
+ * 路由时只读取本地副本：定时从Redis刷新；本节点新写入的订单要经过事务提交、事件投递后才计入Redis，
+ * 因此在本地另外累加，保留assignmentTtlMs后过期，不随刷新清零
+ */
+@Slf4j
+@Component
+public class StoreLoadTracker implements OrderChangeListener {
+
+    public static final String CONSUMER_NAME = "store-load";
+
+    private static final String LOAD_KEY = "store:load";
+
+    /**
+     * 已签收状态，此前的状态都计入门店负载
+     */
+    private static final int STATUS_SIGNED = 4;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private OrderOutboxMapper orderOutboxMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 本节点新写入的订单在本地计入负载的时长，应覆盖事件投递到Redis并被刷新到本地的延迟
+     */
+    @Value("${app.routing.assignment-ttl-ms:5000}")
+    private long assignmentTtlMs;
+
+    /**
+     * 最近一次从Redis读取的计数
+     */
+    private volatile Map<Long, Long> loads = Map.of();
+
+    /**
+     * 本节点最近写入、尚未过期的订单数
+     */
+    private final Map<Long, AtomicLong> localAssigned = new ConcurrentHashMap<>();
+
+    /**
+     * 本节点最近写入的订单，按写入时间排列，用于过期
+     */
+    private final Queue<Assignment> assignments = new ConcurrentLinkedQueue<>();
+
+    private record Assignment(Long storeId, long assignedAt) {
+    }
+
+    @Override
+    public String name() {
+        return CONSUMER_NAME;
+    }
+
+    @Override
+    public void onOrderChanges(List<OrderOutbox> events) {
+        List<String> args = new ArrayList<>(events.size() * 3);
+        for (OrderOutbox event : events) {
+            int delta = switch (event.getEventType()) {
+                case OrderOutbox.CREATE -> isOpen(event.getNewStatus()) ? 1 : 0;
+                case OrderOutbox.UPDATE -> (isOpen(event.getNewStatus()) ? 1 : 0) - (isOpen(event.getOldStatus()) ? 1 : 0);
+                case OrderOutbox.DELETE -> isOpen(event.getOldStatus()) ? -1 : 0;
+                default -> 0;
+            };
+            if (delta != 0 && event.getStoreId() != null) {
+                args.add(String.valueOf(event.getEventId()));
+                args.add(String.valueOf(event.getStoreId()));
+                args.add(String.valueOf(delta));
+            }
+        }
+        OutboxCounters.apply(stringRedisTemplate, LOAD_KEY, args);
+    }
+
+    /**
+     * 门店当前负载（本地副本加上本节点尚未同步的分配），不访问Redis
+     */
+    public long getLoad(Long storeId) {
+        AtomicLong assigned = localAssigned.get(storeId);
+        return loads.getOrDefault(storeId, 0L) + (assigned == null ? 0 : assigned.get());
+    }
+
+    /**
+     * 订单写入门店后调用，使后续路由在事件计入Redis之前就能看到新增的负载；
+     * 在事务中调用时于事务提交后计入，回滚时不计入
+     */
+    public void assigned(Long storeId) {
+        if (storeId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record(storeId);
+                }
+            });
+        } else {
+            record(storeId);
+        }
+    }
+
+    private void record(Long storeId) {
+        localAssigned.computeIfAbsent(storeId, id -> new AtomicLong()).incrementAndGet();
+        assignments.add(new Assignment(storeId, System.currentTimeMillis()));
+    }
+
+    /**
+     * 移除超过assignmentTtlMs的本地分配，此时对应事件应已计入Redis并刷新到本地副本
+     */
+    private void expireAssignments() {
+        long expireBefore = System.currentTimeMillis() - assignmentTtlMs;
+        Assignment head;
+        while ((head = assignments.peek()) != null && head.assignedAt() < expireBefore) {
+            // 只有刷新任务移除元素，peek到的即是poll出的
+            assignments.poll();
+            localAssigned.get(head.storeId()).decrementAndGet();
+        }
+    }
+
+    /**
+     * 定时从Redis刷新本地副本；计数未初始化时先对账
+     */
+    @Scheduled(fixedDelayString = "${app.routing.load-refresh-ms:1000}")
+    public void refresh() {
+        expireAssignments();
+        try {
+            Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(LOAD_KEY);
+            if (!entries.containsKey(OutboxCounters.FIELD_WATERMARK)) {
+                if (!reconcile()) {
+                    return;
+                }
+                entries = stringRedisTemplate.opsForHash().entries(LOAD_KEY);
+            }
+            Map<Long, Long> refreshed = new HashMap<>();
+            entries.forEach((field, value) -> {
+                if (!OutboxCounters.FIELD_WATERMARK.equals(field)) {
+                    refreshed.put(Long.valueOf(field.toString()), Long.valueOf(value.toString()));
+                }
+            });
+            loads = refreshed;
+        } catch (Exception e) {
+            log.debug("刷新门店负载失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定时对账
+     */
+    @Scheduled(fixedDelayString = "${app.routing.load-reconcile-interval-ms:60000}",
+            initialDelayString = "${app.routing.load-reconcile-initial-delay-ms:10000}")
+    public void scheduledReconcile() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            log.warn("门店负载对账失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 以数据库快照重建计数，做法与订单统计对账相同
+     *
+     * @return 是否完成对账（位点正被投递占用时跳过，返回false）
+     */
+    public boolean reconcile() {
+        orderOutboxMapper.initOffset(CONSUMER_NAME);
+        Boolean done = transactionTemplate.execute(status -> {
+            Long offset = orderOutboxMapper.lockOffset(CONSUMER_NAME);
+            if (offset == null) {
+                return false;
+            }
+            List<Map<String, Object>> rows = orderMapper.countOpenByStore(STATUS_SIGNED);
+            Long maxEventId = orderOutboxMapper.selectMaxEventId();
+            long watermark = Math.max(offset, maxEventId == null ? 0 : maxEventId);
+
+            Map<String, String> fields = new HashMap<>();
+            for (Map<String, Object> row : rows) {
+                fields.put(String.valueOf(row.get("store_id")), String.valueOf(row.get("total")));
+            }
+            OutboxCounters.replace(stringRedisTemplate, LOAD_KEY, watermark, fields);
+            return true;
+        });
+        return Boolean.TRUE.equals(done);
+    }
+
+    private static boolean isOpen(Integer status) {
+        return status != null && status < STATUS_SIGNED;
+    }
+}
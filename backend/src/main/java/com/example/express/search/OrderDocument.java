@@ -0,0 +1,104 @@
+package com.example.express.search;
+
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.example.express.entity.Order;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 订单搜索文档
+ * 姓名、地址分词检索；电话以keyword存储，另存反转值以支持尾号（后缀）匹配
+ */
+@Data
+@Document(indexName = OrderDocument.INDEX_NAME, createIndex = false)
+public class OrderDocument {
+
+    public static final String INDEX_NAME = "express_order";
+
+    @Id
+    private String id;
+
+    @Field(type = FieldType.Long)
+    private Long orderId;
+
+    @Field(type = FieldType.Text)
+    private String senderName;
+
+    @Field(type = FieldType.Text)
+    private String senderAddress;
+
+    @Field(type = FieldType.Text)
+    private String receiverName;
+
+    @Field(type = FieldType.Text)
+    private String receiverAddress;
+
+    @Field(type = FieldType.Keyword)
+    private List<String> phones;
+
+    @Field(type = FieldType.Keyword)
+    private List<String> phonesReversed;
+
+    @Field(type = FieldType.Keyword)
+    private String itemType;
+
+    @Field(type = FieldType.Integer)
+    private Integer status;
+
+    @Field(type = FieldType.Long)
+    private Long currentStoreId;
+
+    @Field(type = FieldType.Long)
+    private Long createdAt; // 创建时间（毫秒时间戳）
+
+    public static OrderDocument from(Order order) {
+        OrderDocument doc = new OrderDocument();
+        doc.setId(String.valueOf(order.getOrderId()));
+        doc.setOrderId(order.getOrderId());
+        doc.setItemType(order.getItemType());
+        doc.setStatus(order.getStatus());
+        doc.setCurrentStoreId(order.getCurrentStoreId());
+        if (order.getCreatedAt() != null) {
+            doc.setCreatedAt(order.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+
+        List<String> phones = new ArrayList<>(2);
+        JSONObject sender = parse(order.getSenderInfo());
+        doc.setSenderName(sender.getStr("name"));
+        doc.setSenderAddress(sender.getStr("address"));
+        addPhone(phones, sender.getStr("phone"));
+        JSONObject receiver = parse(order.getReceiverInfo());
+        doc.setReceiverName(receiver.getStr("name"));
+        doc.setReceiverAddress(receiver.getStr("address"));
+        addPhone(phones, receiver.getStr("phone"));
+
+        doc.setPhones(phones);
+        doc.setPhonesReversed(phones.stream().map(OrderDocument::reverse).toList());
+        return doc;
+    }
+
+    public static String reverse(String value) {
+        return new StringBuilder(value).reverse().toString();
+    }
+
+    private static void addPhone(List<String> phones, String phone) {
+        if (phone != null && !phone.isBlank()) {
+            phones.add(phone.trim());
+        }
+    }
+
+    private static JSONObject parse(String json) {
+        if (json == null || !JSONUtil.isTypeJSONObject(json)) {
+            return new JSONObject();
+        }
+        return JSONUtil.parseObj(json);
+    }
+}
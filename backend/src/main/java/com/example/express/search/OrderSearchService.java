@@ -0,0 +1,311 @@
+package com.example.express.search;
+
+import co.elastic.clients.elasticsearch._types.query_dsl.Operator;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.json.JsonData;
+import com.example.express.common.OrderQuery;
+import com.example.express.common.PageCursor;
+import com.example.express.entity.Order;
+import com.example.express.entity.OrderOutbox;
+import com.example.express.mapper.OrderMapper;
+import com.example.express.outbox.OrderChangeListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.UncategorizedElasticsearchException;
+import org.springframework.data.elasticsearch.client.elc.NativeQueryBuilder;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 订单搜索服务（Elasticsearch）
+ * 检索只返回命中的订单ID，订单数据由调用方按主键回表；ES不可用时返回null，由调用方降级到MySQL
+ * 索引由订单变更事件（OrderOutboxRelay）异步维护。
+ * 新建的索引为空，全量回填完成（Redis中记录回填标记）之前检索仍查询MySQL，索引只接收增量同步
+ */
+@Slf4j
+@Component
+public class OrderSearchService implements OrderChangeListener {
+
+    /**
+     * 查询失败后暂停使用ES的时长，避免每个请求都等待超时
+     */
+    private static final long RETRY_AFTER_MS = 30_000L;
+
+    /**
+     * 全量回填完成标记，新建索引时删除
+     */
+    private static final String BACKFILLED_KEY = "search:order:backfilled";
+
+    /**
+     * 回填标记在本地的缓存时长
+     */
+    private static final long BACKFILL_CHECK_INTERVAL_MS = 10_000L;
+
+    /**
+     * 按页码定位时可访问的最大深度（from+size），与索引默认的index.max_result_window一致，更深的页须使用游标
+     */
+    public static final int MAX_RESULT_WINDOW = 10_000;
+
+    public static final String CONSUMER_NAME = "order-search";
+
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${app.search.enabled:true}")
+    private boolean enabled;
+
+    private volatile boolean indexReady;
+
+    private volatile long unavailableUntil;
+
+    private volatile boolean backfilled;
+
+    private volatile long backfillCheckedAt;
+
+    /**
+     * 检索结果：当前页订单ID（已按创建时间、订单ID倒序）及命中总数（未统计时为null）
+     */
+    public record OrderSearchResult(List<Long> orderIds, Long total) {
+    }
+
+    /**
+     * ES当前是否可用（可写入索引）
+     */
+    public boolean isAvailable() {
+        return enabled && System.currentTimeMillis() >= unavailableUntil && ensureIndex();
+    }
+
+    /**
+     * 索引能否代替MySQL提供检索：ES可用且已完成全量回填
+     */
+    public boolean isSearchable() {
+        return isAvailable() && isBackfilled();
+    }
+
+    /**
+     * 检索订单
+     * 有游标时以search_after从游标处继续，不受from+size深度限制；否则按页码定位
+     *
+     * @param cursor    上一页最后一条订单的游标，可为null
+     * @param withTotal 是否统计命中总数
+     * @return 检索结果，ES不可用、索引尚未回填或查询失败时返回null
+     * @throws IllegalArgumentException 无游标且页码超出MAX_RESULT_WINDOW
+     */
+    public OrderSearchResult search(OrderQuery orderQuery, int page, int size, PageCursor cursor,
+                                    boolean withTotal) {
+        if (cursor == null && (long) page * size > MAX_RESULT_WINDOW) {
+            throw new IllegalArgumentException("页码过大，超过 " + MAX_RESULT_WINDOW + " 条请使用游标继续翻页");
+        }
+        if (!isSearchable()) {
+            return null;
+        }
+        try {
+            NativeQueryBuilder builder = NativeQuery.builder()
+                    .withQuery(buildQuery(orderQuery))
+                    .withSort(Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "orderId")))
+                    .withTrackTotalHits(withTotal);
+            if (cursor != null) {
+                builder.withPageable(PageRequest.of(0, size))
+                        .withSearchAfter(List.of(toEpochMilli(cursor.getCreatedAt()), cursor.getId()));
+            } else {
+                builder.withPageable(PageRequest.of(page - 1, size));
+            }
+            SearchHits<OrderDocument> hits = elasticsearchOperations.search(builder.build(), OrderDocument.class);
+            List<Long> orderIds = hits.getSearchHits().stream()
+                    .map(SearchHit::getContent)
+                    .map(OrderDocument::getOrderId)
+                    .toList();
+            return new OrderSearchResult(orderIds, withTotal ? hits.getTotalHits() : null);
+        } catch (Exception e) {
+            handleFailure("订单检索失败", e);
+            return null;
+        }
+    }
+
+    @Override
+    public String name() {
+        return CONSUMER_NAME;
+    }
+
+    /**
+     * 按数据库当前数据同步变更订单的索引（幂等，可重复投递）：存在的订单写入索引，已删除的订单从索引移除
+     * ES不可用时抛出异常，由中继保留位点稍后重试；未启用ES时直接确认
+     */
+    @Override
+    public void onOrderChanges(List<OrderOutbox> events) {
+        if (!enabled) {
+            return;
+        }
+        if (!isAvailable()) {
+            throw new IllegalStateException("搜索服务不可用");
+        }
+        Set<Long> orderIds = new LinkedHashSet<>();
+        events.forEach(event -> orderIds.add(event.getOrderId()));
+        try {
+            List<Order> orders = orderMapper.selectBatchIds(orderIds);
+            Set<Long> missing = new HashSet<>(orderIds);
+            if (!orders.isEmpty()) {
+                elasticsearchOperations.save(orders.stream().map(OrderDocument::from).toList());
+                orders.forEach(order -> missing.remove(order.getOrderId()));
+            }
+            for (Long orderId : missing) {
+                elasticsearchOperations.delete(String.valueOf(orderId), OrderDocument.class);
+            }
+        } catch (Exception e) {
+            handleFailure("同步订单索引失败", e);
+            throw e;
+        }
+    }
+
+    /**
+     * 全量回填一批订单的索引
+     */
+    @Override
+    public void onBackfill(List<Order> orders) {
+        if (!isAvailable()) {
+            throw new IllegalStateException("搜索服务不可用");
+        }
+        elasticsearchOperations.save(orders.stream().map(OrderDocument::from).toList());
+    }
+
+    /**
+     * 全量回填完成后记录回填标记，此后检索改走索引
+     */
+    @Override
+    public void onBackfillCompleted(long total) {
+        stringRedisTemplate.opsForValue().set(BACKFILLED_KEY, String.valueOf(System.currentTimeMillis()));
+        backfilled = true;
+        backfillCheckedAt = System.currentTimeMillis();
+        log.info("订单索引全量回填完成（{} 条），订单检索改用ES", total);
+    }
+
+    private Query buildQuery(OrderQuery orderQuery) {
+        return Query.of(q -> q.bool(b -> {
+            if (orderQuery.hasKeyword()) {
+                String keyword = orderQuery.getKeyword().trim();
+                // 姓名、地址分词匹配；电话前缀或尾号匹配
+                b.should(s -> s.multiMatch(m -> m
+                                .query(keyword)
+                                .fields("senderName", "receiverName", "senderAddress", "receiverAddress")
+                                .operator(Operator.And)))
+                        .should(s -> s.prefix(p -> p.field("phones").value(keyword)))
+                        .should(s -> s.prefix(p -> p.field("phonesReversed").value(OrderDocument.reverse(keyword))))
+                        .minimumShouldMatch("1");
+            }
+            if (orderQuery.getStatus() != null) {
+                b.filter(f -> f.term(t -> t.field("status").value(orderQuery.getStatus().longValue())));
+            }
+            if (orderQuery.getStoreId() != null) {
+                b.filter(f -> f.term(t -> t.field("currentStoreId").value(orderQuery.getStoreId())));
+            }
+            if (orderQuery.getStartDate() != null || orderQuery.getEndDate() != null) {
+                b.filter(f -> f.range(r -> {
+                    r.field("createdAt");
+                    if (orderQuery.getStartDate() != null) {
+                        r.gte(JsonData.of(toEpochMilli(orderQuery.getStartDate().atStartOfDay())));
+                    }
+                    if (orderQuery.getEndDate() != null) {
+                        r.lt(JsonData.of(toEpochMilli(orderQuery.getEndDate().plusDays(1).atStartOfDay())));
+                    }
+                    return r;
+                }));
+            }
+            return b;
+        }));
+    }
+
+    private static long toEpochMilli(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * 是否已完成全量回填；标记在本地缓存一段时间，Redis不可用时视为未回填
+     */
+    private boolean isBackfilled() {
+        long now = System.currentTimeMillis();
+        if (now - backfillCheckedAt < BACKFILL_CHECK_INTERVAL_MS) {
+            return backfilled;
+        }
+        backfillCheckedAt = now;
+        try {
+            backfilled = Boolean.TRUE.equals(stringRedisTemplate.hasKey(BACKFILLED_KEY));
+        } catch (Exception e) {
+            backfilled = false;
+            log.warn("读取订单索引回填标记失败，改用MySQL查询：{}", e.getMessage());
+        }
+        return backfilled;
+    }
+
+    /**
+     * 确保索引存在，首次使用时按文档映射创建；新建前先删除回填标记，回填完成前检索不使用该索引
+     */
+    private boolean ensureIndex() {
+        if (indexReady) {
+            return true;
+        }
+        try {
+            IndexOperations indexOps = elasticsearchOperations.indexOps(OrderDocument.class);
+            if (!indexOps.exists()) {
+                stringRedisTemplate.delete(BACKFILLED_KEY);
+                backfilled = false;
+                indexOps.createWithMapping();
+                log.warn("已新建订单索引，全量回填（POST /api/orders/search-index/rebuild）完成前订单检索使用MySQL");
+            }
+            indexReady = true;
+            return true;
+        } catch (Exception e) {
+            handleFailure("初始化订单索引失败", e);
+            return false;
+        }
+    }
+
+    /**
+     * 只有连接失败、超时或集群过载时才暂停使用ES；查询本身的错误（4xx）只影响当前请求
+     */
+    private void handleFailure(String message, Exception e) {
+        if (!isUnavailable(e)) {
+            log.warn("{}：{}", message, e.getMessage());
+            return;
+        }
+        unavailableUntil = System.currentTimeMillis() + RETRY_AFTER_MS;
+        log.warn("{}，{} 秒内改用MySQL查询：{}", message, RETRY_AFTER_MS / 1000, e.getMessage());
+    }
+
+    private static boolean isUnavailable(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof DataAccessResourceFailureException || t instanceof IOException
+                    || t instanceof TimeoutException) {
+                return true;
+            }
+            if (t instanceof UncategorizedElasticsearchException ue && ue.getStatusCode() != null) {
+                int status = ue.getStatusCode();
+                return status >= 500 || status == 429;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.express.security;
+
+import com.example.express.entity.User;
+import io.jsonwebtoken.Claims;
+import lombok.Getter;
+
+import java.security.Principal;
+
+/**
+ * 已认证用户（JWT认证后放入SecurityContext的主体）
+ * 用户ID、角色、门店来自签名的令牌声明，业务代码直接使用，无需再按用户名查询用户表
+ */
+@Getter
+public class AuthenticatedUser implements Principal {
+
+    public static final String CLAIM_USER_ID = "userId";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_STORE_ID = "storeId";
+
+    private final Long userId;
+
+    private final String username;
+
+    private final String role;
+
+    private final Long storeId;
+
+    public AuthenticatedUser(Long userId, String username, String role, Long storeId) {
+        this.userId = userId;
+        this.username = username;
+        this.role = role;
+        this.storeId = storeId;
+    }
+
+    public static AuthenticatedUser from(User user) {
+        return new AuthenticatedUser(user.getUserId(), user.getUsername(), user.getRole(), user.getStoreId());
+    }
+
+    /**
+     * 由令牌声明构造，旧令牌不含用户ID时返回null
+     */
+    public static AuthenticatedUser from(Claims claims) {
+        Long userId = toLong(claims.get(CLAIM_USER_ID));
+        if (userId == null) {
+            return null;
+        }
+        return new AuthenticatedUser(userId, claims.getSubject(), claims.get(CLAIM_ROLE, String.class),
+                toLong(claims.get(CLAIM_STORE_ID)));
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    public boolean isAdmin() {
+        return "admin".equalsIgnoreCase(role);
+    }
+
+    public boolean isStaff() {
+        return "staff".equalsIgnoreCase(role);
+    }
+
+    private static Long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : null;
+    }
+
+    @Override
+    public String toString() {
+        return username;
+    }
+}
@@ -22,8 +22,8 @@ public class CustomUserDetailsService implements UserDetailsService {
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        // 从数据库中查询用户
-        User user = userService.findByUsername(username);
+        // 从数据库中查询用户（缓存中不保存密码）
+        User user = userService.findByUsernameForAuthentication(username);
 
         if (user == null) {
             throw new UsernameNotFoundException("用户不存在: " + username);
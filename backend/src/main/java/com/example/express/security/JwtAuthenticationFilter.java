@@ -1,6 +1,9 @@
 package com.example.express.security;
 
 import com.example.express.config.JwtConfig;
+import com.example.express.entity.User;
+import com.example.express.service.UserService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -27,6 +30,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private JwtConfig jwtConfig;
 
+    @Autowired
+    private UserService userService;
+
     @Value("${jwt.header}")
     private String tokenHeader;
 
@@ -40,17 +46,20 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             String jwt = getJwtFromRequest(request);
 
             if (StringUtils.hasText(jwt)) {
-                String username = jwtConfig.getUsernameFromToken(jwt);
-                String role = jwtConfig.getRoleFromToken(jwt);
+                // 只验签、解析一次
+                Claims claims = jwtConfig.parseToken(jwt);
+                String username = claims.getSubject();
 
                 if (StringUtils.hasText(username) && SecurityContextHolder.getContext().getAuthentication() == null) {
+                    AuthenticatedUser principal = resolvePrincipal(claims);
+
                     // 确保角色名称格式正确，Spring Security默认需要ROLE_前缀
-                    String roleWithPrefix = role.toUpperCase().startsWith("ROLE_") ? role.toUpperCase()
-                            : "ROLE_" + role.toUpperCase();
+                    String role = principal.getRole().toUpperCase();
+                    String roleWithPrefix = role.startsWith("ROLE_") ? role : "ROLE_" + role;
 
                     // 创建认证对象
                     UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                            username, null, Collections.singletonList(new SimpleGrantedAuthority(roleWithPrefix)));
+                            principal, null, Collections.singletonList(new SimpleGrantedAuthority(roleWithPrefix)));
 
                     authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authentication);
@@ -64,6 +73,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * 由令牌声明得到认证主体；升级前签发的令牌不含用户ID，按用户名查询一次（走用户缓存）
+     */
+    private AuthenticatedUser resolvePrincipal(Claims claims) {
+        AuthenticatedUser principal = AuthenticatedUser.from(claims);
+        if (principal != null) {
+            return principal;
+        }
+        User user = userService.findByUsername(claims.getSubject());
+        if (user == null) {
+            throw new IllegalStateException("用户不存在: " + claims.getSubject());
+        }
+        return AuthenticatedUser.from(user);
+    }
+
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader(tokenHeader);
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith(tokenPrefix)) {
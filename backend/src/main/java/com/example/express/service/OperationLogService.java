@@ -1,17 +1,25 @@
 package com.example.express.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.example.express.common.PageCursor;
 import com.example.express.entity.OperationLog;
+import java.util.List;
 import java.util.Map;
 
 public interface OperationLogService extends IService<OperationLog> {
   /**
-   * 创建操作日志
+   * 创建操作日志（异步写入）
    */
   OperationLog createLog(OperationLog log);
 
   /**
-   * 分页获取操作日志列表
+   * 批量创建操作日志（异步合并为多行INSERT）
    */
-  Map<String, Object> getOperationLogs(Integer page, Integer size, String operationType);
+  void createLogs(List<OperationLog> logs);
+
+  /**
+   * 分页获取操作日志列表，传入游标时按键集分页（忽略页码）
+   */
+  Map<String, Object> getOperationLogs(Integer page, Integer size, String operationType,
+      PageCursor cursor, boolean withTotal);
 }
\ No newline at end of file
@@ -1,7 +1,14 @@
 package com.example.express.service;
 
+import com.example.express.common.ExportFormat;
+import com.example.express.common.OrderQuery;
+import com.example.express.common.PageCursor;
+import com.example.express.common.StatusUpdateResult;
 import com.example.express.entity.Order;
+import com.example.express.security.AuthenticatedUser;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -13,47 +20,78 @@ public interface OrderService {
     /**
      * 创建订单
      * 
-     * @param order    订单信息
-     * @param username 创建者用户名
+     * @param order   订单信息
+     * @param creator 创建者
      * @return 创建后的订单
      */
-    Order createOrder(Order order, String username);
+    Order createOrder(Order order, AuthenticatedUser creator);
 
     /**
-     * 根据用户名获取订单列表
+     * 批量创建订单
+     * 校验通过的订单按批次大小分块写入
      * 
-     * @param username 用户名
+     * @param orders  订单列表（元素可为null，表示该条目无法解析）
+     * @param creator 创建者
+     * @return 汇总信息及每个订单的创建结果
+     */
+    Map<String, Object> createOrders(List<Order> orders, AuthenticatedUser creator);
+
+    /**
+     * 获取用户创建的订单列表
+     * 
+     * @param user 当前用户
      * @return 订单列表
      */
-    List<Order> getOrdersByUsername(String username);
+    List<Order> getOrdersByUser(AuthenticatedUser user);
 
     /**
      * 获取订单详情
      * 
-     * @param orderId  订单ID
-     * @param username 查询用户名
-     * @return 订单详情
+     * @param orderId 订单ID
+     * @param user    当前用户
+     * @return 订单详情，不存在或无权查看时返回null
      */
-    Order getOrderDetail(Long orderId, String username);
+    Order getOrderDetail(Long orderId, AuthenticatedUser user);
 
     /**
      * 更新订单状态
+     * 在一个事务内以条件更新（比较并设置）完成状态变更，状态已被并发修改时返回冲突
      * 
-     * @param orderId 订单ID
-     * @param status  目标状态
+     * @param orderId        订单ID
+     * @param status         目标状态
+     * @param expectedStatus 调用方看到的当前状态（可选），与数据库不一致时返回冲突
+     * @param operator       操作人
      * @return 更新结果
      */
-    boolean updateOrderStatus(Long orderId, Integer status);
+    StatusUpdateResult updateOrderStatus(Long orderId, Integer status, Integer expectedStatus,
+                                         AuthenticatedUser operator);
+
+    /**
+     * 批量更新订单状态（门店整批扫描）
+     * 一次加锁读取、一次集合更新、一次多行插入日志
+     * 
+     * @param orderIds 订单ID列表
+     * @param status   目标状态
+     * @param storeId  扫描所在门店ID（可选），不为空时同时更新订单当前门店
+     * @param operator 操作人
+     * @return 汇总信息及每个订单的处理结果
+     */
+    Map<String, Object> batchUpdateOrderStatus(List<Long> orderIds, Integer status, Long storeId,
+                                               AuthenticatedUser operator);
 
     /**
      * 获取所有订单（分页）
+     * 优先通过搜索索引检索，索引不可用时查询MySQL
      * 
-     * @param keyword 搜索关键字（可选）
-     * @param page    页码
-     * @param size    每页大小
-     * @return 订单列表和分页信息
+     * @param query     查询条件（关键字、状态、门店、创建日期范围，均可选）
+     * @param page      页码，传入游标时忽略
+     * @param size      每页大小
+     * @param cursor    上一页返回的游标，为空时按页码查询
+     * @param withTotal 是否返回总数（MySQL查询时为缓存值）
+     * @return 订单列表、下一页游标和分页信息
      */
-    Map<String, Object> getAllOrders(String keyword, Integer page, Integer size);
+    Map<String, Object> getAllOrders(OrderQuery query, Integer page, Integer size, PageCursor cursor,
+                                     boolean withTotal);
 
     /**
      * 删除订单
@@ -76,4 +114,11 @@ public interface OrderService {
      * @return 最近的订单列表
      */
     List<Order> getRecentOrders();
+
+    /**
+     * 按条件流式导出订单，逐行写入输出流
+     *
+     * @return 导出的订单数
+     */
+    long exportOrders(OrderQuery query, ExportFormat format, OutputStream out) throws IOException;
 }
\ No newline at end of file
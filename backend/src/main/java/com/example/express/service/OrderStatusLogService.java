@@ -3,6 +3,8 @@ package com.example.express.service;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.example.express.entity.OrderStatusLog;
 
+import java.util.List;
+
 public interface OrderStatusLogService extends IService<OrderStatusLog> {
   /**
    * 创建订单状态变更日志
@@ -15,4 +17,11 @@ public interface OrderStatusLogService extends IService<OrderStatusLog> {
    * @return 创建的日志记录
    */
   OrderStatusLog createStatusLog(Long orderId, Integer oldStatus, Integer newStatus, Long operatorId, Long storeId);
+
+  /**
+   * 批量创建订单状态变更日志（异步合并为多行INSERT）
+   *
+   * @param logs 日志列表
+   */
+  void createStatusLogs(List<OrderStatusLog> logs);
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.example.express.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.example.express.common.PageCursor;
 import com.example.express.entity.Staff;
 
 import java.util.Map;
@@ -33,11 +34,13 @@ public interface StaffService extends IService<Staff> {
 
     /**
      * 获取所有员工（分页）
-     * @param page 页码
+     * @param page 页码，传入游标时忽略
      * @param size 每页大小
-     * @return 员工列表和分页信息
+     * @param cursor 上一页返回的游标，为空时按页码查询
+     * @param withTotal 是否返回总数（缓存值）
+     * @return 员工列表、下一页游标和分页信息
      */
-    Map<String, Object> getAllStaffs(Integer page, Integer size);
+    Map<String, Object> getAllStaffs(Integer page, Integer size, PageCursor cursor, boolean withTotal);
 
     /**
      * 删除员工
@@ -1,8 +1,11 @@
 package com.example.express.service;
 
+import com.example.express.cache.StoreCatalog;
 import com.example.express.entity.Store;
+import com.example.express.geo.StoreDistance;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 门店服务接口
@@ -19,6 +22,11 @@ public interface StoreService {
      */
     Store getStoreDetail(Long storeId);
 
+    /**
+     * 获取门店目录快照（含内容摘要，用于ETag）
+     */
+    StoreCatalog.Snapshot getStoreCatalog();
+
     /**
      * 创建门店
      */
@@ -33,4 +41,28 @@ public interface StoreService {
      * 删除门店
      */
     boolean deleteStore(Long storeId);
-}
\ No newline at end of file
+
+    /**
+     * 查询距离指定坐标最近的营业门店
+     *
+     * @param k        返回数量
+     * @param radiusKm 查询半径（公里），为null时不限
+     */
+    List<StoreDistance> findNearestStores(double lng, double lat, int k, Double radiusKm);
+
+    /**
+     * 门店之间的距离矩阵（公里）
+     *
+     * @param storeIds 门店ID，不能为空且数量有上限（app.distance-matrix.max-query-stores）
+     * @return 存在不存在的门店时返回null
+     * @throws IllegalArgumentException 未指定门店或门店数超过上限
+     */
+    Map<String, Object> getStoreDistances(List<Long> storeIds);
+
+    /**
+     * 查询距离指定门店最近的k个门店（按距离升序）
+     *
+     * @return 门店不存在时返回null
+     */
+    List<StoreDistance> findNeighborStores(Long storeId, int k);
+}
@@ -3,8 +3,10 @@ package com.example.express.service;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.example.express.common.PageCursor;
 import com.example.express.entity.User;
 
+import java.time.LocalDateTime;
 import java.util.Map;
 
 /**
@@ -17,6 +19,11 @@ public interface UserService extends IService<User> {
      */
     User findByUsername(String username);
 
+    /**
+     * 根据用户名从数据库查询用户（不经缓存，含密码），用于认证
+     */
+    User findByUsernameForAuthentication(String username);
+
     /**
      * 检查用户名是否已存在
      */
@@ -32,6 +39,17 @@ public interface UserService extends IService<User> {
      */
     void updateUser(User user);
 
+    /**
+     * 更新最后登录时间（只更新该列）
+     */
+    void updateLastLogin(Long userId, String username, LocalDateTime lastLogin);
+
+    /**
+     * 更新用户状态（只更新该列）
+     * @return 用户不存在时返回false
+     */
+    boolean updateStatus(Long userId, Integer status);
+
     /**
      * 生成图形验证码
      * @return 包含验证码图片Base64和验证码Key的Map
@@ -46,6 +64,19 @@ public interface UserService extends IService<User> {
      */
     boolean validateCaptcha(String captchaKey, String captchaCode);
     
+    /**
+     * 查询用户列表（按创建时间倒序分页）
+     * @param username 用户名关键字，可选
+     * @param role 角色，可选
+     * @param page 页码，传入游标时忽略
+     * @param size 每页大小
+     * @param cursor 上一页返回的游标，为空时按页码查询
+     * @param withTotal 是否返回总数（缓存值）
+     * @return 用户列表、下一页游标和总数
+     */
+    Map<String, Object> getUserList(String username, String role, Integer page, Integer size,
+                                    PageCursor cursor, boolean withTotal);
+
     /**
      * 分页查询用户列表
      * @param page 分页参数
@@ -1,16 +1,19 @@
 package com.example.express.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.example.express.common.PageCursor;
 import com.example.express.entity.OperationLog;
 import com.example.express.mapper.OperationLogMapper;
+import com.example.express.pipeline.WriteBehindQueue;
 import com.example.express.service.OperationLogService;
+import com.example.express.util.TotalCountCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -20,27 +23,58 @@ public class OperationLogServiceImpl extends ServiceImpl<OperationLogMapper, Ope
   @Autowired
   private OperationLogMapper operationLogMapper;
 
+  @Autowired
+  private WriteBehindQueue<OperationLog> operationLogQueue;
+
+  @Autowired
+  private TotalCountCache totalCountCache;
+
   @Override
   public OperationLog createLog(OperationLog log) {
     log.setCreatedAt(LocalDateTime.now());
-    operationLogMapper.insert(log);
+    // 异步批量写入，事务中调用时在提交后入队
+    operationLogQueue.submit(log);
     return log;
   }
 
   @Override
-  public Map<String, Object> getOperationLogs(Integer page, Integer size, String operationType) {
+  public void createLogs(List<OperationLog> logs) {
+    if (logs.isEmpty()) {
+      return;
+    }
+    LocalDateTime now = LocalDateTime.now();
+    for (OperationLog log : logs) {
+      if (log.getCreatedAt() == null) {
+        log.setCreatedAt(now);
+      }
+    }
+    operationLogQueue.submitAll(logs);
+  }
+
+  @Override
+  public Map<String, Object> getOperationLogs(Integer page, Integer size, String operationType,
+      PageCursor cursor, boolean withTotal) {
     QueryWrapper<OperationLog> queryWrapper = new QueryWrapper<>();
     if (operationType != null && !operationType.isEmpty()) {
       queryWrapper.eq("operation_type", operationType);
     }
-    queryWrapper.orderByDesc("created_at");
-
-    Page<OperationLog> pageParam = new Page<>(page, size);
-    Page<OperationLog> pageResult = operationLogMapper.selectPage(pageParam, queryWrapper);
+    PageCursor.apply(queryWrapper, cursor, "log_id", (long) (page - 1) * size, size);
+    List<OperationLog> logs = operationLogMapper.selectList(queryWrapper);
+    String nextCursor = PageCursor.next(logs, size, OperationLog::getCreatedAt, OperationLog::getLogId);
 
     Map<String, Object> result = new HashMap<>();
-    result.put("total", pageResult.getTotal());
-    result.put("logs", pageResult.getRecords());
+    result.put("logs", logs);
+    result.put("nextCursor", nextCursor);
+    result.put("hasMore", nextCursor != null);
+    if (withTotal) {
+      result.put("total", totalCountCache.get("operation_log:" + operationType, () -> {
+        QueryWrapper<OperationLog> countWrapper = new QueryWrapper<>();
+        if (operationType != null && !operationType.isEmpty()) {
+          countWrapper.eq("operation_type", operationType);
+        }
+        return operationLogMapper.selectCount(countWrapper);
+      }));
+    }
     return result;
   }
 }
\ No newline at end of file
@@ -1,74 +1,228 @@
 package com.example.express.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.example.express.cache.RecentOrderBuffer;
+import com.example.express.common.ExportFormat;
+import com.example.express.common.OrderQuery;
+import com.example.express.common.PageCursor;
+import com.example.express.common.StatusUpdateResult;
 import com.example.express.entity.Order;
-import com.example.express.entity.User;
+import com.example.express.entity.OrderOutbox;
+import com.example.express.entity.OrderStatusLog;
+import com.example.express.export.OrderExportWriter;
 import com.example.express.mapper.OrderMapper;
+import com.example.express.mapper.OrderOutboxMapper;
+import com.example.express.routing.OrderRouter;
+import com.example.express.routing.StoreLoadTracker;
+import com.example.express.search.OrderSearchService;
+import com.example.express.security.AuthenticatedUser;
 import com.example.express.service.OrderService;
-import com.example.express.service.UserService;
+import com.example.express.stats.OrderStatsService;
 import com.example.express.service.OrderStatusLogService;
 import com.example.express.service.OperationLogService;
 import com.example.express.entity.OperationLog;
-import org.springframework.security.core.context.SecurityContextHolder;
+import com.example.express.util.SnowflakeIdGenerator;
+import com.example.express.util.TotalCountCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * 订单服务实现类
  */
+@Slf4j
 @Service
 public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements OrderService {
 
     @Autowired
     private OrderMapper orderMapper;
 
-    @Autowired
-    private UserService userService;
-
     @Autowired
     private OrderStatusLogService orderStatusLogService;
 
     @Autowired
     private OperationLogService operationLogService;
 
-    @Override
-    public Order createOrder(Order order, String username) {
-        // 获取用户信息
-        User user = userService.findByUsername(username);
-        if (user == null) {
-            throw new RuntimeException("用户不存在");
-        }
+    @Autowired
+    private SnowflakeIdGenerator idGenerator;
+
+    @Autowired
+    private OrderSearchService orderSearchService;
+
+    @Autowired
+    private OrderOutboxMapper orderOutboxMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TotalCountCache totalCountCache;
+
+    @Autowired
+    private OrderStatsService orderStatsService;
+
+    @Autowired
+    private RecentOrderBuffer recentOrderBuffer;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderRouter orderRouter;
+
+    @Autowired
+    private StoreLoadTracker storeLoadTracker;
 
+    @Value("${app.order.batch-chunk-size:500}")
+    private int batchChunkSize;
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public Order createOrder(Order order, AuthenticatedUser creator) {
         // 设置订单初始状态和创建者
         order.setStatus(0); // 0-已创建
-        order.setCreatedBy(user.getUserId());
+        order.setCreatedBy(creator.getUserId());
         order.setCreatedAt(LocalDateTime.now());
 
-        // 生成订单ID（实际项目中可能需要更复杂的ID生成策略）
-        long orderId = System.currentTimeMillis();
-        order.setOrderId(orderId);
+        // 使用雪花算法生成订单ID
+        order.setOrderId(idGenerator.nextId());
+
+        // 未指定门店时分配最近的营业门店
+        orderRouter.route(order);
 
         // 保存订单
         orderMapper.insert(order);
+        recordChanges(List.of(OrderOutbox.of(OrderOutbox.CREATE, order.getOrderId(), null, order.getStatus(),
+                order.getCurrentStoreId())));
+        // 事务提交后计入门店负载
+        storeLoadTracker.assigned(order.getCurrentStoreId());
 
         return order;
     }
 
     @Override
-    public List<Order> getOrdersByUsername(String username) {
-        // 获取用户信息
-        User user = userService.findByUsername(username);
-        if (user == null) {
-            throw new RuntimeException("用户不存在");
+    public Map<String, Object> createOrders(List<Order> orders, AuthenticatedUser creator) {
+        List<Map<String, Object>> results = new ArrayList<>(orders.size());
+        List<Order> chunk = new ArrayList<>(batchChunkSize);
+        List<Map<String, Object>> chunkResults = new ArrayList<>(batchChunkSize);
+        // 当前分块中已分配门店、尚未写入的订单数
+        Map<Long, Long> pendingAssigned = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            Map<String, Object> result = new HashMap<>();
+            result.put("index", i);
+            results.add(result);
+
+            // 逐条校验，校验失败的订单不参与写入
+            String error = order == null ? "订单信息不能为空" : order.validate();
+            if (error != null) {
+                result.put("success", false);
+                result.put("message", error);
+                continue;
+            }
+
+            order.setStatus(0); // 0-已创建
+            order.setCreatedBy(creator.getUserId());
+            order.setCreatedAt(now);
+            order.setOrderId(idGenerator.nextId());
+            orderRouter.route(order, pendingAssigned);
+            chunk.add(order);
+            chunkResults.add(result);
+
+            if (chunk.size() >= batchChunkSize) {
+                insertChunk(chunk, chunkResults);
+                pendingAssigned.clear();
+            }
+        }
+        insertChunk(chunk, chunkResults);
+
+        long successCount = results.stream().filter(r -> Boolean.TRUE.equals(r.get("success"))).count();
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("total", orders.size());
+        summary.put("successCount", successCount);
+        summary.put("failureCount", orders.size() - successCount);
+        summary.put("results", results);
+        return summary;
+    }
+
+    /**
+     * 以JDBC批处理写入一个分块，并回填每个订单的结果
+     * 分块写入失败时逐条重试，避免单条异常数据导致整块失败
+     */
+    private void insertChunk(List<Order> chunk, List<Map<String, Object>> chunkResults) {
+        if (chunk.isEmpty()) {
+            return;
         }
 
+        boolean saved;
+        try {
+            // 订单与变更事件在同一事务中写入
+            saved = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                boolean inserted = saveBatch(chunk, chunk.size());
+                recordChanges(chunk.stream().map(OrderServiceImpl::createdEvent).toList());
+                return inserted;
+            }));
+        } catch (Exception e) {
+            log.warn("批量写入订单失败，改为逐条写入，分块大小：{}", chunk.size(), e);
+            saved = false;
+        }
+
+        for (int i = 0; i < chunk.size(); i++) {
+            Order order = chunk.get(i);
+            Map<String, Object> result = chunkResults.get(i);
+            boolean success = saved;
+            if (!saved) {
+                try {
+                    success = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                        boolean inserted = orderMapper.insert(order) > 0;
+                        recordChanges(List.of(createdEvent(order)));
+                        return inserted;
+                    }));
+                } catch (Exception e) {
+                    log.warn("写入订单失败，订单ID：{}", order.getOrderId(), e);
+                }
+            }
+            result.put("success", success);
+            if (success) {
+                storeLoadTracker.assigned(order.getCurrentStoreId());
+                result.put("orderId", String.valueOf(order.getOrderId()));
+            } else {
+                result.put("message", "订单保存失败");
+            }
+        }
+
+        chunk.clear();
+        chunkResults.clear();
+    }
+
+    private static OrderOutbox createdEvent(Order order) {
+        return OrderOutbox.of(OrderOutbox.CREATE, order.getOrderId(), null, order.getStatus(),
+                order.getCurrentStoreId());
+    }
+
+    @Override
+    public List<Order> getOrdersByUser(AuthenticatedUser user) {
         // 查询该用户创建的所有订单
         QueryWrapper<Order> queryWrapper = new QueryWrapper<>();
         queryWrapper.eq("created_by", user.getUserId());
@@ -78,13 +232,7 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
     }
 
     @Override
-    public Order getOrderDetail(Long orderId, String username) {
-        // 获取用户信息
-        User user = userService.findByUsername(username);
-        if (user == null) {
-            throw new RuntimeException("用户不存在");
-        }
-
+    public Order getOrderDetail(Long orderId, AuthenticatedUser user) {
         // 查询订单
         Order order = orderMapper.selectById(orderId);
         if (order == null) {
@@ -92,9 +240,7 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
         }
 
         // 检查权限：只有订单创建者、管理员或员工可以查看订单详情
-        if (order.getCreatedBy().equals(user.getUserId()) ||
-                "admin".equalsIgnoreCase(user.getRole()) ||
-                "staff".equalsIgnoreCase(user.getRole())) {
+        if (order.getCreatedBy().equals(user.getUserId()) || user.isAdmin() || user.isStaff()) {
             return order;
         }
 
@@ -103,82 +249,232 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
     }
 
     @Override
-    public boolean updateOrderStatus(Long orderId, Integer status) {
+    @Transactional(rollbackFor = Exception.class)
+    public StatusUpdateResult updateOrderStatus(Long orderId, Integer status, Integer expectedStatus,
+                                                AuthenticatedUser operator) {
+        if (operator == null) {
+            return StatusUpdateResult.OPERATOR_NOT_FOUND;
+        }
+
         // 查询订单
         Order order = orderMapper.selectById(orderId);
         if (order == null) {
-            return false;
+            return StatusUpdateResult.NOT_FOUND;
         }
 
-        // 获取当前操作人信息
-        String operator = SecurityContextHolder.getContext().getAuthentication().getName();
-        if (operator == null || operator.isEmpty()) {
-            return false;
+        // 调用方看到的状态已经过期，直接返回冲突
+        Integer oldStatus = order.getStatus();
+        if (expectedStatus != null && !expectedStatus.equals(oldStatus)) {
+            return StatusUpdateResult.CONFLICT;
         }
 
-        // 获取当前用户ID
-        User user = userService.findByUsername(operator);
-        if (user == null) {
-            return false;
+        if (status.equals(oldStatus)) {
+            return StatusUpdateResult.UNCHANGED;
+        }
+        if (order.canTransitTo(status) != null) {
+            return StatusUpdateResult.INVALID_STATUS;
+        }
+
+        // 条件更新：仅当状态仍为读取时的值才更新，避免并发扫描互相覆盖
+        if (orderMapper.compareAndSetStatus(orderId, oldStatus, status) == 0) {
+            return StatusUpdateResult.CONFLICT;
         }
 
         // 记录订单状态变更日志
-        orderStatusLogService.createStatusLog(orderId, order.getStatus(), status, user.getUserId(),
+        orderStatusLogService.createStatusLog(orderId, oldStatus, status, operator.getUserId(),
                 order.getCurrentStoreId());
 
         // 记录操作日志
         OperationLog operationLog = new OperationLog();
-        operationLog.setOperatorId(user.getUserId());
+        operationLog.setOperatorId(operator.getUserId());
         operationLog.setOperationType("更新状态");
         operationLog.setTargetId(orderId);
-        operationLog.setDetail("订单状态从" + order.getStatus() + "变更为" + status);
-        operationLog.setCreatedAt(LocalDateTime.now());
-        operationLogService.save(operationLog);
+        operationLog.setDetail("订单状态从" + oldStatus + "变更为" + status);
+        operationLogService.createLog(operationLog);
+        recordChanges(List.of(OrderOutbox.of(OrderOutbox.UPDATE, orderId, oldStatus, status,
+                order.getCurrentStoreId())));
 
-        // 更新状态
-        order.setStatus(status);
-        order.setUpdatedAt(LocalDateTime.now());
-
-        int result = orderMapper.updateById(order);
-        return result > 0;
+        return StatusUpdateResult.SUCCESS;
     }
 
     @Override
-    public Map<String, Object> getAllOrders(String keyword, Integer page, Integer size) {
-        // 创建查询条件
-        QueryWrapper<Order> queryWrapper = new QueryWrapper<>();
-        if (keyword != null && !keyword.trim().isEmpty()) {
-            queryWrapper.and(wrapper -> wrapper
-                    .like("receiver_name", keyword)
-                    .or()
-                    .like("receiver_phone", keyword)
-                    .or()
-                    .like("receiver_address", keyword)
-                    .or()
-                    .like("sender_name", keyword)
-                    .or()
-                    .like("sender_phone", keyword)
-                    .or()
-                    .like("sender_address", keyword));
+    @Transactional(rollbackFor = Exception.class)
+    public Map<String, Object> batchUpdateOrderStatus(List<Long> orderIds, Integer status, Long storeId,
+                                                      AuthenticatedUser operator) {
+        // 去重并保持扫描顺序；整批加锁读取，保证每个订单的结果准确
+        Set<Long> uniqueIds = new LinkedHashSet<>(orderIds);
+        Map<Long, Order> orders = orderMapper.selectStatusForUpdate(uniqueIds).stream()
+                .collect(Collectors.toMap(Order::getOrderId, Function.identity()));
+
+        List<Map<String, Object>> results = new ArrayList<>(uniqueIds.size());
+        List<Long> eligibleIds = new ArrayList<>();
+        for (Long orderId : uniqueIds) {
+            StatusUpdateResult outcome;
+            Order order = orders.get(orderId);
+            if (order == null) {
+                outcome = StatusUpdateResult.NOT_FOUND;
+            } else if (status.equals(order.getStatus())) {
+                outcome = StatusUpdateResult.UNCHANGED;
+            } else if (order.canTransitTo(status) != null) {
+                outcome = StatusUpdateResult.INVALID_STATUS;
+            } else {
+                outcome = StatusUpdateResult.SUCCESS;
+                eligibleIds.add(orderId);
+            }
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("orderId", String.valueOf(orderId));
+            result.put("result", outcome.name());
+            result.put("message", outcome.getMessage());
+            results.add(result);
+        }
+
+        if (!eligibleIds.isEmpty()) {
+            // 集合更新状态
+            orderMapper.updateStatusBatch(eligibleIds, status, storeId);
+
+            // 多行插入状态变更日志和操作日志
+            LocalDateTime now = LocalDateTime.now();
+            List<OrderStatusLog> statusLogs = new ArrayList<>(eligibleIds.size());
+            List<OperationLog> operationLogs = new ArrayList<>(eligibleIds.size());
+            List<OrderOutbox> changes = new ArrayList<>(eligibleIds.size());
+            for (Long orderId : eligibleIds) {
+                Order order = orders.get(orderId);
+
+                OrderStatusLog statusLog = new OrderStatusLog();
+                statusLog.setOrderId(orderId);
+                statusLog.setOldStatus(order.getStatus());
+                statusLog.setNewStatus(status);
+                statusLog.setStoreId(storeId != null ? storeId : order.getCurrentStoreId());
+                statusLog.setOperatorId(operator.getUserId());
+                statusLog.setCreatedAt(now);
+                statusLogs.add(statusLog);
+
+                OperationLog operationLog = new OperationLog();
+                operationLog.setOperatorId(operator.getUserId());
+                operationLog.setOperationType("更新状态");
+                operationLog.setTargetId(orderId);
+                operationLog.setDetail("订单状态从" + order.getStatus() + "变更为" + status);
+                operationLog.setCreatedAt(now);
+                operationLogs.add(operationLog);
+
+                changes.add(OrderOutbox.of(OrderOutbox.UPDATE, orderId, order.getStatus(), status,
+                        storeId != null ? storeId : order.getCurrentStoreId()));
+            }
+            orderStatusLogService.createStatusLogs(statusLogs);
+            operationLogService.createLogs(operationLogs);
+            recordChanges(changes);
         }
-        queryWrapper.orderByDesc("created_at"); // 按创建时间降序排列
 
-        // 分页查询
-        Page<Order> pageParam = new Page<>(page, size);
-        Page<Order> pageResult = orderMapper.selectPage(pageParam, queryWrapper);
+        long unchangedCount = results.stream()
+                .filter(r -> StatusUpdateResult.UNCHANGED.name().equals(r.get("result"))).count();
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("total", uniqueIds.size());
+        summary.put("successCount", eligibleIds.size());
+        summary.put("unchangedCount", unchangedCount);
+        summary.put("failureCount", uniqueIds.size() - eligibleIds.size() - unchangedCount);
+        summary.put("results", results);
+        return summary;
+    }
 
-        // 封装结果
+    @Override
+    public Map<String, Object> getAllOrders(OrderQuery query, Integer page, Integer size, PageCursor cursor,
+                                            boolean withTotal) {
         Map<String, Object> result = new HashMap<>();
-        result.put("orders", pageResult.getRecords());
-        result.put("total", pageResult.getTotal());
-        result.put("pages", pageResult.getPages());
-        result.put("current", pageResult.getCurrent());
-        result.put("size", pageResult.getSize());
+        result.put("current", page);
+        result.put("size", size);
+
+        // 优先使用搜索索引检索，ES不可用时降级为MySQL查询
+        OrderSearchService.OrderSearchResult searchResult =
+                orderSearchService.search(query, page, size, cursor, withTotal);
+        if (searchResult != null) {
+            List<Order> orders = new ArrayList<>(searchResult.orderIds().size());
+            if (!searchResult.orderIds().isEmpty()) {
+                // 按主键回表，并保持检索结果的顺序
+                Map<Long, Order> orderMap = orderMapper.selectBatchIds(searchResult.orderIds()).stream()
+                        .collect(Collectors.toMap(Order::getOrderId, Function.identity()));
+                for (Long orderId : searchResult.orderIds()) {
+                    Order order = orderMap.get(orderId);
+                    if (order != null) {
+                        orders.add(order);
+                    }
+                }
+            }
+
+            // 检索结果取满一页时认为可能还有下一页
+            String nextCursor = null;
+            if (searchResult.orderIds().size() == size && !orders.isEmpty()) {
+                Order last = orders.get(orders.size() - 1);
+                nextCursor = new PageCursor(last.getCreatedAt(), last.getOrderId()).encode();
+            }
+            result.put("orders", orders);
+            putPageInfo(result, nextCursor, searchResult.total(), size);
+            return result;
+        }
 
+        // 按创建时间降序，有游标时从游标处继续，否则按页码定位
+        QueryWrapper<Order> queryWrapper = buildQueryWrapper(query);
+        PageCursor.apply(queryWrapper, cursor, "order_id", (long) (page - 1) * size, size);
+        List<Order> orders = orderMapper.selectList(queryWrapper);
+        String nextCursor = PageCursor.next(orders, size, Order::getCreatedAt, Order::getOrderId);
+
+        Long total = null;
+        if (withTotal) {
+            total = totalCountCache.get("order:" + query, () -> orderMapper.selectCount(buildQueryWrapper(query)));
+        }
+        result.put("orders", orders);
+        putPageInfo(result, nextCursor, total, size);
         return result;
     }
 
+    private static void putPageInfo(Map<String, Object> result, String nextCursor, Long total, int size) {
+        result.put("nextCursor", nextCursor);
+        result.put("hasMore", nextCursor != null);
+        if (total != null) {
+            result.put("total", total);
+            result.put("pages", (total + size - 1) / size);
+        }
+    }
+
+    /**
+     * 构建MySQL查询条件（搜索索引不可用时使用）
+     * 姓名、电话、地址保存在sender_info/receiver_info两个JSON列中
+     */
+    private QueryWrapper<Order> buildQueryWrapper(OrderQuery query) {
+        QueryWrapper<Order> queryWrapper = new QueryWrapper<>();
+        if (query.hasKeyword()) {
+            String keyword = query.getKeyword().trim();
+            queryWrapper.and(wrapper -> wrapper
+                    .like("sender_info", keyword)
+                    .or()
+                    .like("receiver_info", keyword));
+        }
+        if (query.getStatus() != null) {
+            queryWrapper.eq("status", query.getStatus());
+        }
+        if (query.getStoreId() != null) {
+            queryWrapper.eq("current_store_id", query.getStoreId());
+        }
+        if (query.getStartDate() != null) {
+            queryWrapper.ge("created_at", query.getStartDate().atStartOfDay());
+        }
+        if (query.getEndDate() != null) {
+            queryWrapper.lt("created_at", query.getEndDate().plusDays(1).atStartOfDay());
+        }
+        return queryWrapper;
+    }
+
+    /**
+     * 在当前事务中写入订单变更事件，由OrderOutboxRelay异步投递给搜索索引等下游
+     */
+    private void recordChanges(List<OrderOutbox> events) {
+        if (!events.isEmpty()) {
+            orderOutboxMapper.insertBatch(events);
+        }
+    }
+
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public boolean deleteOrder(Long orderId) {
         // 查询订单
         Order order = orderMapper.selectById(orderId);
@@ -193,42 +489,50 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
 
         // 删除订单
         int result = orderMapper.deleteById(orderId);
+        if (result > 0) {
+            recordChanges(List.of(OrderOutbox.of(OrderOutbox.DELETE, orderId, order.getStatus(), null,
+                    order.getCurrentStoreId())));
+        }
         return result > 0;
     }
 
     @Override
     public Map<String, Object> getOrderStats() {
-        Map<String, Object> stats = new HashMap<>();
-
-        // 获取总订单数
-        long totalOrders = count();
-        stats.put("totalOrders", totalOrders);
-
-        // 获取各状态订单数量
-        for (int status = 0; status <= 4; status++) {
-            QueryWrapper<Order> queryWrapper = new QueryWrapper<>();
-            queryWrapper.eq("status", status);
-            long count = count(queryWrapper);
-            stats.put("status" + status + "Count", count);
-        }
-
-        // 获取今日订单数
-        QueryWrapper<Order> todayQuery = new QueryWrapper<>();
-        todayQuery.ge("created_at", LocalDateTime.now().toLocalDate().atStartOfDay());
-        long todayOrders = count(todayQuery);
-        stats.put("todayOrders", todayOrders);
-
-        return stats;
+        // 计数由订单变更事件增量维护并定时对账，这里只读取Redis中的计数
+        return orderStatsService.getStats();
     }
 
     @Override
     public List<Order> getRecentOrders() {
-        // 查询最近10个订单
-        QueryWrapper<Order> queryWrapper = new QueryWrapper<>();
-        queryWrapper.orderByDesc("created_at");
-        Page<Order> page = new Page<>(1, 10);
-        Page<Order> pageResult = orderMapper.selectPage(page, queryWrapper);
+        // 直接读取内存中的最近订单缓冲区
+        return recentOrderBuffer.getRecent();
+    }
 
-        return pageResult.getRecords();
+    @Override
+    public long exportOrders(OrderQuery query, ExportFormat format, OutputStream out) throws IOException {
+        QueryWrapper<Order> queryWrapper = buildQueryWrapper(query);
+        queryWrapper.orderByAsc("order_id");
+
+        long start = System.currentTimeMillis();
+        OrderExportWriter writer = new OrderExportWriter(format, objectMapper, out);
+        try (writer) {
+            // 游标需要在同一个会话（事务）内读取，逐行写出，内存占用与导出行数无关
+            transactionTemplate.execute(status -> {
+                try (Cursor<Order> cursor = orderMapper.scanByQuery(queryWrapper)) {
+                    for (Order order : cursor) {
+                        writer.write(order);
+                    }
+                } catch (IOException e) {
+                    // 客户端断开等写出失败时中止查询
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        log.info("导出订单 {} 条，格式：{}，耗时 {} ms", writer.getRows(), format.getExtension(),
+                System.currentTimeMillis() - start);
+        return writer.getRows();
     }
 }
\ No newline at end of file
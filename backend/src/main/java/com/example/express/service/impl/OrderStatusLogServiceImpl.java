@@ -3,18 +3,20 @@ package com.example.express.service.impl;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.example.express.entity.OrderStatusLog;
 import com.example.express.mapper.OrderStatusLogMapper;
+import com.example.express.pipeline.WriteBehindQueue;
 import com.example.express.service.OrderStatusLogService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Service
 public class OrderStatusLogServiceImpl extends ServiceImpl<OrderStatusLogMapper, OrderStatusLog>
     implements OrderStatusLogService {
 
   @Autowired
-  private OrderStatusLogMapper orderStatusLogMapper;
+  private WriteBehindQueue<OrderStatusLog> orderStatusLogQueue;
 
   @Override
   public OrderStatusLog createStatusLog(Long orderId, Integer oldStatus, Integer newStatus, Long operatorId,
@@ -27,7 +29,13 @@ public class OrderStatusLogServiceImpl extends ServiceImpl<OrderStatusLogMapper,
     log.setStoreId(storeId);
     log.setCreatedAt(LocalDateTime.now());
 
-    orderStatusLogMapper.insert(log);
+    // 异步批量写入，事务中调用时在提交后入队
+    orderStatusLogQueue.submit(log);
     return log;
   }
+
+  @Override
+  public void createStatusLogs(List<OrderStatusLog> logs) {
+    orderStatusLogQueue.submitAll(logs);
+  }
 }
\ No newline at end of file
@@ -1,16 +1,18 @@
 package com.example.express.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.example.express.common.PageCursor;
 import com.example.express.entity.Staff;
 import com.example.express.mapper.StaffMapper;
 import com.example.express.service.StaffService;
+import com.example.express.util.TotalCountCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -22,6 +24,9 @@ public class StaffServiceImpl extends ServiceImpl<StaffMapper, Staff> implements
     @Autowired
     private StaffMapper staffMapper;
 
+    @Autowired
+    private TotalCountCache totalCountCache;
+
     @Override
     public Staff createStaff(Staff staff) {
         // 设置初始状态
@@ -51,23 +56,26 @@ public class StaffServiceImpl extends ServiceImpl<StaffMapper, Staff> implements
     }
 
     @Override
-    public Map<String, Object> getAllStaffs(Integer page, Integer size) {
-        // 创建查询条件
+    public Map<String, Object> getAllStaffs(Integer page, Integer size, PageCursor cursor, boolean withTotal) {
+        // 按创建时间降序，有游标时从游标处继续，否则按页码定位
         QueryWrapper<Staff> queryWrapper = new QueryWrapper<>();
-        queryWrapper.orderByDesc("created_at"); // 按创建时间降序排列
-
-        // 分页查询
-        Page<Staff> pageParam = new Page<>(page, size);
-        Page<Staff> pageResult = staffMapper.selectPage(pageParam, queryWrapper);
+        PageCursor.apply(queryWrapper, cursor, "staff_id", (long) (page - 1) * size, size);
+        List<Staff> staffs = staffMapper.selectList(queryWrapper);
+        String nextCursor = PageCursor.next(staffs, size, Staff::getCreatedAt, Staff::getStaffId);
 
         // 封装结果
         Map<String, Object> result = new HashMap<>();
-        result.put("staffs", pageResult.getRecords());
-        result.put("total", pageResult.getTotal());
-        result.put("pages", pageResult.getPages());
-        result.put("current", pageResult.getCurrent());
-        result.put("size", pageResult.getSize());
-        
+        result.put("staffs", staffs);
+        result.put("current", page);
+        result.put("size", size);
+        result.put("nextCursor", nextCursor);
+        result.put("hasMore", nextCursor != null);
+        if (withTotal) {
+            long total = totalCountCache.get("staff", () -> staffMapper.selectCount(null));
+            result.put("total", total);
+            result.put("pages", (total + size - 1) / size);
+        }
+
         return result;
     }
 
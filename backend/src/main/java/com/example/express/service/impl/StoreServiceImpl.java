@@ -1,10 +1,14 @@
 package com.example.express.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.example.express.cache.StoreCatalog;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import org.springframework.dao.DataIntegrityViolationException;
 import com.example.express.entity.Staff;
 import com.example.express.entity.Store;
+import com.example.express.geo.StoreDistance;
+import com.example.express.geo.StoreDistanceMatrix;
+import com.example.express.geo.StoreSpatialIndex;
 import com.example.express.mapper.StoreMapper;
 import com.example.express.service.StaffService;
 import com.example.express.service.StoreService;
@@ -12,6 +16,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 门店服务实现类
@@ -25,14 +30,28 @@ public class StoreServiceImpl extends ServiceImpl<StoreMapper, Store> implements
     @Autowired
     private StaffService staffService;
 
+    @Autowired
+    private StoreSpatialIndex storeSpatialIndex;
+
+    @Autowired
+    private StoreCatalog storeCatalog;
+
+    @Autowired
+    private StoreDistanceMatrix storeDistanceMatrix;
+
     @Override
     public List<Store> getAllStores() {
-        return list();
+        return storeCatalog.current().stores();
     }
 
     @Override
     public Store getStoreDetail(Long storeId) {
-        return getById(storeId);
+        return storeCatalog.current().get(storeId);
+    }
+
+    @Override
+    public StoreCatalog.Snapshot getStoreCatalog() {
+        return storeCatalog.current();
     }
 
     @Override
@@ -66,6 +85,8 @@ public class StoreServiceImpl extends ServiceImpl<StoreMapper, Store> implements
         if (!saved) {
             return null;
         }
+        storeSpatialIndex.update(store);
+        storeCatalog.invalidate();
         return store;
     }
 
@@ -107,7 +128,10 @@ public class StoreServiceImpl extends ServiceImpl<StoreMapper, Store> implements
         }
 
         updateById(store);
-        return getById(store.getStoreId());
+        Store updatedStore = getById(store.getStoreId());
+        storeSpatialIndex.update(updatedStore);
+        storeCatalog.invalidate();
+        return updatedStore;
     }
 
     @Override
@@ -119,6 +143,26 @@ public class StoreServiceImpl extends ServiceImpl<StoreMapper, Store> implements
         if (count > 0) {
             throw new DataIntegrityViolationException("该门店下还有关联的员工，请先处理相关员工后再删除门店");
         }
-        return removeById(storeId);
+        boolean removed = removeById(storeId);
+        if (removed) {
+            storeSpatialIndex.remove(storeId);
+            storeCatalog.invalidate();
+        }
+        return removed;
+    }
+
+    @Override
+    public List<StoreDistance> findNearestStores(double lng, double lat, int k, Double radiusKm) {
+        return storeSpatialIndex.nearest(lng, lat, k, radiusKm);
+    }
+
+    @Override
+    public Map<String, Object> getStoreDistances(List<Long> storeIds) {
+        return storeDistanceMatrix.distances(storeIds);
+    }
+
+    @Override
+    public List<StoreDistance> findNeighborStores(Long storeId, int k) {
+        return storeDistanceMatrix.nearest(storeId, k);
     }
-}
\ No newline at end of file
+}
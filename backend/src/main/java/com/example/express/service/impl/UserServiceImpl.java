@@ -1,22 +1,24 @@
 package com.example.express.service.impl;
 
+import com.example.express.cache.UserCache;
+import com.example.express.captcha.CaptchaPool;
+import com.example.express.captcha.CaptchaTokenService;
+import com.example.express.common.PageCursor;
 import com.example.express.entity.User;
 import com.example.express.service.UserService;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.example.express.mapper.UserMapper;
+import com.example.express.util.TotalCountCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
-import javax.imageio.ImageIO;
-import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
-import java.util.Base64;
+import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
@@ -31,12 +33,37 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
     
     @Autowired
     private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private TotalCountCache totalCountCache;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private CaptchaPool captchaPool;
+
+    @Autowired
+    private CaptchaTokenService captchaTokenService;
+
+    /**
+     * 验证码模式：redis（答案存入Redis）或token（答案摘要签入令牌，不访问Redis）
+     */
+    @Value("${app.captcha.mode:redis}")
+    private String captchaMode;
     
     private static final String CAPTCHA_PREFIX = "captcha:";
     private static final long CAPTCHA_EXPIRATION = 5; // 验证码有效期（分钟）
+    private static final String CAPTCHA_MODE_TOKEN = "token";
 
     @Override
     public User findByUsername(String username) {
+        return userCache.getByUsername(username,
+                () -> userMapper.selectOne(new QueryWrapper<User>().eq("username", username)));
+    }
+
+    @Override
+    public User findByUsernameForAuthentication(String username) {
         return userMapper.selectOne(new QueryWrapper<User>().eq("username", username));
     }
 
@@ -52,19 +79,84 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
 
     @Override
     public void updateUser(User user) {
+        String username = user.getUsername();
+        if (username == null) {
+            // 部分字段更新时补全用户名，以便同时清除按用户名缓存的数据
+            User existing = userMapper.selectById(user.getUserId());
+            username = existing == null ? null : existing.getUsername();
+        }
         userMapper.updateById(user);
+        userCache.evict(user.getUserId(), username);
+    }
+
+    @Override
+    public void updateLastLogin(Long userId, String username, LocalDateTime lastLogin) {
+        User update = new User();
+        update.setUserId(userId);
+        update.setLastLogin(lastLogin);
+        userMapper.updateById(update);
+        userCache.evict(userId, username);
+    }
+
+    @Override
+    public boolean updateStatus(Long userId, Integer status) {
+        // 写操作以数据库为准，不读缓存
+        User existing = userMapper.selectById(userId);
+        if (existing == null) {
+            return false;
+        }
+        User update = new User();
+        update.setUserId(userId);
+        update.setStatus(status);
+        userMapper.updateById(update);
+        userCache.evict(userId, existing.getUsername());
+        return true;
     }
 
     @Override
     public boolean removeById(Long id) {
-        return userMapper.deleteById(id) > 0;
+        User existing = userMapper.selectById(id);
+        boolean removed = userMapper.deleteById(id) > 0;
+        userCache.evict(id, existing == null ? null : existing.getUsername());
+        return removed;
     }
     
     @Override
     public User getById(Long id) {
-        return userMapper.selectById(id);
+        return userCache.getById(id, () -> userMapper.selectById(id));
     }
     
+    @Override
+    public Map<String, Object> getUserList(String username, String role, Integer page, Integer size,
+                                           PageCursor cursor, boolean withTotal) {
+        // 按创建时间降序，有游标时从游标处继续，否则按页码定位
+        QueryWrapper<User> queryWrapper = buildUserQuery(username, role);
+        PageCursor.apply(queryWrapper, cursor, "user_id", (long) (page - 1) * size, size);
+        List<User> users = userMapper.selectList(queryWrapper);
+        String nextCursor = PageCursor.next(users, size, User::getCreatedAt, User::getUserId);
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("list", users);
+        data.put("nextCursor", nextCursor);
+        data.put("hasMore", nextCursor != null);
+        if (withTotal) {
+            data.put("total", totalCountCache.get("user:" + username + ":" + role,
+                    () -> userMapper.selectCount(buildUserQuery(username, role))));
+        }
+        return data;
+    }
+
+    private QueryWrapper<User> buildUserQuery(String username, String role) {
+        QueryWrapper<User> queryWrapper = new QueryWrapper<>();
+        if (username != null && !username.isEmpty()) {
+            queryWrapper.like("username", username);
+        }
+        if (role != null && !role.isEmpty()) {
+            queryWrapper.eq("role", role);
+        }
+        return queryWrapper;
+    }
+
     @Override
     public com.baomidou.mybatisplus.extension.plugins.pagination.Page<User> page(
             com.baomidou.mybatisplus.extension.plugins.pagination.Page<User> page, 
@@ -74,22 +166,23 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
     
     @Override
     public Map<String, String> generateCaptcha() {
-        // 生成随机验证码
-        String captchaCode = generateRandomCode(4);
-        
-        // 生成验证码图片
-        String captchaImage = generateCaptchaImage(captchaCode);
-        
-        // 生成唯一key
-        String captchaKey = UUID.randomUUID().toString();
-        
-        // 将验证码存入Redis，设置过期时间
-        redisTemplate.opsForValue().set(CAPTCHA_PREFIX + captchaKey, captchaCode, CAPTCHA_EXPIRATION, TimeUnit.MINUTES);
+        // 从预渲染池中取出验证码图片
+        CaptchaPool.Captcha captcha = captchaPool.take();
+        
+        String captchaKey;
+        if (CAPTCHA_MODE_TOKEN.equals(captchaMode)) {
+            // 以签名令牌作为key
+            captchaKey = captchaTokenService.issue(captcha.code());
+        } else {
+            // 生成唯一key，将验证码存入Redis，设置过期时间
+            captchaKey = UUID.randomUUID().toString();
+            redisTemplate.opsForValue().set(CAPTCHA_PREFIX + captchaKey, captcha.code(), CAPTCHA_EXPIRATION, TimeUnit.MINUTES);
+        }
         
         // 返回验证码信息
         Map<String, String> captchaInfo = new HashMap<>();
         captchaInfo.put("captchaKey", captchaKey);
-        captchaInfo.put("captchaImage", captchaImage);
+        captchaInfo.put("captchaImage", captcha.image());
         
         return captchaInfo;
     }
@@ -99,6 +192,10 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         if (captchaKey == null || captchaCode == null) {
             return false;
         }
+
+        if (CAPTCHA_MODE_TOKEN.equals(captchaMode)) {
+            return captchaTokenService.verify(captchaKey, captchaCode);
+        }
         
         // 从Redis获取验证码
         String storedCaptcha = redisTemplate.opsForValue().get(CAPTCHA_PREFIX + captchaKey);
@@ -111,76 +208,4 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         
         return false;
     }
-    
-    /**
-     * 生成随机验证码
-     */
-    private String generateRandomCode(int length) {
-        String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
-        StringBuilder sb = new StringBuilder();
-        Random random = new Random();
-        
-        for (int i = 0; i < length; i++) {
-            int index = random.nextInt(chars.length());
-            sb.append(chars.charAt(index));
-        }
-        
-        return sb.toString();
-    }
-    
-    /**
-     * 生成验证码图片并转为Base64
-     */
-    private String generateCaptchaImage(String code) {
-        int width = 100;
-        int height = 40;
-        
-        // 创建图像缓冲区
-        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g = image.createGraphics();
-        
-        // 设置背景色
-        g.setColor(Color.WHITE);
-        g.fillRect(0, 0, width, height);
-        
-        // 设置字体
-        g.setFont(new Font("Arial", Font.BOLD, 20));
-        
-        // 添加干扰线
-        Random random = new Random();
-        g.setColor(new Color(160, 160, 160));
-        for (int i = 0; i < 8; i++) {
-            int x1 = random.nextInt(width);
-            int y1 = random.nextInt(height);
-            int x2 = random.nextInt(width);
-            int y2 = random.nextInt(height);
-            g.drawLine(x1, y1, x2, y2);
-        }
-        
-        // 添加噪点
-        for (int i = 0; i < 50; i++) {
-            int x = random.nextInt(width);
-            int y = random.nextInt(height);
-            g.setColor(new Color(random.nextInt(255), random.nextInt(255), random.nextInt(255)));
-            g.drawOval(x, y, 1, 1);
-        }
-        
-        // 绘制验证码
-        for (int i = 0; i < code.length(); i++) {
-            g.setColor(new Color(random.nextInt(100), random.nextInt(100), random.nextInt(100)));
-            g.drawString(String.valueOf(code.charAt(i)), 20 * i + 10, 25);
-        }
-        
-        g.dispose();
-        
-        // 转换为Base64
-        try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ImageIO.write(image, "png", baos);
-            byte[] bytes = baos.toByteArray();
-            return "data:image/png;base64," + Base64.getEncoder().encodeToString(bytes);
-        } catch (Exception e) {
-            throw new RuntimeException("生成验证码图片失败", e);
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,201 @@
+package com.example.express.stats;
+
+import com.example.express.entity.OrderOutbox;
+import com.example.express.mapper.OrderMapper;
+import com.example.express.mapper.OrderOutboxMapper;
+import com.example.express.outbox.OrderChangeListener;
+import com.example.express.outbox.OutboxCounters;
+import com.example.express.util.SnowflakeIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单统计服务
+ * 计数保存在Redis哈希中供各节点共享，读取统计只需一次HGETALL：
+ * - 订单变更事件到达时按增量更新（创建、删除、状态流转）
+ * - 定时以一次分组聚合查询与数据库对账，修正增量丢失或重复造成的偏差
+ * 重复投递的事件按事件ID去重，迟到的缺口事件仍会计入（见OutboxCounters）
+ */
+@Slf4j
+@Component
+public class OrderStatsService implements OrderChangeListener {
+
+    public static final String CONSUMER_NAME = "order-stats";
+
+    private static final String STATS_KEY = "order:stats";
+    private static final String FIELD_TOTAL = "total";
+    private static final String FIELD_STATUS_PREFIX = "status:";
+    private static final String FIELD_CREATED_PREFIX = "created:";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private OrderOutboxMapper orderOutboxMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Override
+    public String name() {
+        return CONSUMER_NAME;
+    }
+
+    @Override
+    public void onOrderChanges(List<OrderOutbox> events) {
+        List<String> args = new ArrayList<>(events.size() * 9);
+        for (OrderOutbox event : events) {
+            String eventId = String.valueOf(event.getEventId());
+            switch (event.getEventType()) {
+                case OrderOutbox.CREATE -> {
+                    addDelta(args, eventId, FIELD_TOTAL, 1);
+                    addDelta(args, eventId, statusField(event.getNewStatus()), 1);
+                    addDelta(args, eventId, createdField(event.getOrderId()), 1);
+                }
+                case OrderOutbox.UPDATE -> {
+                    addDelta(args, eventId, statusField(event.getOldStatus()), -1);
+                    addDelta(args, eventId, statusField(event.getNewStatus()), 1);
+                }
+                case OrderOutbox.DELETE -> {
+                    addDelta(args, eventId, FIELD_TOTAL, -1);
+                    addDelta(args, eventId, statusField(event.getOldStatus()), -1);
+                    addDelta(args, eventId, createdField(event.getOrderId()), -1);
+                }
+                default -> log.warn("未知的订单变更事件类型：{}", event.getEventType());
+            }
+        }
+        OutboxCounters.apply(stringRedisTemplate, STATS_KEY, args);
+    }
+
+    /**
+     * 获取订单统计数据
+     * 计数未初始化或Redis不可用时直接以分组聚合查询数据库
+     */
+    public Map<String, Object> getStats() {
+        try {
+            Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(STATS_KEY);
+            if (entries.containsKey(OutboxCounters.FIELD_WATERMARK)) {
+                return toStats(entries);
+            }
+            if (reconcile()) {
+                return toStats(stringRedisTemplate.opsForHash().entries(STATS_KEY));
+            }
+        } catch (Exception e) {
+            log.warn("读取订单统计缓存失败，改为查询数据库：{}", e.getMessage());
+        }
+        return toStats(snapshot(LocalDate.now()));
+    }
+
+    /**
+     * 定时对账
+     */
+    @Scheduled(fixedDelayString = "${app.stats.reconcile-interval-ms:300000}",
+            initialDelayString = "${app.stats.reconcile-initial-delay-ms:10000}")
+    public void scheduledReconcile() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            log.warn("订单统计对账失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 以数据库快照重建计数
+     * 对账期间锁定本消费者的投递位点，避免与增量更新交错；watermark取快照可见的最大事件ID，
+     * 快照已包含的事件随后投递到达时会被跳过，并清空已计入的事件ID
+     *
+     * @return 是否完成对账（位点正被投递占用时跳过，返回false）
+     */
+    public boolean reconcile() {
+        orderOutboxMapper.initOffset(CONSUMER_NAME);
+        Boolean done = transactionTemplate.execute(status -> {
+            Long offset = orderOutboxMapper.lockOffset(CONSUMER_NAME);
+            if (offset == null) {
+                return false;
+            }
+            // 聚合查询与最大事件ID读取同一个一致性快照
+            Map<String, String> snapshot = snapshot(LocalDate.now());
+            Long maxEventId = orderOutboxMapper.selectMaxEventId();
+            long watermark = Math.max(offset, maxEventId == null ? 0 : maxEventId);
+            OutboxCounters.replace(stringRedisTemplate, STATS_KEY, watermark, snapshot);
+            return true;
+        });
+        return Boolean.TRUE.equals(done);
+    }
+
+    private Map<String, String> snapshot(LocalDate today) {
+        Map<String, String> fields = new HashMap<>();
+        long total = 0;
+        long createdToday = 0;
+        for (Map<String, Object> row : orderMapper.countByStatus(today.atStartOfDay())) {
+            long count = toLong(row.get("total"));
+            total += count;
+            createdToday += toLong(row.get("created_since"));
+            fields.put(FIELD_STATUS_PREFIX + toLong(row.get("status")), String.valueOf(count));
+        }
+        fields.put(FIELD_TOTAL, String.valueOf(total));
+        fields.put(FIELD_CREATED_PREFIX + today, String.valueOf(createdToday));
+        return fields;
+    }
+
+    private static Map<String, Object> toStats(Map<?, ?> entries) {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalOrders", toLong(entries.get(FIELD_TOTAL)));
+        for (int status = 0; status <= 4; status++) {
+            stats.put("status" + status + "Count", toLong(entries.get(statusField(status))));
+        }
+        stats.put("todayOrders", toLong(entries.get(FIELD_CREATED_PREFIX + LocalDate.now())));
+        return stats;
+    }
+
+    private static void addDelta(List<String> args, String eventId, String field, int delta) {
+        if (field == null) {
+            return;
+        }
+        args.add(eventId);
+        args.add(field);
+        args.add(String.valueOf(delta));
+    }
+
+    private static String statusField(Integer status) {
+        return status == null ? null : FIELD_STATUS_PREFIX + status;
+    }
+
+    /**
+     * 订单创建日期由雪花ID中的时间戳得出，删除事件也能扣减对应日期的计数
+     */
+    private static String createdField(Long orderId) {
+        LocalDate date = Instant.ofEpochMilli(SnowflakeIdGenerator.extractTimestamp(orderId))
+                .atZone(ZoneId.systemDefault())
+                .toLocalDate();
+        return FIELD_CREATED_PREFIX + date;
+    }
+
+    private static long toLong(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        if (value instanceof Boolean bool) {
+            return bool ? 1 : 0;
+        }
+        return Long.parseLong(value.toString());
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.express.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 熔断器
+ * 连续失败达到阈值后打开，打开期间直接拒绝请求，避免外部服务故障时继续占用线程和配额；
+ * 冷却时间过后进入半开状态，只放行一个试探请求，成功则关闭，失败则重新打开
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+
+    private final int failureThreshold;
+
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+
+    private int consecutiveFailures;
+
+    private long openedAt;
+
+    /**
+     * @param name             名称，用于日志
+     * @param failureThreshold 打开熔断所需的连续失败次数
+     * @param openMillis       打开后的冷却时间（毫秒）
+     */
+    public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * 是否允许发出请求；允许时调用方须在请求结束后调用recordSuccess或recordFailure
+     */
+    public synchronized boolean allowRequest() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> {
+                if (System.currentTimeMillis() - openedAt < openMillis) {
+                    yield false;
+                }
+                state = State.HALF_OPEN;
+                yield true;
+            }
+            // 半开状态下试探请求尚未结束
+            case HALF_OPEN -> false;
+        };
+    }
+
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            log.info("熔断器{}已关闭", name);
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            log.warn("熔断器{}已打开：连续失败{}次，{}ms内拒绝请求", name, consecutiveFailures, openMillis);
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.express.util;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 雪花算法ID生成器
+ * 结构（64位）：1位符号 | 41位时间戳（相对EPOCH的毫秒数） | 5位数据中心ID | 5位机器ID | 12位序列号
+ *
+ * 生成过程无锁：上一次的时间戳与序列号打包在一个AtomicLong中，通过CAS推进。
+ * 时钟回拨时继续沿用上一次的时间戳递增序列号，序列号耗尽则借用下一毫秒，保证ID单调递增且不重复。
+ */
+@Slf4j
+@Component
+public class SnowflakeIdGenerator {
+
+    /**
+     * 起始时间戳：2025-01-01 00:00:00 UTC
+     */
+    private static final long EPOCH = 1735689600000L;
+
+    private static final long WORKER_ID_BITS = 5L;
+    private static final long DATACENTER_ID_BITS = 5L;
+    private static final long SEQUENCE_BITS = 12L;
+
+    private static final long MAX_WORKER_ID = ~(-1L << WORKER_ID_BITS);
+    private static final long MAX_DATACENTER_ID = ~(-1L << DATACENTER_ID_BITS);
+    private static final long SEQUENCE_MASK = ~(-1L << SEQUENCE_BITS);
+
+    private static final long WORKER_ID_SHIFT = SEQUENCE_BITS;
+    private static final long DATACENTER_ID_SHIFT = SEQUENCE_BITS + WORKER_ID_BITS;
+    private static final long TIMESTAMP_SHIFT = SEQUENCE_BITS + WORKER_ID_BITS + DATACENTER_ID_BITS;
+
+    /**
+     * 时钟回拨超过该阈值（毫秒）时输出告警日志
+     */
+    private static final long ROLLBACK_WARN_THRESHOLD = 1000L;
+
+    @Value("${app.snowflake.worker-id}")
+    private long workerId;
+
+    @Value("${app.snowflake.datacenter-id}")
+    private long datacenterId;
+
+    /**
+     * 机器标识部分（数据中心ID和机器ID），初始化后不再变化
+     */
+    private long nodeBits;
+
+    /**
+     * 打包的状态：高位为上一次使用的相对时间戳，低12位为序列号
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * 毫秒时钟，测试时可替换以模拟时钟回拨
+     */
+    private final LongSupplier clock;
+
+    public SnowflakeIdGenerator() {
+        this.clock = System::currentTimeMillis;
+    }
+
+    /**
+     * 不经Spring注入直接创建（测试用）
+     */
+    SnowflakeIdGenerator(long workerId, long datacenterId, LongSupplier clock) {
+        this.workerId = workerId;
+        this.datacenterId = datacenterId;
+        this.clock = clock;
+        init();
+    }
+
+    @PostConstruct
+    public void init() {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("worker-id 必须在 0 到 " + MAX_WORKER_ID + " 之间");
+        }
+        if (datacenterId < 0 || datacenterId > MAX_DATACENTER_ID) {
+            throw new IllegalArgumentException("datacenter-id 必须在 0 到 " + MAX_DATACENTER_ID + " 之间");
+        }
+        nodeBits = (datacenterId << DATACENTER_ID_SHIFT) | (workerId << WORKER_ID_SHIFT);
+    }
+
+    /**
+     * 生成下一个ID
+     */
+    public long nextId() {
+        while (true) {
+            long current = state.get();
+            long lastTimestamp = current >>> SEQUENCE_BITS;
+            long sequence = current & SEQUENCE_MASK;
+            long now = clock.getAsLong() - EPOCH;
+
+            long next;
+            if (now > lastTimestamp) {
+                // 进入新的毫秒，序列号归零
+                next = now << SEQUENCE_BITS;
+            } else if (sequence < SEQUENCE_MASK) {
+                // 同一毫秒内或时钟回拨：沿用上一次的时间戳递增序列号
+                next = current + 1;
+            } else {
+                // 当前毫秒序列号耗尽：借用下一毫秒，避免自旋等待
+                next = (lastTimestamp + 1) << SEQUENCE_BITS;
+            }
+
+            if (state.compareAndSet(current, next)) {
+                if (lastTimestamp - now > ROLLBACK_WARN_THRESHOLD && (next & SEQUENCE_MASK) == 1) {
+                    log.warn("检测到系统时钟回拨 {} ms，继续沿用上一次的时间戳生成ID", lastTimestamp - now);
+                }
+                return ((next >>> SEQUENCE_BITS) << TIMESTAMP_SHIFT) | nodeBits | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * 从ID中解析生成时间（毫秒时间戳）
+     */
+    public static long extractTimestamp(long id) {
+        return (id >>> TIMESTAMP_SHIFT) + EPOCH;
+    }
+}
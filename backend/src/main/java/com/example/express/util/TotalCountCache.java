@@ -0,0 +1,49 @@
+package com.example.express.util;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.TimedCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.LongSupplier;
+
+/**
+ * 列表总数缓存
+ * 分页列表的COUNT(*)按查询条件缓存一段时间，翻页时不再每次都统计全表，总数允许有短暂延迟
+ */
+@Component
+public class TotalCountCache {
+
+    @Value("${app.pagination.total-cache-ttl-ms:30000}")
+    private long ttlMs;
+
+    private TimedCache<String, Long> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = CacheUtil.newTimedCache(ttlMs);
+        cache.schedulePrune(ttlMs);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        cache.cancelPruneSchedule();
+    }
+
+    /**
+     * 获取总数，缓存未命中时执行统计
+     *
+     * @param key     列表名与查询条件组成的缓存键
+     * @param counter 统计函数
+     */
+    public long get(String key, LongSupplier counter) {
+        Long total = cache.get(key, false);
+        if (total == null) {
+            total = counter.getAsLong();
+            cache.put(key, total);
+        }
+        return total;
+    }
+}
@@ -55,7 +55,7 @@ CREATE TABLE order_status_log (
 CREATE TABLE operation_log (
     log_id BIGINT AUTO_INCREMENT,
     operator_id BIGINT NOT NULL COMMENT '操作人ID',
-    operation_type ENUM('创建订单', '更新状态', '删除订单', '用户管理', '系统设置') NOT NULL,
+    operation_type ENUM('创建订单', '更新状态', '删除订单', '用户管理', '员工管理', '系统设置') NOT NULL,
     target_id BIGINT COMMENT '操作对象ID',
     detail TEXT COMMENT '操作详情（JSON格式）',
     ip_address VARCHAR(50) COMMENT '操作IP',
@@ -78,6 +78,23 @@ CREATE TABLE operation_log (
 );
 
 
+-- 订单变更事件表（事务性发件箱，与订单写入同一事务）
+CREATE TABLE order_outbox (
+    event_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    order_id BIGINT NOT NULL COMMENT '订单ID',
+    event_type ENUM('CREATE', 'UPDATE', 'DELETE') NOT NULL COMMENT '变更类型',
+    old_status TINYINT COMMENT '变更前状态',
+    new_status TINYINT COMMENT '变更后状态',
+    store_id BIGINT COMMENT '变更后所在门店ID',
+    created_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3)
+);
+
+-- 订单变更事件消费位点
+CREATE TABLE order_outbox_offset (
+    consumer VARCHAR(50) PRIMARY KEY COMMENT '消费者名称',
+    last_event_id BIGINT NOT NULL DEFAULT 0 COMMENT '已处理的最大事件ID'
+);
+
 -- 员工表
 CREATE TABLE sys_staff (
     staff_id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '员工ID',
@@ -100,4 +117,7 @@ CREATE INDEX idx_store_gps ON store(gps_location);
 CREATE INDEX idx_operation_log_type ON operation_log(operation_type);
 CREATE INDEX idx_operation_log_date ON operation_log(created_at);
 CREATE INDEX idx_staff_store ON sys_staff(store_id);
-CREATE INDEX idx_staff_user ON sys_staff(user_id);
\ No newline at end of file
+CREATE INDEX idx_staff_user ON sys_staff(user_id);
+-- 列表键集分页按(created_at, 主键)倒序定位，二级索引已隐含主键列
+CREATE INDEX idx_user_created_at ON sys_user(created_at);
+CREATE INDEX idx_staff_created_at ON sys_staff(created_at);
\ No newline at end of file
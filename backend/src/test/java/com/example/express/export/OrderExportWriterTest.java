@@ -0,0 +1,91 @@
+package com.example.express.export;
+
+import com.example.express.common.ExportFormat;
+import com.example.express.entity.Order;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderExportWriterTest {
+
+    @Test
+    void writesCsvWithBomHeaderAndQuotedFields() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OrderExportWriter writer = new OrderExportWriter(ExportFormat.CSV, null, out)) {
+            Order order = order(1L);
+            order.setSenderInfo("{\"name\":\"张三\",\"address\":\"北京,朝阳\"}");
+            order.setReceiverInfo("第一行\n第二行");
+            writer.write(order);
+            assertEquals(1, writer.getRows());
+        }
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertTrue(lines[0].startsWith("\uFEFForder_id,status,status_text"));
+        assertEquals("1,2,运输中,电器,3,4,2024-05-01 08:30:00,2024-05-01 08:30:00,"
+                + "\"{\"\"name\"\":\"\"张三\"\",\"\"address\"\":\"\"北京,朝阳\"\"}\",\"第一行\n第二行\"", lines[1]);
+    }
+
+    /**
+     * 导出50万行时堆内存占用不应随行数增长（写出器只保留固定大小的缓冲区）
+     */
+    @Test
+    void memoryStaysFlatWhileStreaming() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        try (OrderExportWriter writer = new OrderExportWriter(ExportFormat.CSV, null, out)) {
+            for (long id = 1; id <= 10_000; id++) {
+                writer.write(order(id));
+            }
+            long baseline = usedHeap();
+            for (long id = 10_001; id <= 500_000; id++) {
+                writer.write(order(id));
+            }
+            long growth = usedHeap() - baseline;
+            assertEquals(500_000, writer.getRows());
+            // 50万行约60MB输出，若在内存中累积会远超此上限
+            assertTrue(growth < 8L * 1024 * 1024, "导出期间堆内存增长 " + growth / 1024 + " KB");
+        }
+        assertTrue(out.count > 50L * 1024 * 1024, "输出 " + out.count + " 字节");
+    }
+
+    private static Order order(long id) {
+        Order order = new Order();
+        order.setOrderId(id);
+        order.setStatus(2);
+        order.setItemType("电器");
+        order.setCurrentStoreId(3L);
+        order.setCreatedBy(4L);
+        order.setCreatedAt(LocalDateTime.of(2024, 5, 1, 8, 30));
+        order.setUpdatedAt(LocalDateTime.of(2024, 5, 1, 8, 30));
+        order.setSenderInfo("{\"name\":\"寄件人" + id + "\",\"phone\":\"13800000000\",\"address\":\"北京市朝阳区\"}");
+        order.setReceiverInfo("{\"name\":\"收件人" + id + "\",\"phone\":\"13900000000\",\"address\":\"上海市浦东新区\"}");
+        return order;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
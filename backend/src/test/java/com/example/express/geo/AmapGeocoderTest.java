@@ -0,0 +1,337 @@
+package com.example.express.geo;
+
+import com.example.express.util.CircuitBreaker;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 以本地HTTP服务模拟高德接口：凑批、合并查询、超时、熔断及半开、无法解析地址的缓存
+ */
+class AmapGeocoderTest {
+
+    private static final String BEIJING = "116.397128,39.916527";
+    private static final String SHANGHAI = "121.473701,31.230416";
+
+    /**
+     * 已知地址的坐标，其余地址按无法解析返回
+     */
+    private final Map<String, String> known = new HashMap<>();
+
+    /**
+     * 服务端收到的每次请求的地址列表
+     */
+    private final List<List<String>> requests = new CopyOnWriteArrayList<>();
+
+    private volatile int responseStatus = 200;
+
+    private volatile long responseDelayMs;
+
+    private volatile CountDownLatch responseGate;
+
+    private HttpServer server;
+
+    private ExecutorService serverExecutor;
+
+    private ValueOperations<String, String> valueOperations;
+
+    private AmapGeocoder geocoder;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws IOException {
+        known.put("北京市东城区东长安街", BEIJING);
+        known.put("上海市黄浦区人民大道", SHANGHAI);
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v3/geocode/geo", this::handle);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        valueOperations = mock(ValueOperations.class);
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+
+        geocoder = new AmapGeocoder();
+        ReflectionTestUtils.setField(geocoder, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(geocoder, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(geocoder, "key", "test-key");
+        ReflectionTestUtils.setField(geocoder, "geocodeUrl",
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/v3/geocode/geo");
+        ReflectionTestUtils.setField(geocoder, "enabled", true);
+        ReflectionTestUtils.setField(geocoder, "localCapacity", 100);
+        ReflectionTestUtils.setField(geocoder, "localTtlMs", 60_000L);
+        ReflectionTestUtils.setField(geocoder, "redisTtlSeconds", 86_400L);
+        ReflectionTestUtils.setField(geocoder, "notFoundTtlSeconds", 3600L);
+        ReflectionTestUtils.setField(geocoder, "batchSize", 10);
+        ReflectionTestUtils.setField(geocoder, "batchWindowMs", 5L);
+        ReflectionTestUtils.setField(geocoder, "queueCapacity", 100);
+        ReflectionTestUtils.setField(geocoder, "redisThreads", 2);
+        ReflectionTestUtils.setField(geocoder, "redisQueueCapacity", 100);
+        ReflectionTestUtils.setField(geocoder, "maxInFlight", 4);
+        ReflectionTestUtils.setField(geocoder, "timeoutMs", 500L);
+        ReflectionTestUtils.setField(geocoder, "failureThreshold", 2);
+        ReflectionTestUtils.setField(geocoder, "breakerOpenMs", 300L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        CountDownLatch gate = responseGate;
+        if (gate != null) {
+            gate.countDown();
+        }
+        geocoder.destroy();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void batchesAddressesWithinWindowAndSendsOriginalText() throws Exception {
+        ReflectionTestUtils.setField(geocoder, "batchWindowMs", 200L);
+        geocoder.init();
+        String[] addresses = new String[10];
+        for (int i = 0; i < addresses.length; i++) {
+            addresses[i] = "杭州市西湖区 文三路" + i + "号 ＡＢ座";
+            known.put(addresses[i], "120.1" + i + ",30.28");
+        }
+
+        List<CompletableFuture<GeoPoint>> futures = new ArrayList<>();
+        for (String address : addresses) {
+            futures.add(geocoder.geocodeAsync(address));
+        }
+        for (int i = 0; i < addresses.length; i++) {
+            assertEquals(GeoPoint.parse("120.1" + i + ",30.28"), futures.get(i).get(5, TimeUnit.SECONDS));
+        }
+
+        // 一次批量请求，上游收到的是原始地址而不是归一化后的缓存键
+        assertEquals(1, requests.size());
+        assertEquals(Arrays.asList(addresses), sorted(requests.get(0), addresses));
+        // 分隔符不会拆出额外的地址
+        assertEquals(BEIJING, geocoder.geocode(" 北京市东城区东长安街| ").toString());
+        assertEquals(List.of("北京市东城区东长安街"), requests.get(1));
+    }
+
+    @Test
+    void coalescesConcurrentLookupsOfSameAddress() throws Exception {
+        geocoder.init();
+        responseGate = new CountDownLatch(1);
+
+        CompletableFuture<GeoPoint> first = geocoder.geocodeAsync("上海市黄浦区人民大道");
+        // 归一化后相同的地址合并到同一次查询
+        List<CompletableFuture<GeoPoint>> others = List.of(
+                geocoder.geocodeAsync("上海市黄浦区人民大道"),
+                geocoder.geocodeAsync(" 上海市 黄浦区 人民大道 "),
+                geocoder.geocodeAsync("上海市黄浦区人民大道　"));
+        assertNull(geocoder.getIfCached("上海市黄浦区人民大道"));
+        responseGate.countDown();
+
+        assertEquals(SHANGHAI, first.get(5, TimeUnit.SECONDS).toString());
+        for (CompletableFuture<GeoPoint> other : others) {
+            assertEquals(SHANGHAI, other.get(5, TimeUnit.SECONDS).toString());
+        }
+        assertEquals(1, requests.size());
+        assertEquals(List.of("上海市黄浦区人民大道"), requests.get(0));
+
+        // 完成后写入本地缓存及Redis；回调结束前的查询合并到已完成的结果，不会再请求上游
+        assertEquals(SHANGHAI, awaitCached("上海市黄浦区人民大道").toString());
+        verify(valueOperations).set(anyString(), eq(SHANGHAI), eq(86_400L), eq(TimeUnit.SECONDS));
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    void timeoutReturnsNullAndIsNotCached() {
+        geocoder.init();
+        responseDelayMs = 2000;
+
+        long start = System.nanoTime();
+        assertNull(geocoder.geocode("北京市东城区东长安街"));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMs < 1500, "超时未生效：" + elapsedMs + "ms");
+
+        // 上游超时的结果不缓存，恢复后重新查询
+        responseDelayMs = 0;
+        assertEquals(BEIJING, awaitGeocode("北京市东城区东长安街").toString());
+    }
+
+    @Test
+    void breakerOpensAfterFailuresAndProbesWhenHalfOpen() throws Exception {
+        geocoder.init();
+        CircuitBreaker breaker = (CircuitBreaker) ReflectionTestUtils.getField(geocoder, "circuitBreaker");
+        responseStatus = 500;
+
+        assertNull(geocoder.geocode("北京市东城区东长安街"));
+        assertNull(geocoder.geocode("上海市黄浦区人民大道"));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // 熔断期间不请求上游
+        int sent = requests.size();
+        assertNull(geocoder.geocode("北京市东城区东长安街"));
+        assertEquals(sent, requests.size());
+
+        // 冷却后放行一个试探请求，失败则重新打开
+        Thread.sleep(350);
+        assertNull(geocoder.geocode("北京市东城区东长安街"));
+        assertEquals(sent + 1, requests.size());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertNull(geocoder.geocode("北京市东城区东长安街"));
+        assertEquals(sent + 1, requests.size());
+
+        // 试探成功后关闭
+        Thread.sleep(350);
+        responseStatus = 200;
+        assertEquals(BEIJING, geocoder.geocode("北京市东城区东长安街").toString());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(SHANGHAI, geocoder.geocode("上海市黄浦区人民大道").toString());
+    }
+
+    @Test
+    void notFoundAddressesAreCachedBriefly() {
+        geocoder.init();
+
+        assertNull(geocoder.geocode("火星市奥林匹斯山"));
+        assertEquals(1, requests.size());
+        verify(valueOperations).set(anyString(), eq(""), eq(3600L), eq(TimeUnit.SECONDS));
+
+        // 本地缓存命中，不再请求上游
+        assertNull(geocoder.geocode("火星市奥林匹斯山"));
+        assertNull(geocoder.getIfCached("火星市奥林匹斯山"));
+        assertEquals(1, requests.size());
+
+        // Redis中的空字符串同样表示无法解析
+        when(valueOperations.get(any())).thenReturn("");
+        assertNull(geocoder.geocode("月球市静海"));
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    void redisBacklogIsRejectedWithoutBlocking() throws Exception {
+        ReflectionTestUtils.setField(geocoder, "redisThreads", 1);
+        ReflectionTestUtils.setField(geocoder, "redisQueueCapacity", 1);
+        geocoder.init();
+        CountDownLatch redisGate = new CountDownLatch(1);
+        when(valueOperations.get(any())).thenAnswer(invocation -> {
+            redisGate.await(5, TimeUnit.SECONDS);
+            return null;
+        });
+
+        CompletableFuture<GeoPoint> running = geocoder.geocodeAsync("北京市东城区东长安街");
+        Thread.sleep(100);
+        CompletableFuture<GeoPoint> queued = geocoder.geocodeAsync("上海市黄浦区人民大道");
+        // 线程和队列都已占满，第三个地址直接返回未知
+        CompletableFuture<GeoPoint> rejected = geocoder.geocodeAsync("广州市天河区天河路");
+        assertTrue(rejected.isDone());
+        assertNull(rejected.get());
+
+        redisGate.countDown();
+        assertEquals(BEIJING, running.get(5, TimeUnit.SECONDS).toString());
+        assertEquals(SHANGHAI, queued.get(5, TimeUnit.SECONDS).toString());
+    }
+
+    /**
+     * 等待查询结果写入本地缓存
+     */
+    private GeoPoint awaitCached(String address) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        GeoPoint point;
+        while ((point = geocoder.getIfCached(address)) == null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return point;
+    }
+
+    /**
+     * 等待上一次查询的后台回调结束后重新查询
+     */
+    private GeoPoint awaitGeocode(String address) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        GeoPoint point;
+        do {
+            point = geocoder.geocode(address);
+        } while (point == null && System.nanoTime() < deadline);
+        return point;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String query = exchange.getRequestURI().getRawQuery();
+            List<String> addresses = new ArrayList<>();
+            for (String param : query.split("&")) {
+                if (param.startsWith("address=")) {
+                    String value = URLDecoder.decode(param.substring("address=".length()), StandardCharsets.UTF_8);
+                    addresses.addAll(Arrays.asList(value.split("\\|")));
+                }
+            }
+            requests.add(addresses);
+
+            CountDownLatch gate = responseGate;
+            if (gate != null) {
+                gate.await(5, TimeUnit.SECONDS);
+            }
+            if (responseDelayMs > 0) {
+                Thread.sleep(responseDelayMs);
+            }
+
+            StringBuilder geocodes = new StringBuilder();
+            for (String address : addresses) {
+                String location = known.get(address);
+                geocodes.append(geocodes.length() == 0 ? "" : ",")
+                        .append(location == null ? "{\"location\":[]}" : "{\"location\":\"" + location + "\"}");
+            }
+            byte[] body = ("{\"status\":\"1\",\"info\":\"OK\",\"infocode\":\"10000\",\"count\":\"" + addresses.size()
+                    + "\",\"geocodes\":[" + geocodes + "]}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+            exchange.sendResponseHeaders(responseStatus, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * 批量请求中的地址按给定顺序排列，便于比较
+     */
+    private static List<String> sorted(List<String> received, String[] order) {
+        List<String> expected = Arrays.asList(order);
+        List<String> result = new ArrayList<>(received);
+        result.sort((a, b) -> Integer.compare(expected.indexOf(a), expected.indexOf(b)));
+        return result;
+    }
+}
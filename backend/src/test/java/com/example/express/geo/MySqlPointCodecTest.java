@@ -0,0 +1,91 @@
+package com.example.express.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MySqlPointCodecTest {
+
+    @Test
+    void roundTrip() {
+        String[] samples = {"116.397128,39.916527", "-122.4194,37.7749", "0.5,-0.25", "179.999999,-89.999999"};
+        for (String coordinates : samples) {
+            assertEquals(coordinates, MySqlPointCodec.decode(MySqlPointCodec.encode(coordinates)));
+        }
+        assertEquals("116.4,39.9", MySqlPointCodec.decode(MySqlPointCodec.encode(" 116.4 , 39.9 ")));
+    }
+
+    @Test
+    void encodesSridAndLittleEndianWkb() {
+        byte[] bytes = MySqlPointCodec.encode(4326, 116.4, 39.9);
+        assertEquals(MySqlPointCodec.POINT_LENGTH, bytes.length);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(4326, buffer.getInt(0));
+        assertEquals(1, bytes[4]);
+        assertEquals(1, buffer.getInt(5));
+        assertEquals(116.4, buffer.getDouble(9));
+        assertEquals(39.9, buffer.getDouble(17));
+    }
+
+    @Test
+    void decodesBigEndianWkb() {
+        ByteBuffer buffer = ByteBuffer.allocate(MySqlPointCodec.POINT_LENGTH);
+        // SRID始终为小端，WKB部分按字节序标记（0表示大端）
+        buffer.order(ByteOrder.LITTLE_ENDIAN).putInt(0, 0);
+        buffer.put(4, (byte) 0);
+        buffer.order(ByteOrder.BIG_ENDIAN).putInt(5, 1);
+        buffer.putDouble(9, 121.4737);
+        buffer.putDouble(17, 31.2304);
+        assertEquals("121.4737,31.2304", MySqlPointCodec.decode(buffer.array()));
+    }
+
+    @Test
+    void decodesTextFallback() {
+        assertEquals("116.4,39.9", MySqlPointCodec.decode(ascii("POINT(116.4 39.9)")));
+        assertEquals("-1.5,2.0", MySqlPointCodec.decode(ascii("POINT(-1.5  2)")));
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        assertNull(MySqlPointCodec.decode(null));
+        assertNull(MySqlPointCodec.decode(new byte[0]));
+        assertNull(MySqlPointCodec.decode(new byte[]{1, 2, 3}));
+        assertNull(MySqlPointCodec.decode(ascii("POINT(116.4)")));
+        assertNull(MySqlPointCodec.decode(ascii("POINT(abc def)")));
+        assertNull(MySqlPointCodec.decode(ascii("LINESTRING(0 0, 1 1)")));
+        assertNull(MySqlPointCodec.decode(ascii("POINT(NaN 1)")));
+
+        // 长度为25但类型不是POINT
+        byte[] notPoint = MySqlPointCodec.encode(0, 1, 2);
+        ByteBuffer.wrap(notPoint).order(ByteOrder.LITTLE_ENDIAN).putInt(5, 2);
+        assertNull(MySqlPointCodec.decode(notPoint));
+
+        // 二进制中的非有限坐标
+        assertNull(MySqlPointCodec.decode(MySqlPointCodec.encode(0, Double.NaN, 1)));
+
+        assertNull(MySqlPointCodec.encode(""));
+        assertNull(MySqlPointCodec.encode("116.4"));
+        assertNull(MySqlPointCodec.encode(",39.9"));
+        assertNull(MySqlPointCodec.encode("1,2,3"));
+        assertNull(MySqlPointCodec.encode("east,north"));
+    }
+
+    @Test
+    void rejectsNonFiniteCoordinates() {
+        assertNull(MySqlPointCodec.encode("NaN,39.9"));
+        assertNull(MySqlPointCodec.encode("116.4,NaN"));
+        assertNull(MySqlPointCodec.encode("Infinity,0"));
+        assertNull(MySqlPointCodec.encode("1,-Infinity"));
+        assertArrayEquals(MySqlPointCodec.encode(0, 1e308, -1e308), MySqlPointCodec.encode("1e308,-1e308"));
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
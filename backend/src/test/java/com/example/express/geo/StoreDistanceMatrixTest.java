@@ -0,0 +1,89 @@
+package com.example.express.geo;
+
+import com.example.express.cache.StoreCatalog;
+import com.example.express.entity.Store;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 距离矩阵查询：必须指定门店，门店数有上限
+ */
+class StoreDistanceMatrixTest {
+
+    private static final int MAX_QUERY_STORES = 5;
+
+    private StoreDistanceMatrix matrix;
+
+    private List<Store> stores;
+
+    @BeforeEach
+    void setUp() {
+        stores = new ArrayList<>();
+        Map<Long, Store> storesById = new HashMap<>();
+        for (long storeId = 1; storeId <= 10; storeId++) {
+            Store store = new Store();
+            store.setStoreId(storeId);
+            store.setGpsCoordinates(116.3 + storeId * 0.01, 39.9 + storeId * 0.005);
+            store.setStatus(1);
+            stores.add(store);
+            storesById.put(storeId, store);
+        }
+        StoreCatalog storeCatalog = mock(StoreCatalog.class);
+        when(storeCatalog.current()).thenReturn(new StoreCatalog.Snapshot(1, "test", stores, storesById));
+
+        matrix = new StoreDistanceMatrix();
+        ReflectionTestUtils.setField(matrix, "storeCatalog", storeCatalog);
+        ReflectionTestUtils.setField(matrix, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(matrix, "neighborCount", 3);
+        ReflectionTestUtils.setField(matrix, "maxQueryStores", MAX_QUERY_STORES);
+        matrix.init();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void returnsDistancesInRequestedOrder() {
+        Map<String, Object> result = matrix.distances(List.of(4L, 1L, 7L));
+        assertEquals(List.of(4L, 1L, 7L), result.get("storeIds"));
+
+        List<List<Float>> rows = (List<List<Float>>) result.get("distances");
+        assertEquals(3, rows.size());
+        long[] ids = {4, 1, 7};
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(3, rows.get(i).size());
+            assertEquals(0f, rows.get(i).get(i));
+            for (int j = 0; j < ids.length; j++) {
+                double[] from = stores.get((int) ids[i] - 1).getGpsCoordinates();
+                double[] to = stores.get((int) ids[j] - 1).getGpsCoordinates();
+                assertEquals(GeoUtils.haversineKm(from[0], from[1], to[0], to[1]), rows.get(i).get(j), 1e-3);
+                assertEquals(rows.get(i).get(j), rows.get(j).get(i));
+            }
+        }
+    }
+
+    @Test
+    void requiresStoreIdsWithinLimit() {
+        assertThrows(IllegalArgumentException.class, () -> matrix.distances(null));
+        assertThrows(IllegalArgumentException.class, () -> matrix.distances(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> matrix.distances(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L)));
+        assertEquals(MAX_QUERY_STORES, ((List<?>) matrix.distances(List.of(1L, 2L, 3L, 4L, 5L)).get("storeIds")).size());
+    }
+
+    @Test
+    void unknownStoreReturnsNull() {
+        assertNull(matrix.distances(List.of(1L, 99L)));
+    }
+}
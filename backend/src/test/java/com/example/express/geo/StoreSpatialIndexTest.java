@@ -0,0 +1,203 @@
+package com.example.express.geo;
+
+import com.example.express.entity.Store;
+import com.example.express.mapper.StoreMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 与全量扫描逐一对比，校验网格逐圈扫描及剪枝下界
+ */
+class StoreSpatialIndexTest {
+
+    private static final double CELL_DEGREES = 0.05;
+
+    private final Random random = new Random(20240601L);
+
+    private StoreMapper storeMapper;
+
+    private StoreSpatialIndex index;
+
+    private List<Store> stores;
+
+    @BeforeEach
+    void setUp() {
+        stores = new ArrayList<>();
+        long storeId = 1;
+        // 城区密集分布
+        for (int i = 0; i < 1500; i++) {
+            stores.add(store(storeId++, 116.4 + gaussian(0.15), 39.9 + gaussian(0.15), 1));
+        }
+        // 周边稀疏分布
+        for (int i = 0; i < 500; i++) {
+            stores.add(store(storeId++, 115 + random.nextDouble() * 3, 38.5 + random.nextDouble() * 3, 1));
+        }
+        // 非营业、无坐标的门店不进入索引
+        stores.add(store(storeId++, 116.41, 39.91, 0));
+        stores.add(store(storeId, 0, 0, 1));
+
+        storeMapper = mock(StoreMapper.class);
+        when(storeMapper.selectList(any())).thenReturn(stores);
+        index = new StoreSpatialIndex();
+        ReflectionTestUtils.setField(index, "storeMapper", storeMapper);
+        ReflectionTestUtils.setField(index, "cellDegrees", CELL_DEGREES);
+        index.reload();
+    }
+
+    @Test
+    void nearestMatchesBruteForce() {
+        int[] ks = {1, 5, 20};
+        Double[] radii = {null, 0.5, 3.0, 25.0};
+        for (int i = 0; i < 400; i++) {
+            double lng = 114.5 + random.nextDouble() * 4;
+            double lat = 38 + random.nextDouble() * 4;
+            int k = ks[random.nextInt(ks.length)];
+            Double radiusKm = radii[random.nextInt(radii.length)];
+            assertSameResult(bruteForce(lng, lat, k, radiusKm), index.nearest(lng, lat, k, radiusKm));
+        }
+    }
+
+    @Test
+    void nearestFarFromAllStoresMatchesBruteForce() {
+        // 远离所有门店：需扫描的圈数超过门店数，退化为全量扫描
+        assertSameResult(bruteForce(100.0, 25.0, 3, null), index.nearest(100.0, 25.0, 3, null));
+        assertTrue(index.nearest(100.0, 25.0, 3, 50.0).isEmpty());
+    }
+
+    @Test
+    void incrementalUpdatesMatchBruteForce() {
+        for (int i = 0; i < 200; i++) {
+            Store store = stores.get(random.nextInt(stores.size()));
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    store.setGpsCoordinates(116.4 + gaussian(0.3), 39.9 + gaussian(0.3));
+                    index.update(store);
+                }
+                case 1 -> {
+                    store.setStatus(0);
+                    index.update(store);
+                }
+                default -> {
+                    store.setStatus(1);
+                    index.update(store);
+                }
+            }
+        }
+        for (int i = 0; i < 200; i++) {
+            double lng = 115.5 + random.nextDouble() * 2;
+            double lat = 39 + random.nextDouble() * 2;
+            assertSameResult(bruteForce(lng, lat, 10, null), index.nearest(lng, lat, 10, null));
+        }
+    }
+
+    @Test
+    void unloadedIndexReturnsEmptyWithoutQueryingDatabase() {
+        StoreMapper failingMapper = mock(StoreMapper.class);
+        when(failingMapper.selectList(any())).thenThrow(new IllegalStateException("数据库不可用"));
+        StoreSpatialIndex unloaded = new StoreSpatialIndex();
+        ReflectionTestUtils.setField(unloaded, "storeMapper", failingMapper);
+        ReflectionTestUtils.setField(unloaded, "cellDegrees", CELL_DEGREES);
+        unloaded.init();
+
+        // 加载失败后查询直接返回空，不在查询线程上重试数据库
+        for (int i = 0; i < 10; i++) {
+            assertTrue(unloaded.nearest(116.4, 39.9, 5, null).isEmpty());
+        }
+        verify(failingMapper, times(1)).selectList(any());
+
+        // 定时重试加载成功后恢复查询；已加载后重试不再访问数据库
+        ReflectionTestUtils.setField(unloaded, "storeMapper", storeMapper);
+        unloaded.retryLoad();
+        unloaded.retryLoad();
+        verify(storeMapper, times(2)).selectList(any());
+        assertSameResult(bruteForce(116.4, 39.9, 5, null), unloaded.nearest(116.4, 39.9, 5, null));
+    }
+
+    @Test
+    void lowerBoundNeverExceedsActualDistance() {
+        double[] latitudes = {0.3, 22.5, 39.9, -33.8, 60.2, 75.0, -80.0};
+        for (double baseLat : latitudes) {
+            for (int q = 0; q < 20; q++) {
+                double lng = 100 + random.nextDouble() * 20;
+                double lat = baseLat + random.nextDouble() * CELL_DEGREES;
+                int cx = (int) Math.floor(lng / CELL_DEGREES);
+                int cy = (int) Math.floor(lat / CELL_DEGREES);
+                double dx = Math.min(lng - cx * CELL_DEGREES, (cx + 1) * CELL_DEGREES - lng);
+                double dy = Math.min(lat - cy * CELL_DEGREES, (cy + 1) * CELL_DEGREES - lat);
+                for (int ring = 1; ring <= 30; ring++) {
+                    double bound = index.lowerBoundKm(lat, dx, dy, ring);
+                    for (int sample = 0; sample < 50; sample++) {
+                        // 在第ring圈的某个网格内随机取点
+                        int x;
+                        int y;
+                        if (random.nextBoolean()) {
+                            x = cx - ring + random.nextInt(2 * ring + 1);
+                            y = random.nextBoolean() ? cy - ring : cy + ring;
+                        } else {
+                            x = random.nextBoolean() ? cx - ring : cx + ring;
+                            y = cy - ring + random.nextInt(2 * ring + 1);
+                        }
+                        double pLng = (x + random.nextDouble()) * CELL_DEGREES;
+                        double pLat = (y + random.nextDouble()) * CELL_DEGREES;
+                        if (pLat < -90 || pLat > 90) {
+                            continue;
+                        }
+                        double actual = GeoUtils.haversineKm(lng, lat, pLng, pLat);
+                        assertTrue(bound <= actual + 1e-9, String.format(
+                                "ring=%d 查询点(%.5f,%.5f) 下界%.6f 超过实际距离%.6f", ring, lng, lat, bound, actual));
+                    }
+                }
+            }
+        }
+    }
+
+    private List<StoreDistance> bruteForce(double lng, double lat, int k, Double radiusKm) {
+        List<StoreDistance> all = new ArrayList<>();
+        for (Store store : stores) {
+            double[] coordinates = store.getGpsCoordinates();
+            if (!store.isOperating() || !GeoUtils.isValid(coordinates[0], coordinates[1])) {
+                continue;
+            }
+            double distance = GeoUtils.haversineKm(lng, lat, coordinates[0], coordinates[1]);
+            if (radiusKm == null || distance <= radiusKm) {
+                all.add(new StoreDistance(store, distance));
+            }
+        }
+        all.sort(Comparator.comparingDouble(StoreDistance::distanceKm));
+        return all.subList(0, Math.min(k, all.size()));
+    }
+
+    private static void assertSameResult(List<StoreDistance> expected, List<StoreDistance> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).store().getStoreId(), actual.get(i).store().getStoreId());
+            assertEquals(expected.get(i).distanceKm(), actual.get(i).distanceKm(), 1e-9);
+        }
+    }
+
+    private double gaussian(double sigma) {
+        return random.nextGaussian() * sigma;
+    }
+
+    private static Store store(long storeId, double lng, double lat, int status) {
+        Store store = new Store();
+        store.setStoreId(storeId);
+        store.setGpsCoordinates(lng, lat);
+        store.setStatus(status);
+        return store;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.express.importer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvRecordReaderTest {
+
+    @Test
+    void readsPlainRecordsWithMixedLineEndings() throws IOException {
+        CsvRecordReader reader = reader("a,b,c\r\n1,2,3\n4,,6\r7,8,9");
+        assertEquals(List.of("a", "b", "c"), reader.next());
+        assertEquals(1, reader.getRecordLine());
+        assertEquals(List.of("1", "2", "3"), reader.next());
+        assertEquals(2, reader.getRecordLine());
+        assertEquals(List.of("4", "", "6"), reader.next());
+        assertEquals(List.of("7", "8", "9"), reader.next());
+        assertEquals(4, reader.getRecordLine());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void quotedFieldsKeepNewlinesCommasAndEscapedQuotes() throws IOException {
+        CsvRecordReader reader = reader("id,note\n"
+                + "1,\"第一行\n第二行\"\n"
+                + "2,\"逗号,和\"\"引号\"\"\"\n"
+                + "3,\"跨\n多\n\n行\",尾\n"
+                + "4,末行\n");
+        assertEquals(List.of("id", "note"), reader.next());
+        assertEquals(List.of("1", "第一行\n第二行"), reader.next());
+        assertEquals(2, reader.getRecordLine());
+        assertEquals(List.of("2", "逗号,和\"引号\""), reader.next());
+        assertEquals(4, reader.getRecordLine());
+        assertEquals(List.of("3", "跨\n多\n\n行", "尾"), reader.next());
+        assertEquals(5, reader.getRecordLine());
+        // 引号内的换行计入行号，后续记录的行号与文件中的行一致
+        assertEquals(List.of("4", "末行"), reader.next());
+        assertEquals(9, reader.getRecordLine());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void quotedCrLfInsideFieldIsPreserved() throws IOException {
+        CsvRecordReader reader = reader("\"a\r\nb\",c\r\nd,e\r\n");
+        assertEquals(List.of("a\r\nb", "c"), reader.next());
+        assertEquals(List.of("d", "e"), reader.next());
+        assertEquals(3, reader.getRecordLine());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void skipsLeadingBomAndKeepsEmptyTrailingField() throws IOException {
+        CsvRecordReader reader = reader("\uFEFFsender_info,receiver_info\n{},\n");
+        assertEquals(List.of("sender_info", "receiver_info"), reader.next());
+        assertEquals(List.of("{}", ""), reader.next());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void blankLineIsSingleEmptyField() throws IOException {
+        CsvRecordReader reader = reader("a\n\nb\n");
+        assertEquals(List.of("a"), reader.next());
+        assertEquals(List.of(""), reader.next());
+        assertEquals(List.of("b"), reader.next());
+        assertEquals(3, reader.getRecordLine());
+    }
+
+    @Test
+    void unterminatedQuoteFailsWithStartLine() throws IOException {
+        CsvRecordReader reader = reader("a,b\n1,\"未闭合\n继续\n");
+        reader.next();
+        IOException e = assertThrows(IOException.class, reader::next);
+        assertTrue(e.getMessage().contains("第2行"), e.getMessage());
+    }
+
+    private static CsvRecordReader reader(String text) {
+        return new CsvRecordReader(new StringReader(text));
+    }
+}
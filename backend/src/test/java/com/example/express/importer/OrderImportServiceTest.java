@@ -0,0 +1,306 @@
+package com.example.express.importer;
+
+import com.example.express.cache.StoreCatalog;
+import com.example.express.entity.Order;
+import com.example.express.entity.Store;
+import com.example.express.security.AuthenticatedUser;
+import com.example.express.service.OrderService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 导入流水线端到端测试：订单服务为模拟对象，覆盖结束标记、失败传播和并发任务数限制
+ */
+class OrderImportServiceTest {
+
+    private static final String HEADER = "sender_info,receiver_info,item_type,current_store_id\n";
+    private static final String SENDER = "\"{\"\"name\"\":\"\"张三\"\",\"\"phone\"\":\"\"13800000000\"\"}\"";
+    private static final String RECEIVER = "\"{\"\"name\"\":\"\"李四\"\",\"\"address\"\":\"\"上海,浦东\"\"}\"";
+
+    private final AuthenticatedUser user = new AuthenticatedUser(1L, "admin", "admin", null);
+
+    private final AtomicLong createdOrders = new AtomicLong();
+
+    /**
+     * 设置后批量创建抛出该异常
+     */
+    private volatile RuntimeException writeFailure;
+
+    /**
+     * 设置后批量创建等待该闩锁
+     */
+    private volatile CountDownLatch writeGate;
+
+    private OrderImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        OrderService orderService = mock(OrderService.class);
+        when(orderService.createOrders(any(), any())).thenAnswer(invocation -> createOrders(invocation.getArgument(0)));
+
+        Store store = new Store();
+        store.setStoreId(7L);
+        StoreCatalog storeCatalog = mock(StoreCatalog.class);
+        when(storeCatalog.current()).thenReturn(
+                new StoreCatalog.Snapshot(1, "test", List.of(store), Map.of(7L, store)));
+
+        importService = new OrderImportService();
+        ReflectionTestUtils.setField(importService, "orderService", orderService);
+        ReflectionTestUtils.setField(importService, "storeCatalog", storeCatalog);
+        ReflectionTestUtils.setField(importService, "meterRegistry", new SimpleMeterRegistry());
+        configure(3, 2, 2, 2, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        importService.destroy();
+    }
+
+    @Test
+    void importsValidRowsAndReportsErrorsByLine() throws Exception {
+        String csv = HEADER
+                + SENDER + "," + RECEIVER + ",电器,7\n"                          // 第2行
+                + SENDER + ",\"{\"\"note\"\":\"\"第一行\n第二行\"\"}\",玻璃,\n"     // 第3-4行，字段内换行
+                + SENDER + "," + RECEIVER + ",家具,7\n"                          // 第5行，物品类型无效
+                + "\n"                                                          // 第6行，空行跳过
+                + SENDER + "," + RECEIVER + ",陶瓷,99\n"                         // 第7行，门店不存在
+                + SENDER + "," + RECEIVER + ",陶瓷,abc\n"                        // 第8行，门店ID格式错误
+                + "not-json," + RECEIVER + ",电器,\n"                             // 第9行，寄件人不是JSON
+                + SENDER + "," + RECEIVER + ",陶瓷,7\n";                          // 第10行
+
+        OrderImportJob job = importService.startImport(csvFile(csv), user);
+        Map<String, Object> progress = awaitFinished(job);
+
+        assertEquals(OrderImportJob.COMPLETED, progress.get("status"));
+        assertEquals(7L, progress.get("readRows"));
+        assertEquals(3L, progress.get("successCount"));
+        assertEquals(4L, progress.get("failureCount"));
+        assertEquals(3, createdOrders.get());
+        assertEquals(List.of(5L, 7L, 8L, 9L), errorRows(progress));
+    }
+
+    @Test
+    void writeFailureAbortsAllStages() throws Exception {
+        writeFailure = new IllegalStateException("数据库不可用");
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 0; i < 5000; i++) {
+            csv.append(SENDER).append(',').append(RECEIVER).append(",电器,7\n");
+        }
+
+        OrderImportJob job = importService.startImport(csvFile(csv.toString()), user);
+        Map<String, Object> progress = awaitFinished(job);
+
+        assertEquals(OrderImportJob.FAILED, progress.get("status"));
+        assertEquals("数据库不可用", progress.get("message"));
+        // 读取线程随任务失败退出，不会因队列已满阻塞到读完整个文件
+        assertTrue((Long) progress.get("readRows") < 5000, "读取了 " + progress.get("readRows") + " 行");
+
+        // 失败后释放名额，可以提交新任务
+        writeFailure = null;
+        OrderImportJob next = importService.startImport(csvFile(HEADER + SENDER + "," + RECEIVER + ",电器,\n"), user);
+        assertEquals(OrderImportJob.COMPLETED, awaitFinished(next).get("status"));
+    }
+
+    @Test
+    void missingRequiredColumnFailsJob() throws Exception {
+        OrderImportJob job = importService.startImport(csvFile("sender_info,receiver_info\n{},{}\n"), user);
+        Map<String, Object> progress = awaitFinished(job);
+        assertEquals(OrderImportJob.FAILED, progress.get("status"));
+        assertEquals("缺少必填列：item_type", progress.get("message"));
+    }
+
+    @Test
+    void rejectsJobsBeyondConcurrencyLimit() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        writeGate = release;
+        String csv = HEADER + SENDER + "," + RECEIVER + ",电器,7\n";
+
+        OrderImportJob first = importService.startImport(csvFile(csv), user);
+        assertThrows(IllegalStateException.class, () -> importService.startImport(csvFile(csv), user));
+        release.countDown();
+        assertEquals(OrderImportJob.COMPLETED, awaitFinished(first).get("status"));
+    }
+
+    /**
+     * 100万行吞吐基准（订单服务为模拟对象，只测流水线本身），默认跳过：
+     * mvn test -Dtest=OrderImportServiceTest -Dbenchmark=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkOneMillionRows() throws Exception {
+        importService.destroy();
+        configure(1000, 8, 4, 2, 1);
+        int rows = 1_000_000;
+        long start = System.nanoTime();
+        OrderImportJob job = importService.startImport(new GeneratedCsvFile(rows), user);
+        Map<String, Object> progress = awaitFinished(job, 300);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(OrderImportJob.COMPLETED, progress.get("status"));
+        assertEquals((long) rows, progress.get("successCount"));
+        System.out.printf("导入 %d 行耗时 %d ms（%.0f 行/秒，含生成临时文件）%n",
+                rows, elapsedMs, rows * 1000.0 / Math.max(1, elapsedMs));
+    }
+
+    private void configure(int chunkSize, int queueCapacity, int parallelism, int writers, int maxConcurrentJobs) {
+        ReflectionTestUtils.setField(importService, "chunkSize", chunkSize);
+        ReflectionTestUtils.setField(importService, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(importService, "parallelism", parallelism);
+        ReflectionTestUtils.setField(importService, "writers", writers);
+        ReflectionTestUtils.setField(importService, "maxConcurrentJobs", maxConcurrentJobs);
+        ReflectionTestUtils.setField(importService, "maxErrors", 100);
+        ReflectionTestUtils.setField(importService, "jobTtlMs", 60_000L);
+        importService.init();
+    }
+
+    private Map<String, Object> createOrders(List<Order> orders) throws InterruptedException {
+        CountDownLatch gate = writeGate;
+        if (gate != null) {
+            gate.await(10, TimeUnit.SECONDS);
+        }
+        RuntimeException failure = writeFailure;
+        if (failure != null) {
+            throw failure;
+        }
+        List<Map<String, Object>> results = new ArrayList<>(orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("index", i);
+            result.put("success", true);
+            results.add(result);
+        }
+        createdOrders.addAndGet(orders.size());
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("results", results);
+        return summary;
+    }
+
+    private Map<String, Object> awaitFinished(OrderImportJob job) throws InterruptedException {
+        return awaitFinished(job, 10);
+    }
+
+    /**
+     * 等待任务结束；任务结束后名额在同一个finally块中释放，再稍等片刻
+     */
+    private Map<String, Object> awaitFinished(OrderImportJob job, int timeoutSeconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        while (System.nanoTime() < deadline) {
+            Map<String, Object> progress = job.toMap();
+            if (!OrderImportJob.RUNNING.equals(progress.get("status"))) {
+                Thread.sleep(100);
+                return job.toMap();
+            }
+            Thread.sleep(20);
+        }
+        fail("导入任务未在 " + timeoutSeconds + " 秒内结束：" + job.toMap());
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Long> errorRows(Map<String, Object> progress) {
+        List<Long> rows = new ArrayList<>();
+        for (Map<String, Object> error : (List<Map<String, Object>>) progress.get("errors")) {
+            rows.add((Long) error.get("row"));
+        }
+        return rows;
+    }
+
+    private static MultipartFile csvFile(String content) {
+        return new MockMultipartFile("file", "orders.csv", "text/csv", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 转存时逐行生成内容的上传文件，避免在内存中构造整个文件
+     */
+    private static final class GeneratedCsvFile implements MultipartFile {
+
+        private final int rows;
+
+        private GeneratedCsvFile(int rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public String getName() {
+            return "file";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return "benchmark.csv";
+        }
+
+        @Override
+        public String getContentType() {
+            return "text/csv";
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return rows < 0;
+        }
+
+        @Override
+        public long getSize() {
+            return -1;
+        }
+
+        @Override
+        public byte[] getBytes() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            transferTo(dest.toPath());
+        }
+
+        @Override
+        public void transferTo(Path dest) throws IOException {
+            try (BufferedWriter out = Files.newBufferedWriter(dest, StandardCharsets.UTF_8)) {
+                out.write(HEADER);
+                for (int i = 0; i < rows; i++) {
+                    out.write(SENDER);
+                    out.write(',');
+                    out.write(RECEIVER);
+                    out.write(i % 3 == 0 ? ",电器,7\n" : ",玻璃,\n");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.express.routing;
+
+import com.example.express.entity.Order;
+import com.example.express.entity.Store;
+import com.example.express.geo.AmapGeocoder;
+import com.example.express.geo.GeoPoint;
+import com.example.express.geo.StoreSpatialIndex;
+import com.example.express.mapper.StoreMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 订单路由：按距离与负载选择门店，并校验单次路由的延迟预算（p99 < 1ms）
+ */
+class OrderRouterTest {
+
+    private final Random random = new Random(20240615L);
+
+    private final Map<Long, Long> loads = new HashMap<>();
+
+    private OrderRouter router;
+
+    @BeforeEach
+    void setUp() {
+        List<Store> stores = new ArrayList<>();
+        long storeId = 1;
+        // 两个相距约1.7公里的门店，远离随机分布的门店，便于检验距离与负载权重
+        stores.add(store(storeId++, 118.400, 39.900));
+        stores.add(store(storeId++, 118.420, 39.900));
+        for (int i = 0; i < 3000; i++) {
+            stores.add(store(storeId++, 115.5 + random.nextDouble() * 2, 39 + random.nextDouble() * 2));
+        }
+
+        StoreMapper storeMapper = mock(StoreMapper.class);
+        when(storeMapper.selectList(any())).thenReturn(stores);
+        StoreSpatialIndex storeSpatialIndex = new StoreSpatialIndex();
+        ReflectionTestUtils.setField(storeSpatialIndex, "storeMapper", storeMapper);
+        ReflectionTestUtils.setField(storeSpatialIndex, "cellDegrees", 0.05);
+        storeSpatialIndex.reload();
+
+        StoreLoadTracker storeLoadTracker = mock(StoreLoadTracker.class);
+        when(storeLoadTracker.getLoad(any())).thenAnswer(
+                invocation -> loads.getOrDefault(invocation.getArgument(0), 0L));
+        AmapGeocoder amapGeocoder = mock(AmapGeocoder.class);
+        when(amapGeocoder.getIfCached(any())).thenReturn(new GeoPoint(118.421, 39.900));
+
+        router = new OrderRouter();
+        ReflectionTestUtils.setField(router, "storeSpatialIndex", storeSpatialIndex);
+        ReflectionTestUtils.setField(router, "storeLoadTracker", storeLoadTracker);
+        ReflectionTestUtils.setField(router, "amapGeocoder", amapGeocoder);
+        ReflectionTestUtils.setField(router, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(router, "enabled", true);
+        ReflectionTestUtils.setField(router, "candidates", 5);
+        ReflectionTestUtils.setField(router, "maxRadiusKm", 50.0);
+        ReflectionTestUtils.setField(router, "loadWeightKm", 0.1);
+        router.init();
+    }
+
+    @Test
+    void routesToNearestStoreWhenIdle() {
+        Order order = order("{\"name\":\"张三\",\"longitude\":118.401,\"latitude\":39.900}");
+        assertTrue(router.route(order));
+        assertEquals(1L, order.getCurrentStoreId());
+
+        // location字段及地址的地理编码缓存
+        Order byLocation = order("{\"location\":\"118.419,39.900\"}");
+        assertTrue(router.route(byLocation));
+        assertEquals(2L, byLocation.getCurrentStoreId());
+        Order byAddress = order("{\"address\":\"北京市东城区\"}");
+        assertTrue(router.route(byAddress));
+        assertEquals(2L, byAddress.getCurrentStoreId());
+    }
+
+    @Test
+    void loadShiftsOrdersToLessLoadedStore() {
+        // 与两个门店距离相同（约0.85公里），负载较低者胜出
+        loads.put(1L, 30L);
+        Order order = order("{\"lng\":118.410,\"lat\":39.900}");
+        assertTrue(router.route(order));
+        assertEquals(2L, order.getCurrentStoreId());
+
+        // 同一批次中已分配的订单计入负载
+        loads.clear();
+        Map<Long, Long> pending = new HashMap<>();
+        pending.put(1L, 30L);
+        Order batched = order("{\"lng\":118.410,\"lat\":39.900}");
+        assertTrue(router.route(batched, pending));
+        assertEquals(2L, batched.getCurrentStoreId());
+        assertEquals(1L, pending.get(2L));
+    }
+
+    @Test
+    void skipsOrdersWithoutLocationOrStore() {
+        Order assigned = order("{\"longitude\":118.401,\"latitude\":39.900}");
+        assigned.setCurrentStoreId(99L);
+        assertFalse(router.route(assigned));
+        assertEquals(99L, assigned.getCurrentStoreId());
+
+        Order notJson = order("张三 13800000000");
+        assertFalse(router.route(notJson));
+        assertNull(notJson.getCurrentStoreId());
+
+        // 半径内没有门店
+        Order remote = order("{\"longitude\":100.0,\"latitude\":25.0}");
+        assertFalse(router.route(remote));
+        assertNull(remote.getCurrentStoreId());
+    }
+
+    @Test
+    void routeLatencyWithinBudget() {
+        int samples = 20_000;
+        String[] senders = new String[samples];
+        for (int i = 0; i < samples; i++) {
+            senders[i] = String.format("{\"name\":\"寄件人%d\",\"phone\":\"13800000000\",\"longitude\":%.6f,\"latitude\":%.6f}",
+                    i, 115.5 + random.nextDouble() * 2, 39 + random.nextDouble() * 2);
+        }
+        for (long storeId = 1; storeId <= 3002; storeId++) {
+            loads.put(storeId, (long) random.nextInt(100));
+        }
+
+        // 预热，使JIT编译完成
+        for (int i = 0; i < samples; i++) {
+            router.route(order(senders[i]));
+        }
+        long[] nanos = new long[samples];
+        for (int i = 0; i < samples; i++) {
+            Order order = order(senders[i]);
+            long start = System.nanoTime();
+            boolean routed = router.route(order);
+            nanos[i] = System.nanoTime() - start;
+            assertTrue(routed);
+        }
+        Arrays.sort(nanos);
+        long p50 = nanos[samples / 2];
+        long p99 = nanos[(int) (samples * 0.99)];
+        System.out.printf("订单路由耗时 p50=%dus p99=%dus%n", p50 / 1000, p99 / 1000);
+        assertTrue(p99 < 1_000_000, "路由p99超出1ms预算：" + p99 / 1000 + "us");
+    }
+
+    private static Order order(String senderInfo) {
+        Order order = new Order();
+        order.setSenderInfo(senderInfo);
+        return order;
+    }
+
+    private static Store store(long storeId, double lng, double lat) {
+        Store store = new Store();
+        store.setStoreId(storeId);
+        store.setGpsCoordinates(lng, lat);
+        store.setStatus(1);
+        return store;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.express.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnowflakeIdGeneratorTest {
+
+    private static final long SEQUENCE_MASK = 0xFFF;
+
+    /**
+     * 2026-01-01 00:00:00 UTC
+     */
+    private static final long NOW = 1767225600000L;
+
+    @Test
+    void idsAreUniqueAndIncreasingPerThread() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 1, System::currentTimeMillis);
+        int threads = 8;
+        int perThread = 50_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    long[] ids = new long[perThread];
+                    for (int i = 0; i < perThread; i++) {
+                        ids[i] = generator.nextId();
+                    }
+                    return ids;
+                }));
+            }
+            start.countDown();
+
+            long[] all = new long[threads * perThread];
+            int offset = 0;
+            for (Future<long[]> future : futures) {
+                long[] ids = future.get(30, TimeUnit.SECONDS);
+                for (int i = 1; i < ids.length; i++) {
+                    assertTrue(ids[i] > ids[i - 1], "同一线程内的ID必须递增");
+                }
+                System.arraycopy(ids, 0, all, offset, ids.length);
+                offset += ids.length;
+            }
+            Arrays.sort(all);
+            for (int i = 1; i < all.length; i++) {
+                assertTrue(all[i] != all[i - 1], "ID重复：" + all[i]);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void exhaustedSequenceBorrowsNextMillisecond() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(0, 0, () -> NOW);
+
+        long previous = -1;
+        for (int i = 0; i <= SEQUENCE_MASK; i++) {
+            long id = generator.nextId();
+            assertEquals(NOW, SnowflakeIdGenerator.extractTimestamp(id));
+            assertEquals(i, id & SEQUENCE_MASK);
+            assertTrue(id > previous);
+            previous = id;
+        }
+
+        // 第4097个ID：当前毫秒序列号已用完，借用下一毫秒且不等待时钟前进
+        long borrowed = generator.nextId();
+        assertEquals(NOW + 1, SnowflakeIdGenerator.extractTimestamp(borrowed));
+        assertEquals(0, borrowed & SEQUENCE_MASK);
+        assertTrue(borrowed > previous);
+
+        long next = generator.nextId();
+        assertEquals(NOW + 1, SnowflakeIdGenerator.extractTimestamp(next));
+        assertEquals(1, next & SEQUENCE_MASK);
+    }
+
+    @Test
+    void clockRollbackKeepsIdsIncreasing() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(3, 2, clock::get);
+
+        long before = generator.nextId();
+        clock.set(NOW - 5_000);
+        long previous = before;
+        for (int i = 0; i < 100; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous, "时钟回拨后ID必须继续递增");
+            assertEquals(NOW, SnowflakeIdGenerator.extractTimestamp(id), "回拨期间沿用上一次的时间戳");
+            previous = id;
+        }
+
+        // 时钟追上后恢复使用当前时间
+        clock.set(NOW + 10);
+        long recovered = generator.nextId();
+        assertTrue(recovered > previous);
+        assertEquals(NOW + 10, SnowflakeIdGenerator.extractTimestamp(recovered));
+        assertEquals(0, recovered & SEQUENCE_MASK);
+    }
+
+    @Test
+    void nodeBitsAreEncoded() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7, 19, () -> NOW);
+        long id = generator.nextId();
+        assertEquals(7, (id >>> 12) & 0x1F);
+        assertEquals(19, (id >>> 17) & 0x1F);
+    }
+}